@@ -0,0 +1,108 @@
+package com.galapea.techblog.ott.benchmark;
+
+import com.galapea.techblog.ott.security.CustomOneTimeTokenService;
+import com.galapea.techblog.ott.security.GridDbOneTimeTokenStore;
+import com.galapea.techblog.ott.security.InMemoryOneTimeTokenStore;
+import com.galapea.techblog.ott.security.JdbcOneTimeTokenStore;
+import com.galapea.techblog.ott.security.OneTimeTokenStore;
+import com.galapea.techblog.ott.service.GridDbClient;
+import com.galapea.techblog.ott.service.GridDbMetrics;
+import com.galapea.techblog.ott.service.GridDbResilience;
+import com.galapea.techblog.ott.service.OneTimeTokensContainerClient;
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.authentication.ott.GenerateOneTimeTokenRequest;
+import org.springframework.security.authentication.ott.OneTimeToken;
+import org.springframework.security.authentication.ott.OneTimeTokenAuthenticationToken;
+import org.springframework.web.client.RestClient;
+
+/**
+ * {@link CustomOneTimeTokenService} generate/consume throughput under contention, per token store.
+ * The GridDB store runs against {@link StubGridDb}, so it shows client overhead only.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(8)
+public class OneTimeTokenServiceBenchmark {
+
+  @Param({"memory", "jdbc", "griddb"})
+  public String store;
+
+  private CustomOneTimeTokenService tokenService;
+  private final GenerateOneTimeTokenRequest request =
+      new GenerateOneTimeTokenRequest("user@example.com");
+
+  @Setup
+  public void setUp() {
+    tokenService = new CustomOneTimeTokenService(newStore(store));
+  }
+
+  static OneTimeTokenStore newStore(String type) {
+    return switch (type) {
+      case "memory" -> new InMemoryOneTimeTokenStore(1_000_000);
+      case "jdbc" -> {
+        HikariDataSource dataSource = new HikariDataSource();
+        dataSource.setJdbcUrl("jdbc:h2:mem:ott-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1");
+        yield new JdbcOneTimeTokenStore(new JdbcTemplate(dataSource));
+      }
+      case "griddb" -> {
+        RestClient restClient = new StubGridDb(OneTimeTokenServiceBenchmark::griddb).restClient();
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        GridDbMetrics metrics = new GridDbMetrics(registry);
+        GridDbResilience resilience = GridDbResilience.disabled(registry);
+        yield new GridDbOneTimeTokenStore(
+            new GridDbClient(restClient, metrics, resilience),
+            new OneTimeTokensContainerClient(restClient, metrics, resilience));
+      }
+      default -> throw new IllegalArgumentException(type);
+    };
+  }
+
+  private static String griddb(String request, byte[] body) {
+    if (request.endsWith("/sql/update")) {
+      return "[{\"updatedRows\":1}]";
+    }
+    if (request.endsWith("/sql")) {
+      return StubGridDb.sqlResponse(
+          1,
+          List.of(
+              List.of(
+                  UUID.randomUUID().toString(),
+                  "user@example.com",
+                  Long.toString(System.currentTimeMillis() + 300_000))));
+    }
+    return null;
+  }
+
+  @Benchmark
+  public OneTimeToken generateAndConsume() {
+    OneTimeToken token = tokenService.generate(request);
+    return tokenService.consume(new OneTimeTokenAuthenticationToken(token.getTokenValue()));
+  }
+
+  @Benchmark
+  public OneTimeToken consumeUnknown() {
+    return tokenService.consume(
+        new OneTimeTokenAuthenticationToken("00000000-0000-0000-0000-000000000000"));
+  }
+}
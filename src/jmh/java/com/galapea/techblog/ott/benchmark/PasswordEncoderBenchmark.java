@@ -0,0 +1,57 @@
+package com.galapea.techblog.ott.benchmark;
+
+import com.galapea.techblog.ott.security.PasswordEncoders;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+/**
+ * Cost of the {@link PasswordEncoders} policy per encoder and cost setting, {@code encoder:cost}
+ * with the bcrypt strength or the PBKDF2 iterations. {@code matches} is paid on every password
+ * login, {@code encode} on seeding and on hash upgrades.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PasswordEncoderBenchmark {
+
+  @Param({"bcrypt:10", "bcrypt:12", "pbkdf2:310000", "pbkdf2:600000"})
+  public String policy;
+
+  private PasswordEncoder passwordEncoder;
+  private String encodedPassword;
+
+  @Setup
+  public void setUp() {
+    String encoder = policy.substring(0, policy.indexOf(':'));
+    int cost = Integer.parseInt(policy.substring(policy.indexOf(':') + 1));
+    passwordEncoder =
+        "bcrypt".equals(encoder)
+            ? PasswordEncoders.create(encoder, cost, 310_000)
+            : PasswordEncoders.create(encoder, 10, cost);
+    encodedPassword = passwordEncoder.encode("user123");
+  }
+
+  @Benchmark
+  public String encode() {
+    return passwordEncoder.encode("user123");
+  }
+
+  @Benchmark
+  public boolean matches() {
+    return passwordEncoder.matches("user123", encodedPassword);
+  }
+}
@@ -0,0 +1,198 @@
+package com.galapea.techblog.ott.benchmark;
+
+import com.galapea.techblog.ott.config.GridDbTransport;
+import com.galapea.techblog.ott.loadtest.FakeGridDbServer;
+import com.galapea.techblog.ott.model.UserRecord;
+import com.galapea.techblog.ott.service.GridDbClient;
+import com.galapea.techblog.ott.service.GridDbMetrics;
+import com.galapea.techblog.ott.service.GridDbResilience;
+import com.galapea.techblog.ott.service.GridDbSchema;
+import com.galapea.techblog.ott.service.ReactiveUsersContainerClient;
+import com.galapea.techblog.ott.service.UserExistenceIndex;
+import com.galapea.techblog.ott.service.UserRecordCache;
+import com.galapea.techblog.ott.service.UsersContainerClient;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.core.env.StandardEnvironment;
+import org.springframework.http.MediaType;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.web.client.RestClient;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+/**
+ * The blocking {@link UsersContainerClient} against {@link ReactiveUsersContainerClient} under the
+ * same load, over real HTTP to a {@link FakeGridDbServer} that answers after a fixed latency. One
+ * operation completes {@code concurrency} distinct user lookups, on as many platform threads for
+ * the blocking client and as concurrent subscriptions for the reactive one, or streams all users.
+ * The user cache and statement batching are off so every lookup reaches the server.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ReactiveUsersContainerClientBenchmark {
+
+  private static final int USERS = 1000;
+
+  @Param({"16", "256"})
+  public int concurrency;
+
+  @Param({"5"})
+  public int latencyMillis;
+
+  private FakeGridDbServer fake;
+  private GridDbTransport transport;
+  private ConnectionProvider connectionProvider;
+  private ExecutorService threads;
+  private UsersContainerClient blockingClient;
+  private ReactiveUsersContainerClient reactiveClient;
+  private final List<String> emails = new ArrayList<>(USERS);
+  private int next;
+
+  @Setup
+  public void setUp() throws Exception {
+    fake = FakeGridDbServer.start(0, 512);
+    MeterRegistry registry = new SimpleMeterRegistry();
+    GridDbMetrics metrics = new GridDbMetrics(registry);
+    GridDbResilience resilience = GridDbResilience.disabled(registry);
+
+    transport =
+        GridDbTransport.create(
+            new GridDbTransport.Settings(
+                GridDbTransport.Protocol.HTTP_1_1,
+                Duration.ofSeconds(5),
+                Duration.ofSeconds(10),
+                Duration.ofSeconds(10),
+                512,
+                512,
+                Duration.ofSeconds(30),
+                Duration.ofMinutes(5)));
+    RestClient restClient =
+        RestClient.builder()
+            .requestFactory(transport.requestFactory())
+            .baseUrl(fake.baseUrl())
+            .defaultHeader("Content-Type", MediaType.APPLICATION_JSON_VALUE)
+            .build();
+    blockingClient =
+        new UsersContainerClient(
+            restClient,
+            new UserRecordCache(false, 1, Duration.ofMinutes(1)),
+            new UserExistenceIndex(false, 1, 0.01),
+            metrics,
+            resilience,
+            false,
+            Duration.ofMillis(2),
+            16,
+            8,
+            new StandardEnvironment());
+
+    connectionProvider =
+        ConnectionProvider.builder("griddb")
+            .maxConnections(512)
+            .pendingAcquireTimeout(Duration.ofSeconds(10))
+            .build();
+    WebClient webClient =
+        WebClient.builder()
+            .clientConnector(new ReactorClientHttpConnector(HttpClient.create(connectionProvider)))
+            .baseUrl(fake.baseUrl())
+            .defaultHeader("Content-Type", MediaType.APPLICATION_JSON_VALUE)
+            .build();
+    reactiveClient =
+        new ReactiveUsersContainerClient(
+            webClient, new UserRecordCache(false, 1, Duration.ofMinutes(1)), metrics, resilience);
+
+    new GridDbSchema(
+            restClient, new GridDbClient(restClient, metrics, resilience), metrics, resilience)
+        .migrate();
+    List<UserRecord> users = new ArrayList<>(USERS);
+    for (int i = 0; i < USERS; i++) {
+      String email = "user" + i + "@example.com";
+      emails.add(email);
+      users.add(
+          new UserRecord(
+              UUID.randomUUID().toString(),
+              email,
+              "User " + i,
+              "{bcrypt}$2a$10$GRLdNijSQMUvl/au9ofL.eDwmoohzzS7.rmNSJZ.0FxO/BTk76klW"));
+    }
+    blockingClient.putUsers(users);
+
+    fake.latency(Duration.ofMillis(latencyMillis), Duration.ZERO);
+    threads = Executors.newFixedThreadPool(concurrency);
+  }
+
+  @TearDown
+  public void tearDown() throws Exception {
+    threads.shutdownNow();
+    connectionProvider.dispose();
+    transport.destroy();
+    fake.close();
+  }
+
+  private String nextEmail() {
+    return emails.get(next++ % USERS);
+  }
+
+  @Benchmark
+  public UserRecord blockingLookups() throws Exception {
+    List<Future<UserRecord>> lookups = new ArrayList<>(concurrency);
+    for (int i = 0; i < concurrency; i++) {
+      String email = nextEmail();
+      lookups.add(threads.submit(() -> blockingClient.getUserByEmail(email)));
+    }
+    UserRecord last = null;
+    for (Future<UserRecord> lookup : lookups) {
+      last = lookup.get();
+    }
+    return last;
+  }
+
+  @Benchmark
+  public UserRecord reactiveLookups() {
+    List<String> batch = new ArrayList<>(concurrency);
+    for (int i = 0; i < concurrency; i++) {
+      batch.add(nextEmail());
+    }
+    return Flux.fromIterable(batch)
+        .flatMap(reactiveClient::getUserByEmail, concurrency)
+        .blockLast();
+  }
+
+  @Benchmark
+  public long blockingStream() {
+    try (Stream<UserRecord> users = blockingClient.streamUsers(0, USERS, null, null)) {
+      return users.count();
+    }
+  }
+
+  @Benchmark
+  public long reactiveStream() {
+    return reactiveClient.streamUsers(0, USERS, null, null).count().block();
+  }
+}
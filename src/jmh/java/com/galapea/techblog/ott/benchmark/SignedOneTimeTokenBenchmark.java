@@ -0,0 +1,129 @@
+package com.galapea.techblog.ott.benchmark;
+
+import com.galapea.techblog.ott.security.CustomOneTimeTokenService;
+import com.galapea.techblog.ott.security.InMemoryOneTimeTokenStore;
+import com.galapea.techblog.ott.security.SignedOneTimeTokenService;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.security.authentication.ott.GenerateOneTimeTokenRequest;
+import org.springframework.security.authentication.ott.OneTimeToken;
+import org.springframework.security.authentication.ott.OneTimeTokenAuthenticationToken;
+import org.springframework.security.authentication.ott.OneTimeTokenService;
+
+/**
+ * Stored tokens ({@link CustomOneTimeTokenService} on the in-memory store) against stateless signed
+ * tokens ({@link SignedOneTimeTokenService}). Run with {@code -prof gc} for allocations per
+ * operation. The setup also prints the heap retained by {@value #RETAINED_TOKENS} live tokens:
+ * issued and unused for the stored mode, used and not yet expired for the signed mode, which is the
+ * state each mode has to keep.
+ *
+ * <p>Nothing sweeps spent nonces during a run, so each iteration starts with a new service and
+ * fails if its tokens were no longer accepted at the end, instead of measuring rejections.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(8)
+public class SignedOneTimeTokenBenchmark {
+
+  private static final int RETAINED_TOKENS = 100_000;
+  private static final String SECRET =
+      Base64.getEncoder().encodeToString("0123456789abcdef0123456789abcdef".getBytes());
+
+  @Param({"stored", "signed"})
+  public String mode;
+
+  private OneTimeTokenService tokenService;
+  private final GenerateOneTimeTokenRequest request =
+      new GenerateOneTimeTokenRequest("user@example.com");
+  private String unknownToken;
+
+  @Setup
+  public void setUp() {
+    printRetainedHeap();
+    // issued by another instance: not stored here, or signed with another key
+    OneTimeTokenService other =
+        mode.equals("signed") ? new SignedOneTimeTokenService("", 1) : newService(mode);
+    unknownToken = other.generate(request).getTokenValue();
+  }
+
+  @Setup(Level.Iteration)
+  public void newTokenService() {
+    tokenService = newService(mode);
+  }
+
+  @TearDown(Level.Iteration)
+  public void checkTokensAreStillAccepted() {
+    if (generateAndConsume() == null) {
+      throw new IllegalStateException(
+          mode + " tokens were rejected at the end of the iteration, shorten the iterations");
+    }
+  }
+
+  private static OneTimeTokenService newService(String mode) {
+    return switch (mode) {
+      case "stored" -> new CustomOneTimeTokenService(new InMemoryOneTimeTokenStore(1_000_000));
+      case "signed" -> new SignedOneTimeTokenService(SECRET, 1_000_000);
+      default -> throw new IllegalArgumentException(mode);
+    };
+  }
+
+  private void printRetainedHeap() {
+    long before = usedHeap();
+    OneTimeTokenService service = newService(mode);
+    List<OneTimeToken> tokens = new ArrayList<>(RETAINED_TOKENS);
+    for (int i = 0; i < RETAINED_TOKENS; i++) {
+      tokens.add(service.generate(new GenerateOneTimeTokenRequest("user" + i + "@example.com")));
+    }
+    if (mode.equals("signed")) {
+      for (OneTimeToken token : tokens) {
+        service.consume(new OneTimeTokenAuthenticationToken(token.getTokenValue()));
+      }
+    }
+    tokens = null;
+    long retained = usedHeap() - before;
+    System.out.printf(
+        "%n%s: %d bytes retained for %d live tokens (%d bytes per token)%n",
+        mode, retained, RETAINED_TOKENS, retained / RETAINED_TOKENS);
+    // keeps the service reachable until the heap was measured
+    service.generate(request);
+  }
+
+  private static long usedHeap() {
+    for (int i = 0; i < 3; i++) {
+      System.gc();
+    }
+    return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+  }
+
+  @Benchmark
+  public OneTimeToken generateAndConsume() {
+    OneTimeToken token = tokenService.generate(request);
+    return tokenService.consume(new OneTimeTokenAuthenticationToken(token.getTokenValue()));
+  }
+
+  @Benchmark
+  public OneTimeToken consumeUnknown() {
+    return tokenService.consume(new OneTimeTokenAuthenticationToken(unknownToken));
+  }
+}
@@ -0,0 +1,80 @@
+package com.galapea.techblog.ott.benchmark;
+
+import com.galapea.techblog.ott.util.SqlTemplate;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Building the Users statements: {@code String.format} and concatenation as the client used to do,
+ * against precompiled {@link SqlTemplate}s. Run with {@code -prof gc} to compare allocations.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx512m")
+public class SqlStatementBenchmark {
+
+  private static final SqlTemplate SELECT_BY_EMAIL =
+      SqlTemplate.compile("SELECT id, email, name, \"password\" FROM Users where email == ?");
+  private static final SqlTemplate INSERT =
+      SqlTemplate.compile("INSERT INTO Users(id, email, name, \"password\") VALUES (?, ?, ?, ?)");
+
+  /** Whether the values contain a quote that has to be escaped. */
+  @Param({"false", "true"})
+  public boolean quoted;
+
+  private String id;
+  private String email;
+  private String name;
+  private String password;
+
+  @Setup
+  public void setUp() {
+    id = "0b6f0c5e-6d0c-4c55-9a53-2d1a0f6a1f3e";
+    email = quoted ? "o'brien@example.com" : "obrien@example.com";
+    name = quoted ? "Conan O'Brien" : "Conan OBrien";
+    password = "{bcrypt}$2a$10$GRLdNijSQMUvl/au9ofL.eDwmoohzzS7.rmNSJZ.0FxO/BTk76klW";
+  }
+
+  @Benchmark
+  public String selectFormat() {
+    return String.format(
+        "SELECT id, email, name, \"password\" FROM Users where email == '%s'",
+        email.replace("'", "''"));
+  }
+
+  @Benchmark
+  public String selectTemplate() {
+    return SELECT_BY_EMAIL.bind(email);
+  }
+
+  @Benchmark
+  public String insertConcat() {
+    return "INSERT INTO Users(id, email, name, \"password\") VALUES ('"
+        + id.replace("'", "''")
+        + "', '"
+        + email.replace("'", "''")
+        + "', '"
+        + name.replace("'", "''")
+        + "', '"
+        + password.replace("'", "''")
+        + "')";
+  }
+
+  @Benchmark
+  public String insertTemplate() {
+    return INSERT.bind(id, email, name, password);
+  }
+}
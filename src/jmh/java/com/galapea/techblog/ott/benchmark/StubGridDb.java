@@ -0,0 +1,108 @@
+package com.galapea.techblog.ott.benchmark;
+
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.function.BiFunction;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.client.ClientHttpRequest;
+import org.springframework.http.client.ClientHttpRequestFactory;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.mock.http.client.MockClientHttpRequest;
+import org.springframework.mock.http.client.MockClientHttpResponse;
+import org.springframework.web.client.RestClient;
+
+/**
+ * In-process stand-in for the GridDB REST API. Requests never leave the JVM, so benchmarks measure
+ * the client side only: request serialization, response parsing and row mapping.
+ */
+final class StubGridDb implements ClientHttpRequestFactory {
+
+  /** Receives method, path and request body, returns the JSON response body. */
+  interface Handler extends BiFunction<String, byte[], String> {}
+
+  private final Handler handler;
+
+  StubGridDb(Handler handler) {
+    this.handler = handler;
+  }
+
+  RestClient restClient() {
+    return RestClient.builder()
+        .requestFactory(this)
+        .baseUrl("http://griddb.stub/griddb/v2/")
+        .defaultHeader("Content-Type", MediaType.APPLICATION_JSON_VALUE)
+        .build();
+  }
+
+  @Override
+  public ClientHttpRequest createRequest(URI uri, HttpMethod httpMethod) {
+    return new MockClientHttpRequest(httpMethod, uri) {
+      @Override
+      protected ClientHttpResponse executeInternal() {
+        String path = httpMethod.name() + " " + uri.getPath();
+        String body = handler.apply(path, getBodyAsBytes());
+        MockClientHttpResponse response =
+            new MockClientHttpResponse(
+                body == null ? new byte[0] : body.getBytes(StandardCharsets.UTF_8), HttpStatus.OK);
+        response.getHeaders().setContentType(MediaType.APPLICATION_JSON);
+        return response;
+      }
+    };
+  }
+
+  /** Number of statements in a {@code /sql} request body. */
+  static int statementCount(byte[] body) {
+    String json = new String(body, StandardCharsets.UTF_8);
+    int count = 0;
+    for (int i = json.indexOf("\"stmt\""); i >= 0; i = json.indexOf("\"stmt\"", i + 1)) {
+      count++;
+    }
+    return Math.max(count, 1);
+  }
+
+  /** A {@code /sql} response holding the same result for each of {@code statements}. */
+  static String sqlResponse(int statements, List<List<String>> rows) {
+    StringBuilder json = new StringBuilder("[");
+    for (int i = 0; i < statements; i++) {
+      if (i > 0) {
+        json.append(',');
+      }
+      json.append("{\"columns\":[],\"results\":").append(rowsJson(rows));
+      json.append(",\"responseSizeByte\":64}");
+    }
+    return json.append(']').toString();
+  }
+
+  /** A {@code /containers/{name}/rows} response. */
+  static String containerResponse(List<List<String>> rows) {
+    return "{\"columns\":[],\"rows\":"
+        + rowsJson(rows)
+        + ",\"total\":"
+        + rows.size()
+        + ",\"offset\":0,\"limit\":"
+        + rows.size()
+        + "}";
+  }
+
+  private static String rowsJson(List<List<String>> rows) {
+    StringBuilder json = new StringBuilder("[");
+    for (int r = 0; r < rows.size(); r++) {
+      if (r > 0) {
+        json.append(',');
+      }
+      json.append('[');
+      List<String> row = rows.get(r);
+      for (int c = 0; c < row.size(); c++) {
+        if (c > 0) {
+          json.append(',');
+        }
+        json.append('"').append(row.get(c).replace("\"", "\\\"")).append('"');
+      }
+      json.append(']');
+    }
+    return json.append(']').toString();
+  }
+}
@@ -0,0 +1,94 @@
+package com.galapea.techblog.ott.benchmark;
+
+import com.galapea.techblog.ott.security.CustomUserDetailService;
+import com.galapea.techblog.ott.security.UserAuthorities;
+import com.galapea.techblog.ott.service.GridDbMetrics;
+import com.galapea.techblog.ott.service.GridDbResilience;
+import com.galapea.techblog.ott.service.UserExistenceIndex;
+import com.galapea.techblog.ott.service.UserRecordCache;
+import com.galapea.techblog.ott.service.UserRolesContainerClient;
+import com.galapea.techblog.ott.service.UsersContainerClient;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.core.env.StandardEnvironment;
+import org.springframework.security.core.userdetails.UserDetails;
+
+/**
+ * {@link CustomUserDetailService#loadUserByUsername} with GridDB replaced by {@link StubGridDb},
+ * with and without the user cache.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(8)
+public class UserDetailServiceBenchmark {
+
+  static final List<String> USER_ROW =
+      List.of(
+          "6f1c2a4e-8d2b-4f3a-9e71-0c5d8b2a4f10",
+          "user@example.com",
+          "Regular User",
+          "{bcrypt}$2a$10$GRLdNijSQMUvl/au9ofL.eDwmoohzzS7.rmNSJZ.0FxO/BTk76klW");
+
+  @Param({"true", "false"})
+  public boolean cacheEnabled;
+
+  private CustomUserDetailService userDetailService;
+
+  @Setup
+  public void setUp() {
+    UsersContainerClient usersContainerClient =
+        newUsersContainerClient(
+            new StubGridDb(
+                (request, body) ->
+                    StubGridDb.sqlResponse(StubGridDb.statementCount(body), List.of(USER_ROW))),
+            new UserRecordCache(cacheEnabled, 10_000, Duration.ofMinutes(5)));
+    // no user has roles beyond the default one
+    StubGridDb roles = new StubGridDb((request, body) -> StubGridDb.sqlResponse(1, List.of()));
+    UserAuthorities userAuthorities =
+        new UserAuthorities(
+            new UserRolesContainerClient(
+                roles.restClient(),
+                new GridDbMetrics(new SimpleMeterRegistry()),
+                GridDbResilience.disabled(new SimpleMeterRegistry())),
+            Duration.ofMinutes(1));
+    userAuthorities.refresh();
+    userDetailService = new CustomUserDetailService(usersContainerClient, userAuthorities);
+  }
+
+  static UsersContainerClient newUsersContainerClient(StubGridDb stub, UserRecordCache cache) {
+    return new UsersContainerClient(
+        stub.restClient(),
+        cache,
+        new UserExistenceIndex(false, 1, 0.01),
+        new GridDbMetrics(new SimpleMeterRegistry()),
+        GridDbResilience.disabled(new SimpleMeterRegistry()),
+        false,
+        Duration.ofMillis(2),
+        16,
+        8,
+        new StandardEnvironment());
+  }
+
+  @Benchmark
+  public UserDetails loadUserByUsername() {
+    return userDetailService.loadUserByUsername("user@example.com");
+  }
+}
@@ -0,0 +1,89 @@
+package com.galapea.techblog.ott.benchmark;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.galapea.techblog.ott.model.UserRecord;
+import com.galapea.techblog.ott.service.UserRecordCache;
+import com.galapea.techblog.ott.service.UsersContainerClient;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Mapping a {@code /containers/Users/rows} response to {@link UserRecord}s: the client's streaming
+ * decoder against full data binding into {@code List<List<String>>} followed by a copy.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx512m")
+public class UserRowMappingBenchmark {
+
+  record ContainerOutput(
+      @JsonProperty("rows") List<List<String>> rows, @JsonProperty("total") long total) {}
+
+  @Param({"100", "10000"})
+  public int rows;
+
+  private byte[] responseBody;
+  private UsersContainerClient usersContainerClient;
+  private final ObjectMapper objectMapper =
+      new ObjectMapper().disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+
+  @Setup
+  public void setUp() {
+    List<List<String>> userRows = new ArrayList<>(rows);
+    for (int i = 0; i < rows; i++) {
+      userRows.add(
+          List.of(
+              UUID.randomUUID().toString(),
+              "user" + i + "@example.com",
+              "User " + i,
+              "{bcrypt}$2a$10$GRLdNijSQMUvl/au9ofL.eDwmoohzzS7.rmNSJZ.0FxO/BTk76klW"));
+    }
+    String json = StubGridDb.containerResponse(userRows);
+    responseBody = json.getBytes(StandardCharsets.UTF_8);
+    usersContainerClient =
+        UserDetailServiceBenchmark.newUsersContainerClient(
+            new StubGridDb((request, body) -> json),
+            new UserRecordCache(false, 1, Duration.ofMinutes(1)));
+  }
+
+  @Benchmark
+  public List<UserRecord> databindAndCopy() throws Exception {
+    ContainerOutput output = objectMapper.readValue(responseBody, ContainerOutput.class);
+    List<UserRecord> users = new ArrayList<>();
+    for (List<String> row : output.rows()) {
+      users.add(new UserRecord(row.get(0), row.get(1), row.get(2), row.get(3)));
+    }
+    return users;
+  }
+
+  @Benchmark
+  public List<UserRecord> clientQueryUsers() {
+    return usersContainerClient.queryUsers(0, rows, null, null);
+  }
+
+  @Benchmark
+  public void clientForEachUser(Blackhole blackhole) {
+    usersContainerClient.forEachUser(0, rows, null, null, blackhole::consume);
+  }
+}
@@ -0,0 +1,442 @@
+package com.galapea.techblog.ott.loadtest;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.galapea.techblog.ott.loadtest.FakeSql.CreateIndex;
+import com.galapea.techblog.ott.loadtest.FakeSql.CreateTable;
+import com.galapea.techblog.ott.loadtest.FakeSql.Delete;
+import com.galapea.techblog.ott.loadtest.FakeSql.DropTable;
+import com.galapea.techblog.ott.loadtest.FakeSql.Insert;
+import com.galapea.techblog.ott.loadtest.FakeSql.Select;
+import com.galapea.techblog.ott.loadtest.FakeSql.Statement;
+import com.galapea.techblog.ott.loadtest.FakeSql.Update;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.IntStream;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Embeddable stand-in for the GridDB Cloud v2 Web API, backed by {@link FakeTable}s in memory.
+ *
+ * <p>Implements the endpoints the application uses: {@code POST /containers}, {@code
+ * POST|PUT|DELETE /containers/{name}/rows}, {@code POST /sql}, {@code POST /sql/update} and {@code
+ * POST /sql/ddl}. Every request can be delayed by a fixed latency plus random jitter and failed
+ * with a configurable probability, so client timeouts, retries and pool sizing can be exercised
+ * offline. Authentication is not checked.
+ *
+ * <p>Run standalone with {@code java ... FakeGridDbServer [port]} and point {@code griddb.base-url}
+ * at the printed URL.
+ */
+@Slf4j
+public final class FakeGridDbServer implements AutoCloseable {
+
+  private static final String BASE_PATH = "/griddb/v2";
+  private static final Pattern ROWS_PATH = Pattern.compile("/containers/([^/]+)/rows");
+
+  private final ObjectMapper objectMapper = new ObjectMapper();
+  private final Map<String, FakeTable> tables = new ConcurrentHashMap<>();
+  private final HttpServer server;
+  private final ExecutorService executor;
+  private final LongAdder requests = new LongAdder();
+  private final LongAdder injectedErrors = new LongAdder();
+
+  private volatile Duration latency = Duration.ZERO;
+  private volatile Duration latencyJitter = Duration.ZERO;
+  private volatile double errorRate;
+  private volatile int errorStatus = 503;
+
+  private FakeGridDbServer(int port, int threads) throws IOException {
+    AtomicInteger threadCount = new AtomicInteger();
+    this.executor =
+        Executors.newFixedThreadPool(
+            threads,
+            runnable -> {
+              Thread thread = new Thread(runnable, "fake-griddb-" + threadCount.incrementAndGet());
+              thread.setDaemon(true);
+              return thread;
+            });
+    this.server =
+        HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 1024);
+    server.createContext(BASE_PATH, this::handle);
+    server.setExecutor(executor);
+    server.start();
+  }
+
+  /**
+   * Starts a server on the loopback interface.
+   *
+   * @param port port to listen on, 0 for an ephemeral port
+   * @param threads number of request handler threads
+   */
+  public static FakeGridDbServer start(int port, int threads) throws IOException {
+    FakeGridDbServer fake = new FakeGridDbServer(port, threads);
+    log.info("Fake GridDB listening on {}", fake.baseUrl());
+    return fake;
+  }
+
+  public static void main(String[] args) throws Exception {
+    int port = args.length > 0 ? Integer.parseInt(args[0]) : 8089;
+    FakeGridDbServer fake = start(port, 64);
+    Runtime.getRuntime().addShutdownHook(new Thread(fake::close));
+    System.out.println("griddb.base-url=" + fake.baseUrl());
+    Thread.currentThread().join();
+  }
+
+  /** Value for {@code griddb.base-url}. */
+  public String baseUrl() {
+    return "http://127.0.0.1:" + server.getAddress().getPort() + BASE_PATH + "/";
+  }
+
+  /** Delays every response by {@code latency} plus a uniformly random share of {@code jitter}. */
+  public FakeGridDbServer latency(Duration latency, Duration jitter) {
+    this.latency = latency;
+    this.latencyJitter = jitter;
+    return this;
+  }
+
+  /** Fails the given fraction of requests with {@code status} before they touch any table. */
+  public FakeGridDbServer errors(double rate, int status) {
+    this.errorRate = rate;
+    this.errorStatus = status;
+    return this;
+  }
+
+  public long requests() {
+    return requests.sum();
+  }
+
+  public long injectedErrors() {
+    return injectedErrors.sum();
+  }
+
+  /** Number of rows in a container, or -1 when it does not exist. */
+  public int rowCount(String container) {
+    FakeTable table = tables.get(key(container));
+    return table == null ? -1 : table.size();
+  }
+
+  @Override
+  public void close() {
+    server.stop(0);
+    executor.shutdownNow();
+  }
+
+  private void handle(HttpExchange exchange) throws IOException {
+    requests.increment();
+    try {
+      delay();
+      if (errorRate > 0 && ThreadLocalRandom.current().nextDouble() < errorRate) {
+        injectedErrors.increment();
+        exchange.getRequestBody().readAllBytes();
+        respond(exchange, errorStatus, error(errorStatus, "Injected failure"));
+        return;
+      }
+      Object response;
+      int status = 200;
+      try {
+        response = route(exchange);
+        if (response instanceof Created) {
+          status = 201;
+          response = null;
+        }
+      } catch (NotFound e) {
+        status = 404;
+        response = error(status, e.getMessage());
+      } catch (Conflict e) {
+        status = 409;
+        response = error(status, e.getMessage());
+      } catch (IllegalArgumentException | IllegalStateException e) {
+        status = 400;
+        response = error(status, e.getMessage());
+      }
+      respond(exchange, status, response);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } catch (RuntimeException e) {
+      log.error("Fake GridDB request failed", e);
+      throw e;
+    } finally {
+      exchange.close();
+    }
+  }
+
+  private Object route(HttpExchange exchange) throws IOException {
+    String method = exchange.getRequestMethod();
+    String path = exchange.getRequestURI().getPath().substring(BASE_PATH.length());
+    if (path.endsWith("/") && path.length() > 1) {
+      path = path.substring(0, path.length() - 1);
+    }
+    JsonNode body = readBody(exchange.getRequestBody());
+    if (path.equals("/containers") && method.equals("POST")) {
+      return createContainer(body);
+    }
+    Matcher rows = ROWS_PATH.matcher(path);
+    if (rows.matches()) {
+      FakeTable table = table(rows.group(1));
+      return switch (method) {
+        case "POST" -> queryRows(table, body);
+        case "PUT" -> Map.of("count", table.put(values(body)));
+        case "DELETE" -> {
+          table.deleteKeys(objectMapper.convertValue(body, List.class));
+          yield null;
+        }
+        default -> throw new NotFound("Unsupported method " + method);
+      };
+    }
+    if (method.equals("POST")) {
+      switch (path) {
+        case "/sql" -> {
+          List<Object> results = new ArrayList<>();
+          for (JsonNode statement : body) {
+            results.add(select(FakeSql.parse(statement.path("stmt").asText())));
+          }
+          return results;
+        }
+        case "/sql/update" -> {
+          List<Object> results = new ArrayList<>();
+          for (JsonNode statement : body) {
+            results.add(
+                Map.of("updatedRows", update(FakeSql.parse(statement.path("stmt").asText()))));
+          }
+          return results;
+        }
+        case "/sql/ddl" -> {
+          for (JsonNode statement : body) {
+            ddl(FakeSql.parse(statement.path("stmt").asText()));
+          }
+          return null;
+        }
+        default -> {}
+      }
+    }
+    throw new NotFound("No endpoint " + method + " " + path);
+  }
+
+  private Object createContainer(JsonNode definition) {
+    String name = definition.path("container_name").asText();
+    boolean rowKey = definition.path("rowkey").asBoolean(false);
+    List<FakeTable.Column> columns = new ArrayList<>();
+    List<String> indexed = new ArrayList<>();
+    for (JsonNode column : definition.path("columns")) {
+      String columnName = column.path("name").asText();
+      columns.add(new FakeTable.Column(columnName, column.path("type").asText("STRING")));
+      if (column.path("index").size() > 0) {
+        indexed.add(columnName);
+      }
+    }
+    if (tables.putIfAbsent(key(name), new FakeTable(name, columns, rowKey, indexed)) != null) {
+      throw new Conflict("Container already exists: " + name);
+    }
+    return Created.INSTANCE;
+  }
+
+  private Object queryRows(FakeTable table, JsonNode request) {
+    int offset = request.path("offset").asInt(0);
+    int limit = request.path("limit").asInt(10000);
+    String sort = request.path("sort").asText("");
+    String orderBy = null;
+    boolean descending = false;
+    if (!sort.isBlank()) {
+      String[] parts = sort.trim().split("\\s+");
+      orderBy = parts[0];
+      descending = parts.length > 1 && parts[1].equalsIgnoreCase("desc");
+    }
+    List<FakeSql.Predicate> where = FakeSql.parseCondition(request.path("condition").asText(""));
+    List<Object[]> rows = table.select(where, orderBy, descending, offset, limit);
+    Map<String, Object> response = new LinkedHashMap<>();
+    response.put("columns", columnInfo(table.columns()));
+    response.put("rows", rows);
+    response.put("offset", offset);
+    response.put("limit", limit);
+    response.put("total", table.count(where));
+    return response;
+  }
+
+  private Object select(Statement statement) {
+    if (!(statement instanceof Select select)) {
+      throw new IllegalArgumentException("Only SELECT is allowed on /sql");
+    }
+    FakeTable table = table(select.table());
+    Map<String, Object> response = new LinkedHashMap<>();
+    List<Object[]> results;
+    if (select.count()) {
+      response.put("columns", List.of(Map.of("name", "", "type", "LONG")));
+      results = List.<Object[]>of(new Object[] {table.count(select.where())});
+    } else {
+      List<FakeTable.Column> columns = table.columns();
+      int[] positions;
+      if (select.columns().isEmpty()) {
+        positions = IntStream.range(0, columns.size()).toArray();
+      } else {
+        positions = select.columns().stream().mapToInt(table::columnIndex).toArray();
+      }
+      List<FakeTable.Column> selected = new ArrayList<>();
+      for (int position : positions) {
+        selected.add(columns.get(position));
+      }
+      response.put("columns", columnInfo(selected));
+      results = new ArrayList<>();
+      for (Object[] row :
+          table.select(
+              select.where(),
+              select.orderBy(),
+              select.descending(),
+              select.offset(),
+              select.limit())) {
+        Object[] projected = new Object[positions.length];
+        for (int i = 0; i < positions.length; i++) {
+          projected[i] = row[positions[i]];
+        }
+        results.add(projected);
+      }
+    }
+    response.put("results", results);
+    response.put("responseSizeByte", sizeOf(results));
+    return response;
+  }
+
+  private int sizeOf(Object value) {
+    try {
+      return objectMapper.writeValueAsBytes(value).length;
+    } catch (JsonProcessingException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  private int update(Statement statement) {
+    if (statement instanceof Insert insert) {
+      try {
+        return table(insert.table()).insert(insert.columns(), insert.rows());
+      } catch (IllegalStateException e) {
+        throw new IllegalArgumentException(e.getMessage(), e);
+      }
+    }
+    if (statement instanceof Update update) {
+      return table(update.table()).update(update.assignments(), update.where());
+    }
+    if (statement instanceof Delete delete) {
+      return table(delete.table()).delete(delete.where());
+    }
+    throw new IllegalArgumentException("Only INSERT, UPDATE and DELETE are allowed on /sql/update");
+  }
+
+  private void ddl(Statement statement) {
+    if (statement instanceof CreateTable create) {
+      List<FakeTable.Column> columns = new ArrayList<>();
+      for (int i = 0; i < create.columns().size(); i++) {
+        columns.add(new FakeTable.Column(create.columns().get(i), create.types().get(i)));
+      }
+      boolean rowKey = create.primaryKey() != null;
+      if (rowKey && !create.columns().get(0).equalsIgnoreCase(create.primaryKey())) {
+        throw new IllegalArgumentException("The primary key must be the first column");
+      }
+      tables.putIfAbsent(
+          key(create.table()), new FakeTable(create.table(), columns, rowKey, Set.of()));
+    } else if (statement instanceof CreateIndex index) {
+      table(index.table()).createIndex(index.column());
+    } else if (statement instanceof DropTable drop) {
+      tables.remove(key(drop.table()));
+    } else {
+      throw new IllegalArgumentException("Only DDL statements are allowed on /sql/ddl");
+    }
+  }
+
+  private FakeTable table(String name) {
+    FakeTable table = tables.get(key(name));
+    if (table == null) {
+      throw new NotFound("Container not found: " + name);
+    }
+    return table;
+  }
+
+  private static String key(String name) {
+    return name.toLowerCase(Locale.ROOT);
+  }
+
+  private List<List<Object>> values(JsonNode body) {
+    List<List<Object>> rows = new ArrayList<>();
+    for (JsonNode row : body) {
+      List<Object> values = new ArrayList<>();
+      for (JsonNode value : row) {
+        values.add(value.isNull() ? null : value.isNumber() ? value.numberValue() : value.asText());
+      }
+      rows.add(values);
+    }
+    return rows;
+  }
+
+  private static List<Map<String, String>> columnInfo(List<FakeTable.Column> columns) {
+    return columns.stream().map(c -> Map.of("name", c.name(), "type", c.type())).toList();
+  }
+
+  private static Map<String, Object> error(int status, String message) {
+    return Map.of("version", "v2", "errorCode", status, "errorMessage", String.valueOf(message));
+  }
+
+  private JsonNode readBody(InputStream body) throws IOException {
+    byte[] bytes = body.readAllBytes();
+    return bytes.length == 0 ? objectMapper.nullNode() : objectMapper.readTree(bytes);
+  }
+
+  private void respond(HttpExchange exchange, int status, Object body) throws IOException {
+    if (body == null) {
+      exchange.sendResponseHeaders(status, -1);
+      return;
+    }
+    byte[] bytes = objectMapper.writeValueAsBytes(body);
+    exchange.getResponseHeaders().set("Content-Type", "application/json");
+    exchange.sendResponseHeaders(status, bytes.length);
+    try (OutputStream out = exchange.getResponseBody()) {
+      out.write(bytes);
+    }
+  }
+
+  private void delay() throws InterruptedException {
+    long nanos = latency.toNanos();
+    long jitter = latencyJitter.toNanos();
+    if (jitter > 0) {
+      nanos += ThreadLocalRandom.current().nextLong(jitter);
+    }
+    if (nanos > 0) {
+      TimeUnit.NANOSECONDS.sleep(nanos);
+    }
+  }
+
+  private enum Created {
+    INSTANCE
+  }
+
+  private static final class NotFound extends RuntimeException {
+    NotFound(String message) {
+      super(message);
+    }
+  }
+
+  private static final class Conflict extends RuntimeException {
+    Conflict(String message) {
+      super(message);
+    }
+  }
+}
@@ -0,0 +1,405 @@
+package com.galapea.techblog.ott.loadtest;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Parser for the subset of GridDB SQL and TQL used by the application: point and range selects,
+ * {@code COUNT(*)}, multi-row inserts, updates, deletes, {@code CREATE TABLE} and {@code CREATE
+ * INDEX}. Conditions are conjunctions of comparisons and {@code IN} lists.
+ */
+final class FakeSql {
+
+  enum Op {
+    EQ,
+    NE,
+    LT,
+    LE,
+    GT,
+    GE,
+    IN
+  }
+
+  record Predicate(String column, Op op, List<Object> values) {
+    Object value() {
+      return values.get(0);
+    }
+  }
+
+  sealed interface Statement
+      permits Select, Insert, Update, Delete, CreateTable, CreateIndex, DropTable {}
+
+  record Select(
+      String table,
+      List<String> columns,
+      boolean count,
+      List<Predicate> where,
+      String orderBy,
+      boolean descending,
+      int limit,
+      int offset)
+      implements Statement {}
+
+  record Insert(String table, List<String> columns, List<List<Object>> rows) implements Statement {}
+
+  record Update(String table, Map<String, Object> assignments, List<Predicate> where)
+      implements Statement {}
+
+  record Delete(String table, List<Predicate> where) implements Statement {}
+
+  record CreateTable(String table, List<String> columns, List<String> types, String primaryKey)
+      implements Statement {}
+
+  record CreateIndex(String table, String column) implements Statement {}
+
+  record DropTable(String table) implements Statement {}
+
+  private enum Kind {
+    WORD,
+    QUOTED_IDENT,
+    STRING,
+    NUMBER,
+    SYMBOL,
+    END
+  }
+
+  private record Token(Kind kind, String text) {
+    boolean is(String word) {
+      return (kind == Kind.WORD || kind == Kind.SYMBOL) && text.equalsIgnoreCase(word);
+    }
+  }
+
+  private final List<Token> tokens;
+  private int pos;
+
+  private FakeSql(String sql) {
+    this.tokens = tokenize(sql);
+  }
+
+  static Statement parse(String sql) {
+    return new FakeSql(sql).statement();
+  }
+
+  /** Parses a TQL condition such as {@code email == 'a@b.c'}; blank means no condition. */
+  static List<Predicate> parseCondition(String condition) {
+    if (condition == null || condition.isBlank()) {
+      return List.of();
+    }
+    FakeSql parser = new FakeSql(condition);
+    List<Predicate> where = parser.conjunction();
+    parser.expectEnd();
+    return where;
+  }
+
+  private Statement statement() {
+    Statement statement;
+    if (accept("SELECT")) {
+      statement = select();
+    } else if (accept("INSERT")) {
+      statement = insert();
+    } else if (accept("UPDATE")) {
+      statement = update();
+    } else if (accept("DELETE")) {
+      expect("FROM");
+      String table = identifier();
+      statement = new Delete(table, accept("WHERE") ? conjunction() : List.of());
+    } else if (accept("CREATE")) {
+      statement = create();
+    } else if (accept("DROP")) {
+      expect("TABLE");
+      if (accept("IF")) {
+        expect("EXISTS");
+      }
+      statement = new DropTable(identifier());
+    } else {
+      throw error("unsupported statement");
+    }
+    accept(";");
+    expectEnd();
+    return statement;
+  }
+
+  private Select select() {
+    List<String> columns = new ArrayList<>();
+    boolean count = false;
+    if (accept("COUNT")) {
+      expect("(");
+      expect("*");
+      expect(")");
+      count = true;
+    } else if (accept("*")) {
+      // all columns
+    } else {
+      do {
+        columns.add(identifier());
+      } while (accept(","));
+    }
+    expect("FROM");
+    String table = identifier();
+    List<Predicate> where = accept("WHERE") ? conjunction() : List.of();
+    String orderBy = null;
+    boolean descending = false;
+    if (accept("ORDER")) {
+      expect("BY");
+      orderBy = identifier();
+      if (accept("DESC")) {
+        descending = true;
+      } else {
+        accept("ASC");
+      }
+    }
+    int limit = Integer.MAX_VALUE;
+    int offset = 0;
+    if (accept("LIMIT")) {
+      limit = ((Number) literal()).intValue();
+    }
+    if (accept("OFFSET")) {
+      offset = ((Number) literal()).intValue();
+    }
+    return new Select(table, columns, count, where, orderBy, descending, limit, offset);
+  }
+
+  private Insert insert() {
+    expect("INTO");
+    String table = identifier();
+    List<String> columns = new ArrayList<>();
+    expect("(");
+    do {
+      columns.add(identifier());
+    } while (accept(","));
+    expect(")");
+    expect("VALUES");
+    List<List<Object>> rows = new ArrayList<>();
+    do {
+      expect("(");
+      List<Object> row = new ArrayList<>();
+      do {
+        row.add(literal());
+      } while (accept(","));
+      expect(")");
+      rows.add(row);
+    } while (accept(","));
+    return new Insert(table, columns, rows);
+  }
+
+  private Update update() {
+    String table = identifier();
+    expect("SET");
+    Map<String, Object> assignments = new LinkedHashMap<>();
+    do {
+      String column = identifier();
+      expect("=");
+      assignments.put(column, literal());
+    } while (accept(","));
+    return new Update(table, assignments, accept("WHERE") ? conjunction() : List.of());
+  }
+
+  private Statement create() {
+    if (accept("TABLE")) {
+      if (accept("IF")) {
+        expect("NOT");
+        expect("EXISTS");
+      }
+      String table = identifier();
+      List<String> columns = new ArrayList<>();
+      List<String> types = new ArrayList<>();
+      String primaryKey = null;
+      expect("(");
+      do {
+        if (accept("PRIMARY")) {
+          expect("KEY");
+          expect("(");
+          primaryKey = identifier();
+          expect(")");
+          continue;
+        }
+        String column = identifier();
+        columns.add(column);
+        types.add(next().text().toUpperCase(Locale.ROOT));
+        if (accept("PRIMARY")) {
+          expect("KEY");
+          primaryKey = column;
+        }
+        while (accept("NOT") || accept("NULL")) {
+          // constraints are not enforced
+        }
+      } while (accept(","));
+      expect(")");
+      return new CreateTable(table, columns, types, primaryKey);
+    }
+    accept("UNIQUE");
+    expect("INDEX");
+    if (accept("IF")) {
+      expect("NOT");
+      expect("EXISTS");
+    }
+    identifier();
+    expect("ON");
+    String table = identifier();
+    expect("(");
+    String column = identifier();
+    expect(")");
+    return new CreateIndex(table, column);
+  }
+
+  private List<Predicate> conjunction() {
+    List<Predicate> predicates = new ArrayList<>();
+    do {
+      predicates.add(predicate());
+    } while (accept("AND"));
+    return predicates;
+  }
+
+  private Predicate predicate() {
+    if (accept("(")) {
+      Predicate inner = predicate();
+      expect(")");
+      return inner;
+    }
+    String column = identifier();
+    if (accept("IN")) {
+      expect("(");
+      List<Object> values = new ArrayList<>();
+      do {
+        values.add(literal());
+      } while (accept(","));
+      expect(")");
+      return new Predicate(column, Op.IN, values);
+    }
+    Token symbol = next();
+    Op op =
+        switch (symbol.text()) {
+          case "=", "==" -> Op.EQ;
+          case "!=", "<>" -> Op.NE;
+          case "<" -> Op.LT;
+          case "<=" -> Op.LE;
+          case ">" -> Op.GT;
+          case ">=" -> Op.GE;
+          default -> throw error("unexpected operator " + symbol.text());
+        };
+    return new Predicate(column, op, Collections.singletonList(literal()));
+  }
+
+  private Object literal() {
+    Token token = next();
+    return switch (token.kind()) {
+      case STRING -> token.text();
+      case NUMBER -> Long.parseLong(token.text());
+      case WORD -> {
+        if (token.text().equalsIgnoreCase("NULL")) {
+          yield null;
+        }
+        if (token.text().equalsIgnoreCase("TRUE") || token.text().equalsIgnoreCase("FALSE")) {
+          yield Boolean.parseBoolean(token.text());
+        }
+        throw error("unexpected literal " + token.text());
+      }
+      default -> throw error("unexpected literal " + token.text());
+    };
+  }
+
+  private String identifier() {
+    Token token = next();
+    if (token.kind() != Kind.WORD && token.kind() != Kind.QUOTED_IDENT) {
+      throw error("expected identifier but got " + token.text());
+    }
+    return token.text();
+  }
+
+  private boolean accept(String word) {
+    if (tokens.get(pos).is(word)) {
+      pos++;
+      return true;
+    }
+    return false;
+  }
+
+  private void expect(String word) {
+    if (!accept(word)) {
+      throw error("expected " + word + " but got " + tokens.get(pos).text());
+    }
+  }
+
+  private void expectEnd() {
+    if (tokens.get(pos).kind() != Kind.END) {
+      throw error("unexpected " + tokens.get(pos).text());
+    }
+  }
+
+  private Token next() {
+    Token token = tokens.get(pos);
+    if (token.kind() == Kind.END) {
+      throw error("unexpected end of statement");
+    }
+    pos++;
+    return token;
+  }
+
+  private IllegalArgumentException error(String message) {
+    return new IllegalArgumentException("SQL syntax error: " + message);
+  }
+
+  private static List<Token> tokenize(String sql) {
+    List<Token> tokens = new ArrayList<>();
+    int i = 0;
+    int length = sql.length();
+    while (i < length) {
+      char c = sql.charAt(i);
+      if (Character.isWhitespace(c)) {
+        i++;
+      } else if (c == '\'' || c == '"') {
+        StringBuilder text = new StringBuilder();
+        i++;
+        while (true) {
+          if (i >= length) {
+            throw new IllegalArgumentException("SQL syntax error: unterminated quote");
+          }
+          char q = sql.charAt(i++);
+          if (q == c) {
+            if (i < length && sql.charAt(i) == c) {
+              text.append(c);
+              i++;
+            } else {
+              break;
+            }
+          } else {
+            text.append(q);
+          }
+        }
+        tokens.add(new Token(c == '\'' ? Kind.STRING : Kind.QUOTED_IDENT, text.toString()));
+      } else if (Character.isDigit(c)
+          || (c == '-' && i + 1 < length && Character.isDigit(sql.charAt(i + 1)))) {
+        int start = i++;
+        while (i < length && Character.isDigit(sql.charAt(i))) {
+          i++;
+        }
+        tokens.add(new Token(Kind.NUMBER, sql.substring(start, i)));
+      } else if (Character.isLetter(c) || c == '_') {
+        int start = i;
+        while (i < length && (Character.isLetterOrDigit(sql.charAt(i)) || sql.charAt(i) == '_')) {
+          i++;
+        }
+        tokens.add(new Token(Kind.WORD, sql.substring(start, i)));
+      } else {
+        String two = i + 1 < length ? sql.substring(i, i + 2) : "";
+        if (two.equals("==")
+            || two.equals("!=")
+            || two.equals("<>")
+            || two.equals("<=")
+            || two.equals(">=")) {
+          tokens.add(new Token(Kind.SYMBOL, two));
+          i += 2;
+        } else {
+          tokens.add(new Token(Kind.SYMBOL, String.valueOf(c)));
+          i++;
+        }
+      }
+    }
+    tokens.add(new Token(Kind.END, "<end>"));
+    return tokens;
+  }
+}
@@ -0,0 +1,412 @@
+package com.galapea.techblog.ott.loadtest;
+
+import com.galapea.techblog.ott.loadtest.FakeSql.Op;
+import com.galapea.techblog.ott.loadtest.FakeSql.Predicate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+
+/**
+ * In-memory GridDB container. Rows are kept ordered by row key, so key lookups and key range scans
+ * behave like the TREE index on a real row key. Columns declared with an index get a hash index
+ * from value to row keys. Containers without a row key use a generated sequence as key.
+ */
+final class FakeTable {
+
+  record Column(String name, String type) {}
+
+  private final String name;
+  private final List<Column> columns;
+  private final boolean rowKey;
+  private final NavigableMap<Object, Object[]> rows =
+      new ConcurrentSkipListMap<>(FakeTable::compareValues);
+  private final Map<Integer, Map<Object, Set<Object>>> indexes = new ConcurrentHashMap<>();
+  private final AtomicLong sequence = new AtomicLong();
+  private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+  FakeTable(String name, List<Column> columns, boolean rowKey, Collection<String> indexed) {
+    this.name = name;
+    this.columns = List.copyOf(columns);
+    this.rowKey = rowKey;
+    indexed.forEach(this::createIndex);
+  }
+
+  String name() {
+    return name;
+  }
+
+  List<Column> columns() {
+    return columns;
+  }
+
+  int size() {
+    return rows.size();
+  }
+
+  void createIndex(String column) {
+    int position = columnIndex(column);
+    if (position == 0 && rowKey) {
+      // the row key is already ordered
+      return;
+    }
+    lock.writeLock().lock();
+    try {
+      indexes.computeIfAbsent(
+          position,
+          p -> {
+            Map<Object, Set<Object>> index = new ConcurrentHashMap<>();
+            rows.forEach((key, row) -> addToIndex(index, row[p], key));
+            return index;
+          });
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  int columnIndex(String column) {
+    for (int i = 0; i < columns.size(); i++) {
+      if (columns.get(i).name().equalsIgnoreCase(column)) {
+        return i;
+      }
+    }
+    throw new IllegalArgumentException("Column not found: " + name + "." + column);
+  }
+
+  /** Inserts or replaces rows by row key; values are given in column order. */
+  int put(List<? extends List<?>> values) {
+    lock.writeLock().lock();
+    try {
+      for (List<?> value : values) {
+        Object[] row = toRow(value);
+        Object key = rowKey ? row[0] : sequence.incrementAndGet();
+        Objects.requireNonNull(key, "Row key must not be null");
+        Object[] previous = rows.put(key, row);
+        if (previous != null) {
+          unindex(key, previous);
+        }
+        index(key, row);
+      }
+      return values.size();
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /** Inserts rows; fails on the first duplicate row key without applying any row. */
+  int insert(List<String> names, List<List<Object>> values) {
+    int[] positions = names.stream().mapToInt(this::columnIndex).toArray();
+    List<Object[]> newRows = new ArrayList<>(values.size());
+    for (List<Object> value : values) {
+      Object[] row = new Object[columns.size()];
+      for (int i = 0; i < positions.length; i++) {
+        row[positions[i]] = convert(value.get(i), columns.get(positions[i]).type());
+      }
+      newRows.add(row);
+    }
+    lock.writeLock().lock();
+    try {
+      if (rowKey) {
+        for (Object[] row : newRows) {
+          if (rows.containsKey(row[0])) {
+            throw new IllegalStateException("Row key already exists: " + row[0]);
+          }
+        }
+      }
+      for (Object[] row : newRows) {
+        Object key = rowKey ? row[0] : sequence.incrementAndGet();
+        rows.put(key, row);
+        index(key, row);
+      }
+      return newRows.size();
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  int update(Map<String, Object> assignments, List<Predicate> where) {
+    lock.writeLock().lock();
+    try {
+      List<Object> keys = matchingKeys(where);
+      for (Object key : keys) {
+        Object[] previous = rows.get(key);
+        Object[] row = previous.clone();
+        assignments.forEach(
+            (column, value) -> {
+              int position = columnIndex(column);
+              if (position == 0 && rowKey) {
+                throw new IllegalArgumentException("Row key cannot be updated");
+              }
+              row[position] = convert(value, columns.get(position).type());
+            });
+        unindex(key, previous);
+        rows.put(key, row);
+        index(key, row);
+      }
+      return keys.size();
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  int delete(List<Predicate> where) {
+    lock.writeLock().lock();
+    try {
+      List<Object> keys = matchingKeys(where);
+      keys.forEach(this::removeKey);
+      return keys.size();
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /** Deletes rows by row key, as {@code DELETE /containers/{name}/rows} does. */
+  int deleteKeys(List<?> keys) {
+    lock.writeLock().lock();
+    try {
+      int deleted = 0;
+      for (Object key : keys) {
+        if (removeKey(convert(key, columns.get(0).type()))) {
+          deleted++;
+        }
+      }
+      return deleted;
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  long count(List<Predicate> where) {
+    lock.readLock().lock();
+    try {
+      return where.isEmpty() ? rows.size() : matchingKeys(where).size();
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * Rows matching every predicate, ordered by {@code orderBy} (row key order when null), after
+   * skipping {@code offset} and capped at {@code limit}.
+   */
+  List<Object[]> select(
+      List<Predicate> where, String orderBy, boolean descending, int offset, int limit) {
+    lock.readLock().lock();
+    try {
+      boolean keyOrder = orderBy == null || (rowKey && columnIndex(orderBy) == 0);
+      List<Object[]> result = new ArrayList<>();
+      if (keyOrder && !descending) {
+        // stream the ordered candidates and stop as soon as the page is full
+        int skipped = 0;
+        for (Map.Entry<Object, Object[]> entry : candidates(where)) {
+          Object[] row = entry.getValue();
+          if (!matches(row, where)) {
+            continue;
+          }
+          if (skipped++ < offset) {
+            continue;
+          }
+          if (result.size() >= limit) {
+            break;
+          }
+          result.add(row);
+        }
+        return result;
+      }
+      for (Map.Entry<Object, Object[]> entry : candidates(where)) {
+        if (matches(entry.getValue(), where)) {
+          result.add(entry.getValue());
+        }
+      }
+      if (!keyOrder) {
+        int position = columnIndex(orderBy);
+        result.sort((a, b) -> compareValues(a[position], b[position]));
+      }
+      if (descending) {
+        Collections.reverse(result);
+      }
+      int from = Math.min(offset, result.size());
+      int to = (int) Math.min((long) from + limit, result.size());
+      return new ArrayList<>(result.subList(from, to));
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  private List<Object> matchingKeys(List<Predicate> where) {
+    List<Object> keys = new ArrayList<>();
+    for (Map.Entry<Object, Object[]> entry : candidates(where)) {
+      if (matches(entry.getValue(), where)) {
+        keys.add(entry.getKey());
+      }
+    }
+    return keys;
+  }
+
+  /** Narrows the scan with the row key or a column index when a predicate allows it. */
+  private Collection<Map.Entry<Object, Object[]>> candidates(List<Predicate> where) {
+    for (Predicate predicate : where) {
+      int position = columnIndex(predicate.column());
+      String type = columns.get(position).type();
+      if (position == 0 && rowKey && predicate.op() != Op.NE) {
+        if (predicate.op() == Op.EQ || predicate.op() == Op.IN) {
+          return lookup(predicate.values().stream().map(value -> convert(value, type)));
+        }
+        Object bound = convert(predicate.value(), type);
+        if (bound == null) {
+          return List.of();
+        }
+        return switch (predicate.op()) {
+          case GT -> rows.tailMap(bound, false).entrySet();
+          case GE -> rows.tailMap(bound, true).entrySet();
+          case LT -> rows.headMap(bound, false).entrySet();
+          default -> rows.headMap(bound, true).entrySet();
+        };
+      }
+      Map<Object, Set<Object>> index = indexes.get(position);
+      if (index != null && (predicate.op() == Op.EQ || predicate.op() == Op.IN)) {
+        return lookup(
+            predicate.values().stream()
+                .map(value -> convert(value, type))
+                .filter(Objects::nonNull)
+                .flatMap(value -> index.getOrDefault(value, Set.of()).stream()));
+      }
+    }
+    return rows.entrySet();
+  }
+
+  private List<Map.Entry<Object, Object[]>> lookup(Stream<Object> keys) {
+    List<Map.Entry<Object, Object[]>> found = new ArrayList<>();
+    keys.filter(Objects::nonNull)
+        .distinct()
+        .sorted(FakeTable::compareValues)
+        .forEach(
+            key -> {
+              Object[] row = rows.get(key);
+              if (row != null) {
+                found.add(Map.entry(key, row));
+              }
+            });
+    return found;
+  }
+
+  private boolean matches(Object[] row, List<Predicate> where) {
+    for (Predicate predicate : where) {
+      int position = columnIndex(predicate.column());
+      String type = columns.get(position).type();
+      Object actual = row[position];
+      boolean match =
+          switch (predicate.op()) {
+            case IN ->
+                predicate.values().stream()
+                    .anyMatch(value -> Objects.equals(actual, convert(value, type)));
+            case EQ -> Objects.equals(actual, convert(predicate.value(), type));
+            case NE -> !Objects.equals(actual, convert(predicate.value(), type));
+            default -> {
+              Object expected = convert(predicate.value(), type);
+              if (actual == null || expected == null) {
+                yield false;
+              }
+              int comparison = compareValues(actual, expected);
+              yield switch (predicate.op()) {
+                case LT -> comparison < 0;
+                case LE -> comparison <= 0;
+                case GT -> comparison > 0;
+                default -> comparison >= 0;
+              };
+            }
+          };
+      if (!match) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private boolean removeKey(Object key) {
+    Object[] removed = rows.remove(key);
+    if (removed == null) {
+      return false;
+    }
+    unindex(key, removed);
+    return true;
+  }
+
+  private void index(Object key, Object[] row) {
+    indexes.forEach((position, index) -> addToIndex(index, row[position], key));
+  }
+
+  private void unindex(Object key, Object[] row) {
+    indexes.forEach(
+        (position, index) -> {
+          Object value = row[position];
+          if (value != null) {
+            index.computeIfPresent(
+                value,
+                (v, keys) -> {
+                  keys.remove(key);
+                  return keys.isEmpty() ? null : keys;
+                });
+          }
+        });
+  }
+
+  private static void addToIndex(Map<Object, Set<Object>> index, Object value, Object key) {
+    if (value != null) {
+      index.computeIfAbsent(value, v -> ConcurrentHashMap.newKeySet()).add(key);
+    }
+  }
+
+  private Object[] toRow(List<?> value) {
+    if (value.size() != columns.size()) {
+      throw new IllegalArgumentException(
+          "Expected " + columns.size() + " columns but got " + value.size());
+    }
+    Object[] row = new Object[columns.size()];
+    for (int i = 0; i < row.length; i++) {
+      row[i] = convert(value.get(i), columns.get(i).type());
+    }
+    return row;
+  }
+
+  static Object convert(Object value, String type) {
+    if (value == null) {
+      return null;
+    }
+    return switch (type.toUpperCase(Locale.ROOT)) {
+      case "LONG", "INTEGER", "SHORT", "BYTE" ->
+          value instanceof Number number ? number.longValue() : Long.parseLong(value.toString());
+      case "BOOL" -> value instanceof Boolean bool ? bool : Boolean.parseBoolean(value.toString());
+      case "DOUBLE", "FLOAT" ->
+          value instanceof Number number
+              ? number.doubleValue()
+              : Double.parseDouble(value.toString());
+      default -> value.toString();
+    };
+  }
+
+  @SuppressWarnings({"unchecked", "rawtypes"})
+  private static int compareValues(Object a, Object b) {
+    if (a == null || b == null) {
+      return a == b ? 0 : (a == null ? -1 : 1);
+    }
+    if (a instanceof Number x && b instanceof Number y) {
+      return Double.compare(x.doubleValue(), y.doubleValue());
+    }
+    if (a.getClass() != b.getClass()) {
+      return a.toString().compareTo(b.toString());
+    }
+    return ((Comparable) a).compareTo(b);
+  }
+}
@@ -0,0 +1,438 @@
+package com.galapea.techblog.ott.loadtest;
+
+import com.galapea.techblog.ott.SpringsecurityOttApplication;
+import java.io.IOException;
+import java.net.CookieManager;
+import java.net.CookiePolicy;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+/**
+ * Closed-loop load test of the login, one-time-token and user CRUD flows against the application
+ * backed by {@link FakeGridDbServer}.
+ *
+ * <p>Each virtual user drives a real HTTP session (cookies, CSRF tokens, redirects) in a loop for
+ * the configured duration. Samples taken during the warm-up are discarded. At the end the harness
+ * prints, per operation, the number of calls, errors, throughput and latency percentiles.
+ *
+ * <p>Arguments are {@code key=value} pairs:
+ *
+ * <ul>
+ *   <li>{@code scenario} - {@code login}, {@code ott}, {@code crud} or {@code mixed} (default)
+ *   <li>{@code users} - concurrent virtual users (16)
+ *   <li>{@code duration}, {@code warmup} - measured and discarded run time (30s, 5s)
+ *   <li>{@code latency}, {@code jitter} - delay added by the fake GridDB per call (2ms, 3ms)
+ *   <li>{@code error-rate}, {@code error-status} - injected GridDB failures (0, 503)
+ *   <li>{@code target} - base URL of an already running application; when set, neither the fake nor
+ *       the application is started
+ * </ul>
+ *
+ * <p>Run with {@code mvnw -Ploadtest test-compile exec:exec -Dloadtest.args="users=32
+ * duration=60s"}.
+ */
+public final class LoadTestHarness {
+
+  private static final Pattern CSRF = Pattern.compile("name=\"_csrf\"\\s+value=\"([^\"]+)\"");
+  private static final Pattern TOKEN = Pattern.compile("[?&]token=([0-9a-fA-F-]{36})");
+  private static final String USER = "user@example.com";
+  private static final String ADMIN = "admin@example.com";
+
+  private final URI target;
+  private final String scenario;
+  private final Duration warmup;
+  private final Duration duration;
+
+  private LoadTestHarness(URI target, String scenario, Duration warmup, Duration duration) {
+    this.target = target;
+    this.scenario = scenario;
+    this.warmup = warmup;
+    this.duration = duration;
+  }
+
+  public static void main(String[] args) throws Exception {
+    Map<String, String> options = parse(args);
+    int users = Integer.parseInt(options.getOrDefault("users", "16"));
+    String scenario = options.getOrDefault("scenario", "mixed");
+    Duration warmup = duration(options.getOrDefault("warmup", "5s"));
+    Duration duration = duration(options.getOrDefault("duration", "30s"));
+
+    FakeGridDbServer fake = null;
+    ConfigurableApplicationContext application = null;
+    URI target;
+    try {
+      if (options.containsKey("target")) {
+        target = URI.create(options.get("target"));
+      } else {
+        fake =
+            FakeGridDbServer.start(0, 64)
+                .latency(
+                    duration(options.getOrDefault("latency", "2ms")),
+                    duration(options.getOrDefault("jitter", "3ms")))
+                .errors(
+                    Double.parseDouble(options.getOrDefault("error-rate", "0")),
+                    Integer.parseInt(options.getOrDefault("error-status", "503")));
+        application = startApplication(fake);
+        target =
+            URI.create(
+                "http://127.0.0.1:"
+                    + application.getEnvironment().getProperty("local.server.port"));
+      }
+      System.out.printf(
+          "Load test: scenario=%s users=%d warmup=%s duration=%s target=%s%n",
+          scenario, users, warmup, duration, target);
+      Map<String, Samples> results =
+          new LoadTestHarness(target, scenario, warmup, duration).run(users);
+      report(results, duration);
+      if (fake != null) {
+        System.out.printf(
+            "Fake GridDB: %d requests, %d injected errors%n",
+            fake.requests(), fake.injectedErrors());
+      }
+    } finally {
+      if (application != null) {
+        application.close();
+      }
+      if (fake != null) {
+        fake.close();
+      }
+    }
+  }
+
+  private static ConfigurableApplicationContext startApplication(FakeGridDbServer fake) {
+    System.setProperty("spring.devtools.restart.enabled", "false");
+    // command line arguments, so they win over application.properties
+    return new SpringApplicationBuilder(SpringsecurityOttApplication.class)
+        .run(
+            "--server.port=0",
+            "--griddb.base-url=" + fake.baseUrl(),
+            "--griddb.auth-token=loadtest",
+            // every virtual user requests tokens from the same address
+            "--ott.rate-limit.enabled=false",
+            "--spring.main.banner-mode=off",
+            "--logging.level.root=WARN",
+            "--logging.level.org.springframework=WARN",
+            "--logging.level.org.springframework.web=WARN",
+            "--logging.level.org.springframework.security=WARN",
+            "--logging.level.com.galapea=WARN");
+  }
+
+  private Map<String, Samples> run(int users) throws Exception {
+    long start = System.nanoTime();
+    long measureFrom = start + warmup.toNanos();
+    long deadline = measureFrom + duration.toNanos();
+    ExecutorService executor = Executors.newFixedThreadPool(users);
+    try {
+      List<Future<Map<String, Samples>>> futures = new ArrayList<>();
+      for (int i = 0; i < users; i++) {
+        String flow = flowFor(i);
+        futures.add(executor.submit(() -> new VirtualUser(measureFrom).loop(flow, deadline)));
+      }
+      Map<String, Samples> merged = new TreeMap<>();
+      for (Future<Map<String, Samples>> future : futures) {
+        future.get().forEach((op, samples) -> merged.merge(op, samples, Samples::merge));
+      }
+      return merged;
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  private String flowFor(int user) {
+    if (!scenario.equals("mixed")) {
+      return scenario;
+    }
+    return switch (user % 3) {
+      case 0 -> "login";
+      case 1 -> "ott";
+      default -> "crud";
+    };
+  }
+
+  /**
+   * One browser; a new session is started by dropping its cookies. Every thread owns one, so
+   * samples are recorded without contention.
+   */
+  private final class VirtualUser {
+
+    private final long measureFrom;
+    private final Map<String, Samples> samples = new HashMap<>();
+    private final CookieManager cookies = new CookieManager(null, CookiePolicy.ACCEPT_ALL);
+    private final HttpClient client =
+        HttpClient.newBuilder()
+            .cookieHandler(cookies)
+            .followRedirects(HttpClient.Redirect.NORMAL)
+            .connectTimeout(Duration.ofSeconds(5))
+            .build();
+
+    VirtualUser(long measureFrom) {
+      this.measureFrom = measureFrom;
+    }
+
+    Map<String, Samples> loop(String flow, long deadline) {
+      boolean loggedIn = false;
+      while (System.nanoTime() < deadline && !Thread.currentThread().isInterrupted()) {
+        try {
+          switch (flow) {
+            case "login" -> {
+              newSession();
+              login(USER, "user123");
+            }
+            case "ott" -> {
+              newSession();
+              ottLogin(USER);
+            }
+            case "crud" -> {
+              if (!loggedIn) {
+                newSession();
+                login(ADMIN, "admin123");
+                loggedIn = true;
+              }
+              crud();
+            }
+            default -> throw new IllegalArgumentException("Unknown scenario " + flow);
+          }
+        } catch (StepFailed e) {
+          // already counted; start the next iteration with a fresh session
+          loggedIn = false;
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+      }
+      return samples;
+    }
+
+    private void login(String username, String password) throws InterruptedException {
+      String page = call("login-page", get("/authentication/login"), 200);
+      String csrf = csrf(page);
+      HttpResponse<String> response =
+          send("login", form("/login", "username", username, "password", password, "_csrf", csrf));
+      if (response.statusCode() != 200 || response.uri().getQuery() != null) {
+        throw fail("login");
+      }
+    }
+
+    private void ottLogin(String username) throws InterruptedException {
+      String page = call("login-page", get("/authentication/login"), 200);
+      String sent =
+          call(
+              "ott-generate",
+              form("/ott/generate", "username", username, "_csrf", csrf(page)),
+              200);
+      Matcher token = TOKEN.matcher(sent);
+      if (!token.find()) {
+        throw fail("ott-generate");
+      }
+      String submit = call("ott-submit-page", get("/ott/submit?token=" + token.group(1)), 200);
+      HttpResponse<String> response =
+          send("ott-login", form("/login/ott", "token", token.group(1), "_csrf", csrf(submit)));
+      if (response.statusCode() != 200 || !response.uri().getPath().equals("/")) {
+        throw fail("ott-login");
+      }
+    }
+
+    private void crud() throws InterruptedException {
+      String csrf = csrf(call("home", get("/"), 200));
+      String email = "lt-" + UUID.randomUUID() + "@example.com";
+      String created =
+          call(
+              "user-create",
+              json("POST", "/api/users", "{\"email\":\"" + email + "\",\"name\":\"Load\"}", csrf),
+              201);
+      String id = created.replace("\"", "");
+      call("user-get", get("/api/users/" + id), 200);
+      call(
+          "user-update",
+          json("PUT", "/api/users/" + id, "{\"email\":\"" + email + "\",\"name\":\"Test\"}", csrf),
+          200);
+      call("user-list", get("/api/users?limit=20"), 200);
+      call("user-delete", json("DELETE", "/api/users/" + id, null, csrf), 204);
+    }
+
+    private String call(String op, HttpRequest request, int expectedStatus)
+        throws InterruptedException {
+      HttpResponse<String> response = send(op, request);
+      if (response.statusCode() != expectedStatus) {
+        throw fail(op);
+      }
+      return response.body();
+    }
+
+    private HttpResponse<String> send(String op, HttpRequest request) throws InterruptedException {
+      long start = System.nanoTime();
+      HttpResponse<String> response;
+      try {
+        response = client.send(request, HttpResponse.BodyHandlers.ofString());
+      } catch (IOException e) {
+        throw fail(op);
+      }
+      long nanos = System.nanoTime() - start;
+      if (start >= measureFrom) {
+        samples.computeIfAbsent(op, k -> new Samples()).add(nanos);
+      }
+      return response;
+    }
+
+    private StepFailed fail(String op) {
+      if (System.nanoTime() >= measureFrom) {
+        samples.computeIfAbsent(op, k -> new Samples()).error();
+      }
+      return new StepFailed();
+    }
+
+    private void newSession() {
+      cookies.getCookieStore().removeAll();
+    }
+
+    private String csrf(String page) {
+      Matcher matcher = CSRF.matcher(page);
+      if (!matcher.find()) {
+        throw new StepFailed();
+      }
+      return matcher.group(1);
+    }
+
+    private HttpRequest get(String path) {
+      return HttpRequest.newBuilder(target.resolve(path)).timeout(Duration.ofSeconds(30)).build();
+    }
+
+    private HttpRequest form(String path, String... fields) {
+      StringBuilder body = new StringBuilder();
+      for (int i = 0; i < fields.length; i += 2) {
+        if (body.length() > 0) {
+          body.append('&');
+        }
+        body.append(fields[i])
+            .append('=')
+            .append(URLEncoder.encode(fields[i + 1], StandardCharsets.UTF_8));
+      }
+      return HttpRequest.newBuilder(target.resolve(path))
+          .timeout(Duration.ofSeconds(30))
+          .header("Content-Type", "application/x-www-form-urlencoded")
+          .POST(HttpRequest.BodyPublishers.ofString(body.toString()))
+          .build();
+    }
+
+    private HttpRequest json(String method, String path, String body, String csrf) {
+      return HttpRequest.newBuilder(target.resolve(path))
+          .timeout(Duration.ofSeconds(30))
+          .header("Content-Type", "application/json")
+          .header("Accept", "application/json")
+          .header("X-CSRF-TOKEN", csrf)
+          .method(
+              method,
+              body == null
+                  ? HttpRequest.BodyPublishers.noBody()
+                  : HttpRequest.BodyPublishers.ofString(body))
+          .build();
+    }
+  }
+
+  private static final class StepFailed extends RuntimeException {
+    StepFailed() {
+      super(null, null, false, false);
+    }
+  }
+
+  /** Latencies in nanoseconds of one operation, plus its error count. */
+  private static final class Samples {
+
+    private long[] values = new long[1024];
+    private int count;
+    private long errors;
+
+    void add(long nanos) {
+      if (count == values.length) {
+        values = Arrays.copyOf(values, count * 2);
+      }
+      values[count++] = nanos;
+    }
+
+    void error() {
+      errors++;
+    }
+
+    Samples merge(Samples other) {
+      for (int i = 0; i < other.count; i++) {
+        add(other.values[i]);
+      }
+      errors += other.errors;
+      return this;
+    }
+  }
+
+  private static void report(Map<String, Samples> results, Duration duration) {
+    double seconds = duration.toNanos() / 1e9;
+    System.out.printf(
+        "%n%-16s %9s %7s %9s %9s %9s %9s %9s%n",
+        "operation", "count", "errors", "ops/s", "p50 ms", "p90 ms", "p99 ms", "max ms");
+    results.forEach(
+        (op, samples) -> {
+          long[] sorted = Arrays.copyOf(samples.values, samples.count);
+          Arrays.sort(sorted);
+          System.out.printf(
+              "%-16s %9d %7d %9.1f %9.2f %9.2f %9.2f %9.2f%n",
+              op,
+              samples.count,
+              samples.errors,
+              samples.count / seconds,
+              percentile(sorted, 0.50),
+              percentile(sorted, 0.90),
+              percentile(sorted, 0.99),
+              sorted.length == 0 ? 0 : sorted[sorted.length - 1] / 1e6);
+        });
+  }
+
+  private static double percentile(long[] sorted, double quantile) {
+    if (sorted.length == 0) {
+      return 0;
+    }
+    int rank = (int) Math.ceil(quantile * sorted.length) - 1;
+    return sorted[Math.max(rank, 0)] / 1e6;
+  }
+
+  private static Map<String, String> parse(String[] args) {
+    return Arrays.stream(args)
+        .flatMap(arg -> Arrays.stream(arg.trim().split("\\s+")))
+        .filter(arg -> arg.contains("="))
+        .collect(
+            Collectors.toMap(
+                arg -> arg.substring(0, arg.indexOf('=')).toLowerCase(Locale.ROOT),
+                arg -> arg.substring(arg.indexOf('=') + 1),
+                (first, second) -> second));
+  }
+
+  private static Duration duration(String value) {
+    String text = value.trim().toLowerCase(Locale.ROOT);
+    if (text.endsWith("ms")) {
+      return Duration.ofMillis(Long.parseLong(text.substring(0, text.length() - 2)));
+    }
+    if (text.endsWith("s")) {
+      return Duration.ofSeconds(Long.parseLong(text.substring(0, text.length() - 1)));
+    }
+    if (text.endsWith("m")) {
+      return Duration.ofMinutes(Long.parseLong(text.substring(0, text.length() - 1)));
+    }
+    return Duration.parse(value);
+  }
+}
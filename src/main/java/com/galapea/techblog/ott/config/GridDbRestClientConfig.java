@@ -0,0 +1,137 @@
+package com.galapea.techblog.ott.config;
+
+import com.galapea.techblog.ott.exception.GridDbException;
+import io.netty.channel.ChannelOption;
+import java.time.Duration;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.MediaType;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.web.client.RestClient;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+/**
+ * The single {@link RestClient} and transport used for all GridDB Cloud REST calls, and the {@link
+ * WebClient} of the optional non-blocking client, which has its own Reactor Netty pool sized by the
+ * same {@code griddb.http.*} settings.
+ */
+@Slf4j
+@Configuration
+public class GridDbRestClientConfig {
+
+  @Bean
+  public GridDbTransport gridDbTransport(
+      @Value("${griddb.http.protocol:HTTP_1_1}") GridDbTransport.Protocol protocol,
+      @Value("${griddb.http.connect-timeout:5s}") Duration connectTimeout,
+      @Value("${griddb.http.read-timeout:10s}") Duration readTimeout,
+      @Value("${griddb.http.connection-request-timeout:2s}") Duration connectionRequestTimeout,
+      @Value("${griddb.http.max-connections:100}") int maxConnections,
+      @Value("${griddb.http.max-connections-per-route:50}") int maxConnectionsPerRoute,
+      @Value("${griddb.http.keep-alive:30s}") Duration keepAlive,
+      @Value("${griddb.http.connection-ttl:5m}") Duration connectionTimeToLive) {
+    return GridDbTransport.create(
+        new GridDbTransport.Settings(
+            protocol,
+            connectTimeout,
+            readTimeout,
+            connectionRequestTimeout,
+            maxConnections,
+            maxConnectionsPerRoute,
+            keepAlive,
+            connectionTimeToLive));
+  }
+
+  @Bean
+  public RestClient gridDbRestClient(
+      GridDbTransport gridDbTransport,
+      GridDbWireLogger gridDbWireLogger,
+      @Value("${griddb.base-url}") String baseUrl,
+      @Value("${griddb.auth-token}") String authToken) {
+    return RestClient.builder()
+        .requestFactory(gridDbTransport.requestFactory())
+        .baseUrl(baseUrl)
+        .defaultHeader("Authorization", "Basic " + authToken)
+        .defaultHeader("Content-Type", MediaType.APPLICATION_JSON_VALUE)
+        .defaultStatusHandler(
+            HttpStatusCode::isError,
+            (request, response) -> {
+              String errorBody = new String(response.getBody().readAllBytes());
+              logError(response.getStatusCode(), errorBody);
+              throw new GridDbException(
+                  "GridDB API request failed", response.getStatusCode(), errorBody);
+            })
+        .requestInterceptor(gridDbWireLogger)
+        .build();
+  }
+
+  @Bean(destroyMethod = "dispose")
+  @ConditionalOnProperty(name = "griddb.reactive.enabled", havingValue = "true")
+  public ConnectionProvider gridDbConnectionProvider(
+      @Value("${griddb.http.connection-request-timeout:2s}") Duration connectionRequestTimeout,
+      @Value("${griddb.http.max-connections-per-route:50}") int maxConnectionsPerRoute,
+      @Value("${griddb.http.keep-alive:30s}") Duration keepAlive,
+      @Value("${griddb.http.connection-ttl:5m}") Duration connectionTimeToLive) {
+    // all GridDB calls go to one host, so the per-route limit is the effective pool size
+    return ConnectionProvider.builder("griddb")
+        .maxConnections(maxConnectionsPerRoute)
+        .pendingAcquireTimeout(connectionRequestTimeout)
+        .maxIdleTime(keepAlive)
+        .maxLifeTime(connectionTimeToLive)
+        .metrics(true)
+        .build();
+  }
+
+  @Bean
+  @ConditionalOnProperty(name = "griddb.reactive.enabled", havingValue = "true")
+  public WebClient gridDbWebClient(
+      WebClient.Builder builder,
+      ConnectionProvider gridDbConnectionProvider,
+      @Value("${griddb.http.connect-timeout:5s}") Duration connectTimeout,
+      @Value("${griddb.http.read-timeout:10s}") Duration readTimeout,
+      @Value("${griddb.base-url}") String baseUrl,
+      @Value("${griddb.auth-token}") String authToken) {
+    HttpClient httpClient =
+        HttpClient.create(gridDbConnectionProvider)
+            .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, (int) connectTimeout.toMillis())
+            .responseTimeout(readTimeout);
+    return builder
+        .clientConnector(new ReactorClientHttpConnector(httpClient))
+        .baseUrl(baseUrl)
+        .defaultHeader("Authorization", "Basic " + authToken)
+        .defaultHeader("Content-Type", MediaType.APPLICATION_JSON_VALUE)
+        .defaultStatusHandler(
+            HttpStatusCode::isError,
+            response ->
+                response
+                    .bodyToMono(String.class)
+                    .defaultIfEmpty("")
+                    .flatMap(
+                        errorBody -> {
+                          logError(response.statusCode(), errorBody);
+                          return Mono.error(
+                              new GridDbException(
+                                  "GridDB API request failed", response.statusCode(), errorBody));
+                        }))
+        .build();
+  }
+
+  /**
+   * A 404 is left to the caller to log: a missing container or row is expected in places, such as
+   * the schema version lookup on a first start.
+   */
+  private static void logError(HttpStatusCode status, String errorBody) {
+    if (status.value() == HttpStatus.NOT_FOUND.value()) {
+      log.debug("GridDB API request failed with {}: {}", status, errorBody);
+    } else {
+      log.error("GridDB API request failed with {}: {}", status, errorBody);
+    }
+  }
+}
@@ -0,0 +1,221 @@
+package com.galapea.techblog.ott.config;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import java.io.IOException;
+import java.net.http.HttpClient;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.impl.DefaultConnectionKeepAliveStrategy;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
+import org.apache.hc.client5.http.protocol.HttpClientContext;
+import org.apache.hc.core5.pool.PoolStats;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.core.NamedThreadLocal;
+import org.springframework.http.client.ClientHttpRequestFactory;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.http.client.JdkClientHttpRequestFactory;
+import org.springframework.lang.Nullable;
+
+/**
+ * HTTP transport shared by every GridDB REST client.
+ *
+ * <p>{@link Protocol#HTTP_1_1} uses a pool of persistent Apache HttpClient connections with a
+ * per-route limit and exposes pool statistics. {@link Protocol#HTTP_2} uses the JDK client, which
+ * negotiates HTTP/2 over ALPN and multiplexes requests on one connection, falling back to HTTP/1.1
+ * when the server does not support it. It has no pool to report on.
+ *
+ * <p>A call wrapped in {@link #withResponseTimeout} gets its own response timeout instead of {@code
+ * readTimeout}. It is enforced by the socket (Apache) or the request (JDK), so a slow response
+ * fails the call on the calling thread and the connection is released, no watchdog thread needed.
+ */
+@Slf4j
+public class GridDbTransport implements DisposableBean, MeterBinder {
+
+  public enum Protocol {
+    HTTP_1_1,
+    HTTP_2
+  }
+
+  public record Settings(
+      Protocol protocol,
+      Duration connectTimeout,
+      Duration readTimeout,
+      Duration connectionRequestTimeout,
+      int maxConnections,
+      int maxConnectionsPerRoute,
+      Duration keepAlive,
+      Duration connectionTimeToLive) {}
+
+  private static final ThreadLocal<Duration> RESPONSE_TIMEOUT =
+      new NamedThreadLocal<>("GridDB response timeout");
+
+  private final ClientHttpRequestFactory requestFactory;
+  private final PoolingHttpClientConnectionManager connectionManager;
+  private final CloseableHttpClient pooledClient;
+
+  private GridDbTransport(
+      ClientHttpRequestFactory requestFactory,
+      PoolingHttpClientConnectionManager connectionManager,
+      CloseableHttpClient pooledClient) {
+    this.requestFactory = requestFactory;
+    this.connectionManager = connectionManager;
+    this.pooledClient = pooledClient;
+  }
+
+  public static GridDbTransport create(Settings settings) {
+    log.info("GridDB transport: {}", settings);
+    if (settings.protocol() == Protocol.HTTP_2) {
+      HttpClient httpClient =
+          HttpClient.newBuilder()
+              .version(HttpClient.Version.HTTP_2)
+              .connectTimeout(settings.connectTimeout())
+              .build();
+      // the JDK factory has a single read timeout, so keep one per response timeout in use
+      Map<Duration, JdkClientHttpRequestFactory> factories = new ConcurrentHashMap<>();
+      Duration readTimeout = settings.readTimeout();
+      ClientHttpRequestFactory requestFactory =
+          (uri, method) -> {
+            Duration timeout = RESPONSE_TIMEOUT.get();
+            return factories
+                .computeIfAbsent(
+                    timeout == null ? readTimeout : timeout,
+                    t -> {
+                      JdkClientHttpRequestFactory factory =
+                          new JdkClientHttpRequestFactory(httpClient);
+                      factory.setReadTimeout(t);
+                      return factory;
+                    })
+                .createRequest(uri, method);
+          };
+      return new GridDbTransport(requestFactory, null, null);
+    }
+
+    PoolingHttpClientConnectionManager connectionManager =
+        PoolingHttpClientConnectionManagerBuilder.create()
+            .setMaxConnTotal(settings.maxConnections())
+            .setMaxConnPerRoute(settings.maxConnectionsPerRoute())
+            .setDefaultConnectionConfig(
+                ConnectionConfig.custom()
+                    .setConnectTimeout(Timeout.of(settings.connectTimeout()))
+                    .setSocketTimeout(Timeout.of(settings.readTimeout()))
+                    .setTimeToLive(TimeValue.of(settings.connectionTimeToLive()))
+                    .setValidateAfterInactivity(TimeValue.ofSeconds(2))
+                    .build())
+            .build();
+    TimeValue keepAlive = TimeValue.of(settings.keepAlive());
+    RequestConfig defaultRequestConfig =
+        RequestConfig.custom()
+            .setConnectionRequestTimeout(Timeout.of(settings.connectionRequestTimeout()))
+            .build();
+    CloseableHttpClient httpClient =
+        HttpClients.custom()
+            .setConnectionManager(connectionManager)
+            .setKeepAliveStrategy(
+                (response, context) -> {
+                  // honour a shorter Keep-Alive from the server, otherwise use ours
+                  TimeValue advertised =
+                      DefaultConnectionKeepAliveStrategy.INSTANCE.getKeepAliveDuration(
+                          response, context);
+                  return TimeValue.isPositive(advertised) && advertised.compareTo(keepAlive) < 0
+                      ? advertised
+                      : keepAlive;
+                })
+            .setDefaultRequestConfig(defaultRequestConfig)
+            .evictExpiredConnections()
+            .evictIdleConnections(keepAlive)
+            .build();
+    HttpComponentsClientHttpRequestFactory requestFactory =
+        new HttpComponentsClientHttpRequestFactory(httpClient);
+    requestFactory.setHttpContextFactory(
+        (method, uri) -> {
+          Duration timeout = RESPONSE_TIMEOUT.get();
+          if (timeout == null) {
+            return null;
+          }
+          HttpClientContext context = HttpClientContext.create();
+          context.setRequestConfig(
+              RequestConfig.copy(defaultRequestConfig)
+                  .setResponseTimeout(Timeout.of(timeout))
+                  .build());
+          return context;
+        });
+    return new GridDbTransport(requestFactory, connectionManager, httpClient);
+  }
+
+  /**
+   * Runs {@code call} with a response timeout of {@code timeout} for the GridDB requests it sends
+   * on this thread. When it expires the request fails with a {@link
+   * org.springframework.web.client.ResourceAccessException}.
+   */
+  public static <T> T withResponseTimeout(Duration timeout, Supplier<T> call) {
+    Duration previous = RESPONSE_TIMEOUT.get();
+    RESPONSE_TIMEOUT.set(timeout);
+    try {
+      return call.get();
+    } finally {
+      if (previous == null) {
+        RESPONSE_TIMEOUT.remove();
+      } else {
+        RESPONSE_TIMEOUT.set(previous);
+      }
+    }
+  }
+
+  /** The response timeout set by {@link #withResponseTimeout} on this thread, if any. */
+  @Nullable
+  public static Duration responseTimeout() {
+    return RESPONSE_TIMEOUT.get();
+  }
+
+  public ClientHttpRequestFactory requestFactory() {
+    return requestFactory;
+  }
+
+  /**
+   * Leased, idle (available) and pending connection counts of the pool.
+   *
+   * @return the statistics, or {@code null} when the HTTP/2 transport is used
+   */
+  @Nullable
+  public PoolStats poolStats() {
+    return connectionManager == null ? null : connectionManager.getTotalStats();
+  }
+
+  @Override
+  public void bindTo(MeterRegistry registry) {
+    if (connectionManager == null) {
+      return;
+    }
+    Gauge.builder("griddb.http.pool.leased", this, t -> t.poolStats().getLeased())
+        .description("GridDB connections in use")
+        .register(registry);
+    Gauge.builder("griddb.http.pool.available", this, t -> t.poolStats().getAvailable())
+        .description("Idle GridDB connections")
+        .register(registry);
+    Gauge.builder("griddb.http.pool.pending", this, t -> t.poolStats().getPending())
+        .description("Requests waiting for a GridDB connection")
+        .register(registry);
+    Gauge.builder("griddb.http.pool.max", this, t -> t.poolStats().getMax())
+        .description("Maximum number of GridDB connections")
+        .register(registry);
+  }
+
+  @Override
+  public void destroy() throws IOException {
+    if (pooledClient != null) {
+      pooledClient.close();
+    }
+  }
+}
@@ -0,0 +1,192 @@
+package com.galapea.techblog.ott.config;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Pattern;
+import lombok.extern.slf4j.Slf4j;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRequest;
+import org.springframework.http.client.ClientHttpRequestExecution;
+import org.springframework.http.client.ClientHttpRequestInterceptor;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.stereotype.Component;
+
+/**
+ * Wire logging for the GridDB REST client, written to the {@code griddb.wire} logger at DEBUG.
+ *
+ * <p>When disabled, or when DEBUG is off for that logger, a request costs one flag and one level
+ * check. Otherwise a sampled share of the requests is captured: method, URI, headers and at most
+ * {@code max-body-bytes} of the body. Formatting, redaction and the appender call happen on a
+ * background thread; when its queue is full the entry is dropped and counted. Credential headers,
+ * password hashes, token values and the rows of the {@code OneTimeTokens} container are redacted.
+ */
+@Slf4j
+@Component
+public class GridDbWireLogger implements ClientHttpRequestInterceptor, MeterBinder, DisposableBean {
+
+  static final String LOGGER_NAME = "griddb.wire";
+
+  private static final Logger wire = LoggerFactory.getLogger(LOGGER_NAME);
+  private static final Set<String> SECRET_HEADERS =
+      Set.of("authorization", "proxy-authorization", "cookie", "set-cookie");
+  private static final Pattern PASSWORD_HASH = Pattern.compile("\\{[\\w@.-]+}[^'\",\\s\\]]*");
+  private static final Pattern TOKEN_VALUE =
+      Pattern.compile("(token_value\\s*={1,2}\\s*)'[^']*'", Pattern.CASE_INSENSITIVE);
+  private static final String REDACTED = "[REDACTED]";
+
+  private record Entry(
+      String method,
+      URI uri,
+      HttpHeaders headers,
+      byte[] body,
+      int bodyLength,
+      int status,
+      long nanos,
+      String failure) {}
+
+  private final boolean enabled;
+  private final double sampleRate;
+  private final int maxBodyBytes;
+  private final BlockingQueue<Entry> queue;
+  private final Thread writer;
+  private final LongAdder dropped = new LongAdder();
+  private volatile boolean running = true;
+
+  public GridDbWireLogger(
+      @Value("${griddb.wire-log.enabled:false}") boolean enabled,
+      @Value("${griddb.wire-log.sample-rate:1.0}") double sampleRate,
+      @Value("${griddb.wire-log.max-body-bytes:1024}") int maxBodyBytes,
+      @Value("${griddb.wire-log.queue-capacity:1000}") int queueCapacity) {
+    this.enabled = enabled;
+    this.sampleRate = sampleRate;
+    this.maxBodyBytes = maxBodyBytes;
+    this.queue = new ArrayBlockingQueue<>(queueCapacity);
+    this.writer = new Thread(this::writeLoop, "griddb-wire-log");
+    this.writer.setDaemon(true);
+    if (enabled) {
+      this.writer.start();
+    }
+  }
+
+  @Override
+  public ClientHttpResponse intercept(
+      HttpRequest request, byte[] body, ClientHttpRequestExecution execution) throws IOException {
+    if (!enabled
+        || !wire.isDebugEnabled()
+        || (sampleRate < 1.0 && ThreadLocalRandom.current().nextDouble() >= sampleRate)) {
+      return execution.execute(request, body);
+    }
+    long start = System.nanoTime();
+    int status = 0;
+    String failure = null;
+    try {
+      ClientHttpResponse response = execution.execute(request, body);
+      status = response.getStatusCode().value();
+      return response;
+    } catch (IOException | RuntimeException e) {
+      failure = e.getClass().getSimpleName();
+      throw e;
+    } finally {
+      byte[] captured =
+          body == null ? new byte[0] : Arrays.copyOf(body, Math.min(body.length, maxBodyBytes));
+      Entry entry =
+          new Entry(
+              request.getMethod().name(),
+              request.getURI(),
+              HttpHeaders.readOnlyHttpHeaders(request.getHeaders()),
+              captured,
+              body == null ? 0 : body.length,
+              status,
+              System.nanoTime() - start,
+              failure);
+      if (!queue.offer(entry)) {
+        dropped.increment();
+      }
+    }
+  }
+
+  private void writeLoop() {
+    while (running || !queue.isEmpty()) {
+      try {
+        Entry entry = queue.poll(100, TimeUnit.MILLISECONDS);
+        if (entry != null) {
+          write(entry);
+        }
+      } catch (InterruptedException e) {
+        running = false;
+      } catch (RuntimeException e) {
+        log.warn("Failed to write GridDB wire log entry", e);
+      }
+    }
+  }
+
+  private void write(Entry entry) {
+    wire.debug(
+        "{} {} -> {} in {} ms, headers={}, body[{}]={}",
+        entry.method(),
+        entry.uri(),
+        entry.failure() != null ? entry.failure() : entry.status(),
+        TimeUnit.NANOSECONDS.toMillis(entry.nanos()),
+        redact(entry.headers()),
+        entry.bodyLength(),
+        redactBody(entry));
+  }
+
+  private static List<String> redact(HttpHeaders headers) {
+    List<String> result = new ArrayList<>(headers.size());
+    for (Map.Entry<String, List<String>> header : headers.entrySet()) {
+      boolean secret = SECRET_HEADERS.contains(header.getKey().toLowerCase(Locale.ROOT));
+      result.add(header.getKey() + ": " + (secret ? REDACTED : header.getValue()));
+    }
+    return result;
+  }
+
+  private static String redactBody(Entry entry) {
+    if (entry.bodyLength() == 0) {
+      return "";
+    }
+    if (entry.uri().getPath().contains("/OneTimeTokens/")) {
+      return REDACTED;
+    }
+    String text = new String(entry.body(), StandardCharsets.UTF_8);
+    text = PASSWORD_HASH.matcher(text).replaceAll(REDACTED);
+    text = TOKEN_VALUE.matcher(text).replaceAll("$1'" + REDACTED + "'");
+    return entry.body().length < entry.bodyLength() ? text + "...(truncated)" : text;
+  }
+
+  /** Entries dropped because the background writer could not keep up. */
+  public long dropped() {
+    return dropped.sum();
+  }
+
+  @Override
+  public void bindTo(MeterRegistry registry) {
+    FunctionCounter.builder("griddb.wire.log.dropped", dropped, LongAdder::sum)
+        .description("GridDB wire log entries dropped on a full queue")
+        .register(registry);
+  }
+
+  @Override
+  public void destroy() {
+    running = false;
+  }
+}
@@ -4,6 +4,9 @@ import com.galapea.techblog.ott.model.UserDTO;
 import com.galapea.techblog.ott.service.UserService;
 import com.galapea.techblog.ott.util.WebUtils;
 import jakarta.validation.Valid;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.validation.BindingResult;
@@ -12,6 +15,7 @@ import org.springframework.web.bind.annotation.ModelAttribute;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.servlet.mvc.support.RedirectAttributes;
 
 @Controller
@@ -70,6 +74,39 @@ public class UserController {
     return "redirect:/users";
   }
 
+  @PostMapping("/delete")
+  public String deleteSelected(
+      @RequestParam(name = "ids", required = false) final List<String> ids,
+      final RedirectAttributes redirectAttributes) {
+    if (ids != null && !ids.isEmpty()) {
+      final int deleted = userService.deleteAll(ids);
+      redirectAttributes.addFlashAttribute(
+          WebUtils.MSG_INFO, WebUtils.getMessage("user.bulkDelete.success", deleted));
+    }
+    return "redirect:/users";
+  }
+
+  @PostMapping("/rename")
+  public String renameSelected(
+      @RequestParam(name = "ids", required = false) final List<String> ids,
+      @RequestParam(name = "name", required = false) final String name,
+      final RedirectAttributes redirectAttributes) {
+    if (name == null || name.isBlank()) {
+      redirectAttributes.addFlashAttribute(
+          WebUtils.MSG_ERROR, WebUtils.getMessage("user.bulkRename.blank"));
+    } else if (name.length() > 255) {
+      redirectAttributes.addFlashAttribute(
+          WebUtils.MSG_ERROR, WebUtils.getMessage("user.bulkRename.tooLong"));
+    } else if (ids != null && !ids.isEmpty()) {
+      final Map<String, String> namesById = new LinkedHashMap<>();
+      ids.forEach(id -> namesById.put(id, name));
+      final long renamed = userService.renameAll(namesById);
+      redirectAttributes.addFlashAttribute(
+          WebUtils.MSG_SUCCESS, WebUtils.getMessage("user.bulkRename.success", renamed));
+    }
+    return "redirect:/users";
+  }
+
   @PostMapping("/delete/{id}")
   public String delete(
       @PathVariable(name = "id") final String id, final RedirectAttributes redirectAttributes) {
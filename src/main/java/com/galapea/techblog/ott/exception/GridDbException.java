@@ -1,5 +1,6 @@
 package com.galapea.techblog.ott.exception;
 
+import java.util.function.Supplier;
 import org.springframework.http.HttpStatusCode;
 
 public class GridDbException extends RuntimeException {
@@ -19,6 +20,20 @@ public class GridDbException extends RuntimeException {
     this.errorBody = errorBody;
   }
 
+  /**
+   * Runs a GridDB request, turning any failure other than a {@code GridDbException}, such as an I/O
+   * error or an unreadable response, into one with status 500.
+   */
+  public static <T> T wrap(String message, Supplier<T> call) {
+    try {
+      return call.get();
+    } catch (GridDbException e) {
+      throw e;
+    } catch (Exception e) {
+      throw new GridDbException(message, HttpStatusCode.valueOf(500), e.getMessage(), e);
+    }
+  }
+
   public HttpStatusCode getStatusCode() {
     return statusCode;
   }
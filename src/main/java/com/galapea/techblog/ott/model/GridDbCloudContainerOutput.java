@@ -0,0 +1,11 @@
+package com.galapea.techblog.ott.model;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import java.util.List;
+
+public record GridDbCloudContainerOutput(
+    @JsonProperty("columns") List<GDCColumnInfo> columns,
+    @JsonProperty("rows") List<List<String>> rows,
+    @JsonProperty("total") long total,
+    @JsonProperty("offset") long offset,
+    @JsonProperty("limit") long limit) {}
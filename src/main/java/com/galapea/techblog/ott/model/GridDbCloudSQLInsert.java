@@ -0,0 +1,5 @@
+package com.galapea.techblog.ott.model;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+public record GridDbCloudSQLInsert(@JsonProperty("stmt") String statement) {}
@@ -0,0 +1,9 @@
+package com.galapea.techblog.ott.model;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import java.util.List;
+
+public record GridDbCloudSQLOutPut(
+    @JsonProperty("columns") List<GDCColumnInfo> columns,
+    @JsonProperty("results") List<List<String>> results,
+    @JsonProperty("responseSizeByte") long responseSizeByte) {}
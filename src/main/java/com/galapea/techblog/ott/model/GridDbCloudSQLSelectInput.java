@@ -0,0 +1,5 @@
+package com.galapea.techblog.ott.model;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+public record GridDbCloudSQLSelectInput(String type, @JsonProperty("stmt") String statement) {}
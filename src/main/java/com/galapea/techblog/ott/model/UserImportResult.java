@@ -0,0 +1,14 @@
+package com.galapea.techblog.ott.model;
+
+import java.util.List;
+
+/**
+ * Outcome of a bulk user import. {@code errors} lists rejected rows by their line in the input,
+ * ordered by line, up to a limit; {@code errorsTruncated} tells whether more rows were rejected
+ * than listed.
+ */
+public record UserImportResult(
+    long received, long created, long failed, List<RowError> errors, boolean errorsTruncated) {
+
+  public record RowError(long line, String email, String message) {}
+}
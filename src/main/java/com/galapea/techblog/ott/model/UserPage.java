@@ -0,0 +1,9 @@
+package com.galapea.techblog.ott.model;
+
+import java.util.List;
+
+/**
+ * One keyset page of users ordered by id. {@code nextCursor} is the id to pass as {@code after} for
+ * the following page, or {@code null} on the last page.
+ */
+public record UserPage(List<UserDTO> users, String nextCursor) {}
@@ -1,3 +1,16 @@
 package com.galapea.techblog.ott.model;
 
-public record UserRecord(String id, String email, String name, String password) {}
+public record UserRecord(String id, String email, String name, String password) {
+
+  /**
+   * Stored password of accounts that only sign in with one-time tokens: never hashed and never
+   * matched by any password.
+   */
+  public static final String NO_PASSWORD = "{nologin}";
+
+  /** Leaves out the password hash, so logging a record cannot leak it. */
+  @Override
+  public String toString() {
+    return "UserRecord[id=" + id + ", email=" + email + ", name=" + name + "]";
+  }
+}
@@ -1,9 +1,27 @@
 package com.galapea.techblog.ott.rest;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
 import com.galapea.techblog.ott.model.UserDTO;
+import com.galapea.techblog.ott.model.UserImportResult;
+import com.galapea.techblog.ott.model.UserPage;
+import com.galapea.techblog.ott.service.UserImportService;
 import com.galapea.techblog.ott.service.UserService;
+import com.galapea.techblog.ott.util.BadRequestException;
+import com.galapea.techblog.ott.util.Csv;
 import jakarta.validation.Valid;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
@@ -14,21 +32,117 @@ import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
 @RestController
 @RequestMapping(value = "/api/users", produces = MediaType.APPLICATION_JSON_VALUE)
 public class UserResource {
 
+  private static final int MAX_PAGE_SIZE = 1000;
+  private static final int MAX_BULK_SIZE = 10_000;
+  private static final byte[] NEWLINE = {'\n'};
+  private static final String TEXT_CSV_VALUE = "text/csv";
+
   private final UserService userService;
+  private final UserImportService userImportService;
+  private final ObjectWriter ndjsonWriter;
 
-  public UserResource(final UserService userService) {
+  public UserResource(
+      final UserService userService,
+      final UserImportService userImportService,
+      final ObjectMapper objectMapper) {
     this.userService = userService;
+    this.userImportService = userImportService;
+    this.ndjsonWriter = objectMapper.writer().without(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
   }
 
+  /**
+   * One keyset page of users ordered by id. When more users follow, the response carries a {@code
+   * Link} header with {@code rel="next"} pointing at the next page.
+   */
   @GetMapping
-  public ResponseEntity<List<UserDTO>> getAllUsers() {
-    return ResponseEntity.ok(userService.findAll());
+  public ResponseEntity<List<UserDTO>> getAllUsers(
+      @RequestParam(name = "after", required = false) final String after,
+      @RequestParam(name = "limit", defaultValue = "100") final int limit) {
+    final UserPage page = userService.findPage(after, Math.max(1, Math.min(limit, MAX_PAGE_SIZE)));
+    final ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+    if (page.nextCursor() != null) {
+      final String next =
+          ServletUriComponentsBuilder.fromCurrentRequest()
+              .replaceQueryParam("after", page.nextCursor())
+              .toUriString();
+      response.header(HttpHeaders.LINK, "<" + next + ">; rel=\"next\"");
+    }
+    return response.body(page.users());
+  }
+
+  /** Every user as newline-delimited JSON, read from GridDB page by page while it is written. */
+  @GetMapping(value = "/stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
+  public ResponseEntity<StreamingResponseBody> streamAllUsers() {
+    final StreamingResponseBody body =
+        outputStream ->
+            userService.forEachUser(
+                user -> {
+                  try {
+                    ndjsonWriter.writeValue(outputStream, user);
+                    outputStream.write(NEWLINE);
+                  } catch (final IOException e) {
+                    throw new UncheckedIOException(e);
+                  }
+                });
+    return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(body);
+  }
+
+  /**
+   * Every user as CSV with an {@code id,email,name} header, written while it is read. Fields that a
+   * spreadsheet would evaluate as a formula are prefixed with {@code '}.
+   */
+  @GetMapping(value = "/export", produces = TEXT_CSV_VALUE)
+  public ResponseEntity<StreamingResponseBody> exportUsers() {
+    final StreamingResponseBody body =
+        outputStream -> {
+          final Writer writer =
+              new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8));
+          Csv.appendRecord(writer, List.of("id", "email", "name"));
+          userService.forEachUser(
+              user -> {
+                try {
+                  Csv.appendRecord(
+                      writer,
+                      Arrays.asList(
+                          user.getId(),
+                          Csv.formulaSafe(user.getEmail()),
+                          Csv.formulaSafe(user.getName())));
+                } catch (final IOException e) {
+                  throw new UncheckedIOException(e);
+                }
+              });
+          writer.flush();
+        };
+    return ResponseEntity.ok()
+        .contentType(MediaType.parseMediaType(TEXT_CSV_VALUE))
+        .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"users.csv\"")
+        .body(body);
+  }
+
+  /**
+   * Creates users in bulk from a CSV ({@code text/csv}, header row with {@code email} and {@code
+   * name}) or NDJSON body. The body is read as a stream; the response lists rows that were
+   * rejected.
+   */
+  @PostMapping(value = "/import", consumes = TEXT_CSV_VALUE)
+  public ResponseEntity<UserImportResult> importUsersCsv(final InputStream body)
+      throws IOException {
+    return ResponseEntity.ok(userImportService.importUsers(body, UserImportService.Format.CSV));
+  }
+
+  @PostMapping(value = "/import", consumes = MediaType.APPLICATION_NDJSON_VALUE)
+  public ResponseEntity<UserImportResult> importUsersNdjson(final InputStream body)
+      throws IOException {
+    return ResponseEntity.ok(userImportService.importUsers(body, UserImportService.Format.NDJSON));
   }
 
   @GetMapping("/{id}")
@@ -54,4 +168,37 @@ public class UserResource {
     userService.delete(id);
     return ResponseEntity.noContent().build();
   }
+
+  /** Deletes all users whose id is listed in the body, a JSON array of ids. */
+  @PostMapping("/delete")
+  public ResponseEntity<Void> deleteUsers(@RequestBody final List<String> ids) {
+    checkBulkSize(ids.size());
+    userService.deleteAll(ids);
+    return ResponseEntity.noContent().build();
+  }
+
+  /**
+   * Renames users; the body is a JSON object of new names by user id. Responds with the number of
+   * users updated.
+   */
+  @PutMapping("/names")
+  public ResponseEntity<Long> renameUsers(@RequestBody final Map<String, String> namesById) {
+    checkBulkSize(namesById.size());
+    namesById.forEach(
+        (id, name) -> {
+          if (name == null || name.isBlank()) {
+            throw new BadRequestException("Name of user " + id + " must not be blank");
+          }
+          if (name.length() > 255) {
+            throw new BadRequestException("Name of user " + id + " is longer than 255 characters");
+          }
+        });
+    return ResponseEntity.ok(userService.renameAll(namesById));
+  }
+
+  private static void checkBulkSize(final int size) {
+    if (size > MAX_BULK_SIZE) {
+      throw new BadRequestException("At most " + MAX_BULK_SIZE + " users per request");
+    }
+  }
 }
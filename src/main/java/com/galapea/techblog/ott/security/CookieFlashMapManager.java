@@ -0,0 +1,106 @@
+package com.galapea.techblog.ott.security;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.lang.Nullable;
+import org.springframework.util.LinkedMultiValueMap;
+import org.springframework.web.servlet.FlashMap;
+import org.springframework.web.servlet.support.AbstractFlashMapManager;
+
+/**
+ * Keeps flash attributes in an encrypted cookie instead of the {@code HttpSession}. Attributes are
+ * written as JSON, so they should be strings, numbers, lists or maps; the cookie is limited to
+ * about 4 KB.
+ */
+@Slf4j
+public class CookieFlashMapManager extends AbstractFlashMapManager {
+
+  static final String COOKIE_NAME = "OTT_FLASH";
+  private static final String FLASH_MAPS_ATTRIBUTE =
+      CookieFlashMapManager.class.getName() + ".MAPS";
+  private static final TypeReference<List<StoredFlashMap>> STORED_TYPE = new TypeReference<>() {};
+
+  private final SealedCookies cookies;
+  private final ObjectMapper objectMapper;
+
+  CookieFlashMapManager(SealedCookies cookies, ObjectMapper objectMapper) {
+    this.cookies = cookies;
+    this.objectMapper = objectMapper;
+  }
+
+  @Override
+  @Nullable
+  @SuppressWarnings("unchecked")
+  protected List<FlashMap> retrieveFlashMaps(HttpServletRequest request) {
+    // the request cookie is stale once this request has updated the flash maps
+    Object updated = request.getAttribute(FLASH_MAPS_ATTRIBUTE);
+    if (updated != null) {
+      return (List<FlashMap>) updated;
+    }
+    byte[] content = cookies.read(request, COOKIE_NAME);
+    if (content == null) {
+      return null;
+    }
+    try {
+      // the caller removes the maps it used from the list
+      return objectMapper.readValue(content, STORED_TYPE).stream()
+          .map(StoredFlashMap::toFlashMap)
+          .collect(Collectors.toCollection(ArrayList::new));
+    } catch (IOException e) {
+      log.debug("Ignoring malformed flash map cookie", e);
+      return null;
+    }
+  }
+
+  @Override
+  protected void updateFlashMaps(
+      List<FlashMap> flashMaps, HttpServletRequest request, HttpServletResponse response) {
+    request.setAttribute(FLASH_MAPS_ATTRIBUTE, new ArrayList<>(flashMaps));
+    if (flashMaps.isEmpty()) {
+      cookies.delete(request, response, COOKIE_NAME);
+      return;
+    }
+    try {
+      byte[] content =
+          objectMapper.writeValueAsBytes(flashMaps.stream().map(StoredFlashMap::of).toList());
+      cookies.write(
+          request, response, COOKIE_NAME, content, Duration.ofSeconds(getFlashMapTimeout()));
+    } catch (IOException e) {
+      log.warn("Cannot write flash attributes to a cookie: {}", e.getMessage());
+    }
+  }
+
+  record StoredFlashMap(
+      String path, Map<String, List<String>> params, long expires, Map<String, Object> attributes) {
+
+    static StoredFlashMap of(FlashMap flashMap) {
+      return new StoredFlashMap(
+          flashMap.getTargetRequestPath(),
+          flashMap.getTargetRequestParams(),
+          flashMap.getExpirationTime(),
+          flashMap);
+    }
+
+    FlashMap toFlashMap() {
+      FlashMap flashMap = new FlashMap();
+      flashMap.setTargetRequestPath(path);
+      if (params != null) {
+        flashMap.addTargetRequestParams(new LinkedMultiValueMap<>(params));
+      }
+      flashMap.setExpirationTime(expires);
+      if (attributes != null) {
+        flashMap.putAll(attributes);
+      }
+      return flashMap;
+    }
+  }
+}
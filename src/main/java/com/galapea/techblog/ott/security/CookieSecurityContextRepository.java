@@ -0,0 +1,129 @@
+package com.galapea.techblog.ott.security;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.time.Clock;
+import java.time.Duration;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.security.authentication.AuthenticationTrustResolver;
+import org.springframework.security.authentication.AuthenticationTrustResolverImpl;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.CredentialsContainer;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.springframework.security.web.context.HttpRequestResponseHolder;
+import org.springframework.security.web.context.SecurityContextRepository;
+import org.springframework.util.Assert;
+
+/**
+ * Keeps the authenticated user in an encrypted cookie instead of the {@code HttpSession}: the
+ * username and the time the login expires. Any node with the same key restores the login, so no
+ * session state is kept on the server. The user and the authorities are looked up again on every
+ * request, so deleting a user or revoking a role applies to existing logins. The cookie is written
+ * at login and expires {@code maxAge} later; logging out deletes it, but a copy taken before stays
+ * valid until then.
+ */
+@Slf4j
+public class CookieSecurityContextRepository implements SecurityContextRepository {
+
+  static final String COOKIE_NAME = "OTT_AUTH";
+
+  private final SealedCookies cookies;
+  private final Duration maxAge;
+  private final UserDetailsService userDetailsService;
+  private final AuthenticationTrustResolver trustResolver = new AuthenticationTrustResolverImpl();
+  private Clock clock = Clock.systemUTC();
+
+  CookieSecurityContextRepository(
+      SealedCookies cookies, Duration maxAge, UserDetailsService userDetailsService) {
+    this.cookies = cookies;
+    this.maxAge = maxAge;
+    this.userDetailsService = userDetailsService;
+  }
+
+  /** Clock used for login expiry, for tests. */
+  public void setClock(Clock clock) {
+    Assert.notNull(clock, "clock cannot be null");
+    this.clock = clock;
+  }
+
+  @Override
+  @Deprecated
+  public SecurityContext loadContext(HttpRequestResponseHolder requestResponseHolder) {
+    SecurityContext context = SecurityContextHolder.createEmptyContext();
+    byte[] content = cookies.read(requestResponseHolder.getRequest(), COOKIE_NAME);
+    if (content != null) {
+      context.setAuthentication(decode(content));
+    }
+    return context;
+  }
+
+  @Override
+  public void saveContext(
+      SecurityContext context, HttpServletRequest request, HttpServletResponse response) {
+    Authentication authentication = context.getAuthentication();
+    if (authentication == null || trustResolver.isAnonymous(authentication)) {
+      if (containsContext(request)) {
+        cookies.delete(request, response, COOKIE_NAME);
+      }
+      return;
+    }
+    cookies.write(request, response, COOKIE_NAME, encode(authentication), maxAge);
+  }
+
+  @Override
+  public boolean containsContext(HttpServletRequest request) {
+    return cookies.read(request, COOKIE_NAME) != null;
+  }
+
+  private byte[] encode(Authentication authentication) {
+    try {
+      ByteArrayOutputStream bytes = new ByteArrayOutputStream(128);
+      DataOutputStream out = new DataOutputStream(bytes);
+      out.writeLong(clock.millis() + maxAge.toMillis());
+      out.writeUTF(authentication.getName());
+      return bytes.toByteArray();
+    } catch (IOException e) {
+      throw new IllegalStateException("Cannot encode the security context", e);
+    }
+  }
+
+  /**
+   * The login in the cookie with the current authorities of the user, or {@code null} if it expired
+   * or the user no longer exists. A failed lookup is thrown, so an outage does not log users out.
+   */
+  private Authentication decode(byte[] content) {
+    String username;
+    try {
+      DataInputStream in = new DataInputStream(new ByteArrayInputStream(content));
+      if (in.readLong() < clock.millis()) {
+        return null;
+      }
+      username = in.readUTF();
+    } catch (IOException e) {
+      log.debug("Ignoring malformed security context cookie", e);
+      return null;
+    }
+    UserDetails principal;
+    try {
+      principal = userDetailsService.loadUserByUsername(username);
+    } catch (UsernameNotFoundException e) {
+      log.debug("Ignoring security context cookie of a user that no longer exists");
+      return null;
+    }
+    if (principal instanceof CredentialsContainer credentials) {
+      credentials.eraseCredentials();
+    }
+    return UsernamePasswordAuthenticationToken.authenticated(
+        principal, null, principal.getAuthorities());
+  }
+}
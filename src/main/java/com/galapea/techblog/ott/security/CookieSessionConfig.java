@@ -0,0 +1,39 @@
+package com.galapea.techblog.ott.security;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.time.Duration;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.DispatcherServlet;
+import org.springframework.web.servlet.FlashMapManager;
+
+/**
+ * Session state in encrypted cookies instead of the {@code HttpSession}, enabled with {@code
+ * security.session.mode=cookie}. {@link SecurityConfig} then keeps the CSRF token and the saved
+ * request in cookies too, and no session is created.
+ */
+@Configuration
+@ConditionalOnProperty(name = "security.session.mode", havingValue = "cookie")
+public class CookieSessionConfig {
+
+  @Bean
+  SealedCookies sealedCookies(@Value("${security.session.cookie.secret:}") String secret) {
+    return new SealedCookies(secret);
+  }
+
+  @Bean
+  public CookieSecurityContextRepository cookieSecurityContextRepository(
+      SealedCookies sealedCookies,
+      @Value("${security.session.cookie.max-age:8h}") Duration maxAge,
+      CustomUserDetailService userDetailsService) {
+    return new CookieSecurityContextRepository(sealedCookies, maxAge, userDetailsService);
+  }
+
+  /** Replaces the session-backed manager that Spring MVC registers under the same name. */
+  @Bean(name = DispatcherServlet.FLASH_MAP_MANAGER_BEAN_NAME)
+  public FlashMapManager flashMapManager(SealedCookies sealedCookies, ObjectMapper objectMapper) {
+    return new CookieFlashMapManager(sealedCookies, objectMapper);
+  }
+}
@@ -1,14 +1,19 @@
 package com.galapea.techblog.ott.security;
 
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
 import java.time.Clock;
 import java.time.Instant;
 import java.time.temporal.ChronoUnit;
-import java.util.Map;
 import java.util.UUID;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.lang.NonNull;
 import org.springframework.lang.Nullable;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.security.authentication.ott.DefaultOneTimeToken;
 import org.springframework.security.authentication.ott.GenerateOneTimeTokenRequest;
 import org.springframework.security.authentication.ott.OneTimeToken;
@@ -16,13 +21,28 @@ import org.springframework.security.authentication.ott.OneTimeTokenAuthenticatio
 import org.springframework.security.authentication.ott.OneTimeTokenService;
 import org.springframework.stereotype.Service;
 
+/**
+ * One-time tokens kept in a {@link OneTimeTokenStore} until they are used or expire. The default
+ * {@code ott.token-mode=stored}; see {@link SignedOneTimeTokenService} for the stateless mode.
+ */
 @Slf4j
 @Service
-public class CustomOneTimeTokenService implements OneTimeTokenService {
-  private final Map<String, OneTimeToken> oneTimeTokens = new ConcurrentHashMap<>();
+@ConditionalOnProperty(name = "ott.token-mode", havingValue = "stored", matchIfMissing = true)
+public class CustomOneTimeTokenService implements OneTimeTokenService, MeterBinder {
+  private final OneTimeTokenStore tokenStore;
+
+  private final LongAdder generated = new LongAdder();
+  private final LongAdder consumed = new LongAdder();
+  private final LongAdder rejectedUnknown = new LongAdder();
+  private final LongAdder rejectedExpired = new LongAdder();
+  private final LongAdder expired = new LongAdder();
 
   private Clock clock = Clock.systemUTC();
 
+  public CustomOneTimeTokenService(OneTimeTokenStore tokenStore) {
+    this.tokenStore = tokenStore;
+  }
+
   @Override
   @NonNull
   public OneTimeToken generate(GenerateOneTimeTokenRequest request) {
@@ -30,7 +50,8 @@ public class CustomOneTimeTokenService implements OneTimeTokenService {
     Instant expiresAt = this.clock.instant().plus(5, ChronoUnit.MINUTES);
 
     OneTimeToken oneTimeToken = new DefaultOneTimeToken(token, request.getUsername(), expiresAt);
-    oneTimeTokens.put(token, oneTimeToken);
+    tokenStore.save(oneTimeToken);
+    generated.increment();
 
     return oneTimeToken;
   }
@@ -39,13 +60,51 @@ public class CustomOneTimeTokenService implements OneTimeTokenService {
   @Nullable
   public OneTimeToken consume(OneTimeTokenAuthenticationToken authenticationToken) {
     log.info("Consume token: {}", authenticationToken.getTokenValue());
-    OneTimeToken oneTimeToken = oneTimeTokens.remove(authenticationToken.getTokenValue());
-    if (oneTimeToken == null || isExpired(oneTimeToken)) {
+    OneTimeToken oneTimeToken = tokenStore.take(authenticationToken.getTokenValue());
+    if (oneTimeToken == null) {
+      rejectedUnknown.increment();
       return null;
     }
+    if (isExpired(oneTimeToken)) {
+      rejectedExpired.increment();
+      return null;
+    }
+    consumed.increment();
     return oneTimeToken;
   }
 
+  @Scheduled(fixedDelayString = "${ott.token-store.sweep-interval:PT30S}")
+  public void removeExpiredTokens() {
+    long removed = tokenStore.removeExpired(this.clock.instant());
+    expired.add(removed);
+    if (removed > 0) {
+      log.debug("Removed {} expired one-time tokens", removed);
+    }
+  }
+
+  @Override
+  public void bindTo(MeterRegistry registry) {
+    Gauge.builder("ott.tokens.stored", tokenStore, OneTimeTokenStore::size)
+        .description("One-time tokens waiting to be used")
+        .register(registry);
+    FunctionCounter.builder("ott.tokens.generated", generated, LongAdder::sum)
+        .description("One-time tokens generated")
+        .register(registry);
+    bindConsumed(registry, "success", consumed);
+    bindConsumed(registry, "unknown", rejectedUnknown);
+    bindConsumed(registry, "expired", rejectedExpired);
+    FunctionCounter.builder("ott.tokens.expired", expired, LongAdder::sum)
+        .description("Unused one-time tokens removed after they expired")
+        .register(registry);
+  }
+
+  private static void bindConsumed(MeterRegistry registry, String result, LongAdder counter) {
+    FunctionCounter.builder("ott.tokens.consumed", counter, LongAdder::sum)
+        .description("One-time token login attempts")
+        .tag("result", result)
+        .register(registry);
+  }
+
   private boolean isExpired(OneTimeToken oneTimeToken) {
     return this.clock.instant().isAfter(oneTimeToken.getExpiresAt());
   }
@@ -1,20 +1,25 @@
 package com.galapea.techblog.ott.security;
 
+import com.galapea.techblog.ott.exception.GridDbException;
 import com.galapea.techblog.ott.model.UserRecord;
 import com.galapea.techblog.ott.service.UsersContainerClient;
-import java.util.List;
+import java.util.Set;
 import lombok.AllArgsConstructor;
-import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
 
+@Slf4j
 @Service
 @AllArgsConstructor
-public class CustomUserDetailService implements UserDetailsService {
+public class CustomUserDetailService implements UserDetailsService, UserDetailsPasswordService {
 
   private final UsersContainerClient usersContainerClient;
+  private final UserAuthorities userAuthorities;
 
   @Override
   public UserDetails loadUserByUsername(String email) {
@@ -22,15 +27,33 @@ public class CustomUserDetailService implements UserDetailsService {
     if (user == null) {
       throw new UsernameNotFoundException("User not found");
     }
+    return toUserDetails(user, userAuthorities.of(user.id()));
+  }
 
-    List<SimpleGrantedAuthority> authorities = new java.util.ArrayList<>();
-    authorities.add(new SimpleGrantedAuthority("ROLE_USER"));
-
-    if ("admin@example.com".equals(user.email())) {
-      authorities.add(new SimpleGrantedAuthority("ROLE_ADMIN"));
+  /**
+   * Stores the hash of a password that was just verified against an outdated hash. A failed write
+   * only means the upgrade is tried again on the next login, so it does not fail this one.
+   */
+  @Override
+  public UserDetails updatePassword(UserDetails userDetails, String newPassword) {
+    UserRecord user = usersContainerClient.getUserByEmail(userDetails.getUsername());
+    if (user == null) {
+      return userDetails;
+    }
+    try {
+      usersContainerClient.updatePassword(user, newPassword);
+    } catch (GridDbException e) {
+      log.warn("Failed to upgrade the password hash of user {}: {}", user.id(), e.getMessage());
+      return userDetails;
     }
+    log.info("Upgraded the password hash of user {}", user.id());
+    return org.springframework.security.core.userdetails.User.withUserDetails(userDetails)
+        .password(newPassword)
+        .build();
+  }
 
-    return new org.springframework.security.core.userdetails.User(
-        user.email(), user.password(), authorities);
+  /** Shared with {@link ReactiveCustomUserDetailService}. */
+  static UserDetails toUserDetails(UserRecord user, Set<GrantedAuthority> authorities) {
+    return new UserAccountDetails(user.email(), user.password(), authorities);
   }
 }
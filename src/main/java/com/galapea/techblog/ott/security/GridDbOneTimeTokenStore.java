@@ -0,0 +1,63 @@
+package com.galapea.techblog.ott.security;
+
+import com.galapea.techblog.ott.exception.GridDbException;
+import com.galapea.techblog.ott.service.GridDbClient;
+import com.galapea.techblog.ott.service.OneTimeTokensContainerClient;
+import java.time.Instant;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.lang.Nullable;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.authentication.ott.OneTimeToken;
+import org.springframework.stereotype.Component;
+
+/**
+ * Token store shared by every node, backed by the GridDB {@code OneTimeTokens} container. {@link
+ * #size()} is a count refreshed every {@code ott.token-store.size-refresh-interval}, so reading the
+ * store-size gauge never calls GridDB.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "ott.token-store.type", havingValue = "griddb")
+public class GridDbOneTimeTokenStore implements OneTimeTokenStore {
+
+  private final OneTimeTokensContainerClient tokensContainerClient;
+  private volatile long size;
+
+  public GridDbOneTimeTokenStore(
+      GridDbClient gridDbClient, OneTimeTokensContainerClient tokensContainerClient) {
+    this.tokensContainerClient = tokensContainerClient;
+    gridDbClient.createTableOneTimeTokens();
+    log.info("Create table OneTimeTokens if not exists");
+  }
+
+  @Override
+  public void save(OneTimeToken token) {
+    tokensContainerClient.put(token);
+  }
+
+  @Override
+  @Nullable
+  public OneTimeToken take(String tokenValue) {
+    return tokensContainerClient.take(tokenValue);
+  }
+
+  @Override
+  public long removeExpired(Instant now) {
+    return tokensContainerClient.deleteExpired(now);
+  }
+
+  @Override
+  public long size() {
+    return size;
+  }
+
+  @Scheduled(fixedDelayString = "${ott.token-store.size-refresh-interval:PT1M}")
+  public void refreshSize() {
+    try {
+      size = tokensContainerClient.count();
+    } catch (GridDbException e) {
+      log.warn("Failed to count one-time tokens, keeping {}: {}", size, e.getMessage());
+    }
+  }
+}
@@ -0,0 +1,89 @@
+package com.galapea.techblog.ott.security;
+
+import java.time.Instant;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.lang.Nullable;
+import org.springframework.security.authentication.ott.OneTimeToken;
+import org.springframework.stereotype.Component;
+
+/**
+ * Node-local token store. Tokens are indexed by value and ordered by expiry in a priority queue, so
+ * sweeping only touches tokens that are actually expired. The number of stored tokens is capped;
+ * when the cap is reached the token closest to expiry is dropped.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "ott.token-store.type", havingValue = "memory", matchIfMissing = true)
+public class InMemoryOneTimeTokenStore implements OneTimeTokenStore {
+
+  private final Map<String, OneTimeToken> tokens = new ConcurrentHashMap<>();
+  private final PriorityQueue<OneTimeToken> expiryQueue =
+      new PriorityQueue<>(Comparator.comparing(OneTimeToken::getExpiresAt));
+  private final ReentrantLock expiryLock = new ReentrantLock();
+  private final int maxTokens;
+
+  public InMemoryOneTimeTokenStore(@Value("${ott.token-store.max-tokens:100000}") int maxTokens) {
+    this.maxTokens = maxTokens;
+  }
+
+  @Override
+  public void save(OneTimeToken token) {
+    expiryLock.lock();
+    try {
+      if (tokens.size() >= maxTokens) {
+        removeExpired(Instant.now());
+      }
+      while (tokens.size() >= maxTokens && !expiryQueue.isEmpty()) {
+        OneTimeToken evicted = expiryQueue.poll();
+        if (tokens.remove(evicted.getTokenValue(), evicted)) {
+          log.warn("One-time token store is full ({}), dropped the oldest token", maxTokens);
+        }
+      }
+      tokens.put(token.getTokenValue(), token);
+      expiryQueue.add(token);
+      if (expiryQueue.size() > 2 * maxTokens) {
+        // consumed tokens stay queued until they expire, rebuild when they pile up
+        expiryQueue.clear();
+        expiryQueue.addAll(tokens.values());
+      }
+    } finally {
+      expiryLock.unlock();
+    }
+  }
+
+  @Override
+  @Nullable
+  public OneTimeToken take(String tokenValue) {
+    return tokens.remove(tokenValue);
+  }
+
+  @Override
+  public long removeExpired(Instant now) {
+    long removed = 0;
+    expiryLock.lock();
+    try {
+      OneTimeToken head;
+      while ((head = expiryQueue.peek()) != null && head.getExpiresAt().isBefore(now)) {
+        expiryQueue.poll();
+        if (tokens.remove(head.getTokenValue(), head)) {
+          removed++;
+        }
+      }
+    } finally {
+      expiryLock.unlock();
+    }
+    return removed;
+  }
+
+  @Override
+  public long size() {
+    return tokens.size();
+  }
+}
@@ -0,0 +1,78 @@
+package com.galapea.techblog.ott.security;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.List;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.lang.Nullable;
+import org.springframework.security.authentication.ott.DefaultOneTimeToken;
+import org.springframework.security.authentication.ott.OneTimeToken;
+import org.springframework.stereotype.Component;
+
+/**
+ * Token store on the configured {@code spring.datasource}. Point {@code JDBC_DATABASE_URL} at a
+ * shared database to use it from several nodes. The table layout follows Spring Security's {@code
+ * one-time-tokens-schema.sql}.
+ */
+@Component
+@ConditionalOnProperty(name = "ott.token-store.type", havingValue = "jdbc")
+public class JdbcOneTimeTokenStore implements OneTimeTokenStore {
+
+  private static final String CREATE_TABLE =
+      "CREATE TABLE IF NOT EXISTS one_time_tokens ("
+          + "token_value VARCHAR(36) NOT NULL PRIMARY KEY, "
+          + "username VARCHAR(255) NOT NULL, "
+          + "expires_at TIMESTAMP NOT NULL)";
+  private static final String CREATE_EXPIRY_INDEX =
+      "CREATE INDEX IF NOT EXISTS idx_one_time_tokens_expires_at ON one_time_tokens (expires_at)";
+
+  private final JdbcTemplate jdbcTemplate;
+
+  public JdbcOneTimeTokenStore(JdbcTemplate jdbcTemplate) {
+    this.jdbcTemplate = jdbcTemplate;
+    jdbcTemplate.execute(CREATE_TABLE);
+    jdbcTemplate.execute(CREATE_EXPIRY_INDEX);
+  }
+
+  @Override
+  public void save(OneTimeToken token) {
+    jdbcTemplate.update(
+        "INSERT INTO one_time_tokens (token_value, username, expires_at) VALUES (?, ?, ?)",
+        token.getTokenValue(),
+        token.getUsername(),
+        Timestamp.from(token.getExpiresAt()));
+  }
+
+  @Override
+  @Nullable
+  public OneTimeToken take(String tokenValue) {
+    List<OneTimeToken> found =
+        jdbcTemplate.query(
+            "SELECT token_value, username, expires_at FROM one_time_tokens WHERE token_value = ?",
+            (rs, rowNum) ->
+                new DefaultOneTimeToken(
+                    rs.getString("token_value"),
+                    rs.getString("username"),
+                    rs.getTimestamp("expires_at").toInstant()),
+            tokenValue);
+    if (found.isEmpty()) {
+      return null;
+    }
+    int deleted =
+        jdbcTemplate.update("DELETE FROM one_time_tokens WHERE token_value = ?", tokenValue);
+    return deleted == 1 ? found.get(0) : null;
+  }
+
+  @Override
+  public long removeExpired(Instant now) {
+    return jdbcTemplate.update(
+        "DELETE FROM one_time_tokens WHERE expires_at < ?", Timestamp.from(now));
+  }
+
+  @Override
+  public long size() {
+    Long count = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM one_time_tokens", Long.class);
+    return count == null ? 0 : count;
+  }
+}
@@ -0,0 +1,37 @@
+package com.galapea.techblog.ott.security;
+
+import java.time.Instant;
+import org.springframework.lang.Nullable;
+import org.springframework.security.authentication.ott.OneTimeToken;
+
+/**
+ * Storage for one-time tokens issued by {@link CustomOneTimeTokenService}. Select the
+ * implementation with {@code ott.token-store.type} ({@code memory}, {@code griddb} or {@code
+ * jdbc}).
+ */
+public interface OneTimeTokenStore {
+
+  void save(OneTimeToken token);
+
+  /**
+   * Removes the token and returns it. When several callers race for the same token at most one of
+   * them receives it.
+   *
+   * @return the stored token or {@code null} if there is none
+   */
+  @Nullable
+  OneTimeToken take(String tokenValue);
+
+  /**
+   * Removes every token that expired before {@code now}.
+   *
+   * @return number of tokens removed
+   */
+  long removeExpired(Instant now);
+
+  /**
+   * Number of stored tokens, including expired ones that have not been swept yet. Called on every
+   * metrics scrape, so a remote store returns a periodically refreshed count.
+   */
+  long size();
+}
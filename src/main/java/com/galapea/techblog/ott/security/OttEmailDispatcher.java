@@ -0,0 +1,206 @@
+package com.galapea.techblog.ott.security;
+
+import com.galapea.techblog.ott.security.OttEmailService.OttEmail;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PreDestroy;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.core.env.Environment;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.stereotype.Component;
+
+/**
+ * Asynchronous delivery of one-time token emails. Emails wait in a bounded queue and are sent in
+ * batches on a dedicated executor (virtual threads when enabled), with a cap on concurrent batches.
+ * Failed emails are retried with jittered exponential backoff. When the queue is full new emails
+ * are dropped and counted instead of piling up; drops are logged as a summary at most every {@code
+ * DROP_LOG_INTERVAL}, without the recipients.
+ */
+@Slf4j
+@Component
+public class OttEmailDispatcher implements MeterBinder {
+
+  private static final long DROP_LOG_INTERVAL = TimeUnit.SECONDS.toNanos(10);
+
+  private final OttEmailService emailService;
+  private final BlockingQueue<OttEmail> queue;
+  private final int batchSize;
+  private final int maxAttempts;
+  private final Duration initialBackoff;
+  private final Duration maxBackoff;
+  private final SimpleAsyncTaskExecutor sendExecutor;
+  private final Thread dispatcher;
+  private volatile boolean running = true;
+
+  private final LongAdder submitted = new LongAdder();
+  private final LongAdder sent = new LongAdder();
+  private final LongAdder retried = new LongAdder();
+  private final LongAdder failed = new LongAdder();
+  private final LongAdder dropped = new LongAdder();
+  private final AtomicLong lastDropLog = new AtomicLong(System.nanoTime() - DROP_LOG_INTERVAL);
+  // only written by the thread that won lastDropLog
+  private long droppedAtLastLog;
+
+  public OttEmailDispatcher(
+      OttEmailService emailService,
+      @Value("${ott.mail.queue-capacity:1000}") int queueCapacity,
+      @Value("${ott.mail.batch-size:20}") int batchSize,
+      @Value("${ott.mail.max-concurrent-batches:4}") int maxConcurrentBatches,
+      @Value("${ott.mail.max-attempts:4}") int maxAttempts,
+      @Value("${ott.mail.initial-backoff:500ms}") Duration initialBackoff,
+      @Value("${ott.mail.max-backoff:10s}") Duration maxBackoff,
+      Environment environment) {
+    this.emailService = emailService;
+    this.queue = new ArrayBlockingQueue<>(queueCapacity);
+    this.batchSize = batchSize;
+    this.maxAttempts = maxAttempts;
+    this.initialBackoff = initialBackoff;
+    this.maxBackoff = maxBackoff;
+    this.sendExecutor = new SimpleAsyncTaskExecutor("ott-mail-");
+    this.sendExecutor.setVirtualThreads(Threading.VIRTUAL.isActive(environment));
+    this.sendExecutor.setConcurrencyLimit(maxConcurrentBatches);
+    this.dispatcher = new Thread(this::dispatchLoop, "ott-mail-dispatcher");
+    this.dispatcher.setDaemon(true);
+    this.dispatcher.start();
+  }
+
+  /**
+   * Queues an email for delivery.
+   *
+   * @return {@code false} if the queue is full and the email was dropped
+   */
+  public boolean submit(String to, String ottLink) {
+    if (!running || !queue.offer(new OttEmail(to, ottLink))) {
+      dropped.increment();
+      logDrops();
+      return false;
+    }
+    submitted.increment();
+    return true;
+  }
+
+  private void logDrops() {
+    long now = System.nanoTime();
+    long last = lastDropLog.get();
+    if (now - last >= DROP_LOG_INTERVAL && lastDropLog.compareAndSet(last, now)) {
+      long total = dropped.sum();
+      log.warn(
+          "OTT email queue is full, dropped {} emails since the last report",
+          total - droppedAtLastLog);
+      droppedAtLastLog = total;
+    }
+  }
+
+  private void dispatchLoop() {
+    while (running) {
+      try {
+        OttEmail first = queue.take();
+        List<OttEmail> batch = new ArrayList<>(batchSize);
+        batch.add(first);
+        queue.drainTo(batch, batchSize - 1);
+        sendExecutor.execute(() -> deliver(batch));
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        break;
+      } catch (RuntimeException e) {
+        log.error("OTT email dispatch failed", e);
+      }
+    }
+  }
+
+  private void deliver(List<OttEmail> batch) {
+    List<OttEmail> pending = batch;
+    for (int attempt = 1; ; attempt++) {
+      List<OttEmail> undelivered = emailService.send(pending);
+      sent.add(pending.size() - undelivered.size());
+      if (undelivered.isEmpty()) {
+        return;
+      }
+      if (attempt >= maxAttempts) {
+        failed.add(undelivered.size());
+        log.error("Giving up on {} OTT emails after {} attempts", undelivered.size(), attempt);
+        return;
+      }
+      retried.add(undelivered.size());
+      try {
+        Thread.sleep(backoff(attempt).toMillis());
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        failed.add(undelivered.size());
+        return;
+      }
+      pending = undelivered;
+    }
+  }
+
+  private Duration backoff(int attempt) {
+    long exponential = initialBackoff.toMillis() << Math.min(attempt - 1, 20);
+    long capped = Math.min(exponential, maxBackoff.toMillis());
+    return Duration.ofMillis(capped / 2 + ThreadLocalRandom.current().nextLong(capped / 2 + 1));
+  }
+
+  @PreDestroy
+  void shutdown() {
+    running = false;
+    dispatcher.interrupt();
+    if (!queue.isEmpty()) {
+      log.warn("{} OTT emails were still queued at shutdown", queue.size());
+    }
+  }
+
+  public int queueSize() {
+    return queue.size();
+  }
+
+  public long submitted() {
+    return submitted.sum();
+  }
+
+  public long sent() {
+    return sent.sum();
+  }
+
+  public long retried() {
+    return retried.sum();
+  }
+
+  public long failed() {
+    return failed.sum();
+  }
+
+  public long dropped() {
+    return dropped.sum();
+  }
+
+  @Override
+  public void bindTo(MeterRegistry registry) {
+    Gauge.builder("ott.mail.queue.size", queue, BlockingQueue::size)
+        .description("OTT emails waiting to be sent")
+        .register(registry);
+    bindCounter(registry, "ott.mail.submitted", submitted, "OTT emails queued");
+    bindCounter(registry, "ott.mail.sent", sent, "OTT emails delivered");
+    bindCounter(registry, "ott.mail.retried", retried, "OTT email delivery retries");
+    bindCounter(registry, "ott.mail.failed", failed, "OTT emails given up after all attempts");
+    bindCounter(registry, "ott.mail.dropped", dropped, "OTT emails dropped on a full queue");
+  }
+
+  private static void bindCounter(
+      MeterRegistry registry, String name, LongAdder counter, String description) {
+    FunctionCounter.builder(name, counter, LongAdder::sum)
+        .description(description)
+        .register(registry);
+  }
+}
@@ -1,14 +1,97 @@
 package com.galapea.techblog.ott.security;
 
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.mail.MailException;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.SimpleMailMessage;
+import org.springframework.mail.javamail.JavaMailSender;
 import org.springframework.stereotype.Component;
 
+/**
+ * Sends one-time token links. A batch goes out through a single SMTP connection. Without {@code
+ * spring.mail.host} there is no mail sender and the links are only logged.
+ */
 @Component
 @Slf4j
 public class OttEmailService {
 
+  public record OttEmail(String to, String ottLink) {}
+
+  private final ObjectProvider<JavaMailSender> mailSenderProvider;
+  private final String from;
+  private final String subject;
+
+  public OttEmailService(
+      ObjectProvider<JavaMailSender> mailSenderProvider,
+      @Value("${ott.mail.from:no-reply@example.com}") String from,
+      @Value("${ott.mail.subject:Your sign-in link}") String subject) {
+    this.mailSenderProvider = mailSenderProvider;
+    this.from = from;
+    this.subject = subject;
+  }
+
   public void sendEmail(String to, String ottLink) {
-    log.info("<<<<<<<< Sending OTT Email to {} >>>>>", to);
-    log.info("<<<<<<<< Link to sign in: {} >>>>>", ottLink);
+    List<OttEmail> failed = send(List.of(new OttEmail(to, ottLink)));
+    if (!failed.isEmpty()) {
+      throw new MailSendException("Failed to send OTT email to " + to);
+    }
+  }
+
+  /**
+   * Sends the emails over one SMTP connection.
+   *
+   * @return the emails that could not be sent
+   */
+  public List<OttEmail> send(List<OttEmail> emails) {
+    JavaMailSender mailSender = mailSenderProvider.getIfAvailable();
+    if (mailSender == null) {
+      for (OttEmail email : emails) {
+        log.info("<<<<<<<< Sending OTT Email to {} >>>>>", email.to());
+        log.info("<<<<<<<< Link to sign in: {} >>>>>", email.ottLink());
+      }
+      return List.of();
+    }
+    Map<SimpleMailMessage, OttEmail> messages = new IdentityHashMap<>();
+    for (OttEmail email : emails) {
+      messages.put(toMessage(email), email);
+    }
+    try {
+      mailSender.send(messages.keySet().toArray(new SimpleMailMessage[0]));
+      return List.of();
+    } catch (MailSendException e) {
+      if (e.getFailedMessages().isEmpty()) {
+        log.warn("Failed to send {} OTT emails: {}", emails.size(), e.getMessage());
+        return emails;
+      }
+      List<OttEmail> failed = new ArrayList<>(e.getFailedMessages().size());
+      for (Object message : e.getFailedMessages().keySet()) {
+        OttEmail email = messages.get(message);
+        if (email != null) {
+          failed.add(email);
+        }
+      }
+      log.warn("Failed to send {} of {} OTT emails", failed.size(), emails.size());
+      return failed;
+    } catch (MailException e) {
+      log.warn("Failed to send {} OTT emails: {}", emails.size(), e.getMessage());
+      return emails;
+    }
+  }
+
+  private SimpleMailMessage toMessage(OttEmail email) {
+    SimpleMailMessage message = new SimpleMailMessage();
+    message.setFrom(from);
+    message.setTo(email.to());
+    message.setSubject(subject);
+    message.setText(
+        "Use the link below to sign in. It can be used once and expires in 5 minutes.\n\n"
+            + email.ottLink());
+    return message;
   }
 }
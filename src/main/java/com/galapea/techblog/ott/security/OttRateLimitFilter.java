@@ -0,0 +1,43 @@
+package com.galapea.techblog.ott.security;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.web.util.matcher.AntPathRequestMatcher;
+import org.springframework.security.web.util.matcher.RequestMatcher;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+/**
+ * Answers one-time token requests over the {@link OttRateLimiter} limits with 429 before they reach
+ * token generation. Added to the security filter chain only, not registered as a servlet filter.
+ */
+class OttRateLimitFilter extends OncePerRequestFilter {
+
+  private final RequestMatcher generateRequest =
+      new AntPathRequestMatcher("/ott/generate", HttpMethod.POST.name());
+  private final OttRateLimiter rateLimiter;
+
+  OttRateLimitFilter(OttRateLimiter rateLimiter) {
+    this.rateLimiter = rateLimiter;
+  }
+
+  @Override
+  protected boolean shouldNotFilter(HttpServletRequest request) {
+    return !generateRequest.matches(request);
+  }
+
+  @Override
+  protected void doFilterInternal(
+      HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+      throws ServletException, IOException {
+    if (!rateLimiter.tryAcquire(request)) {
+      response.sendError(HttpStatus.TOO_MANY_REQUESTS.value());
+      return;
+    }
+    filterChain.doFilter(request, response);
+  }
+}
@@ -0,0 +1,104 @@
+package com.galapea.techblog.ott.security;
+
+import com.galapea.techblog.ott.util.RateLimiter;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.servlet.http.HttpServletRequest;
+import java.time.Duration;
+import java.util.Locale;
+import java.util.concurrent.atomic.LongAdder;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Throttles one-time token requests per client IP and per username, so a script cannot flood token
+ * storage and the email queue. Both checks only touch in-memory buckets and run before the user is
+ * looked up or a token is created.
+ *
+ * <p>The client IP is {@link HttpServletRequest#getRemoteAddr()}; behind a proxy set {@code
+ * server.forward-headers-strategy} so it is the caller's address and not the proxy's.
+ */
+@Slf4j
+@Component
+public class OttRateLimiter implements MeterBinder {
+
+  private final boolean enabled;
+  private final RateLimiter byIp;
+  private final RateLimiter byUsername;
+
+  private final LongAdder allowed = new LongAdder();
+  private final LongAdder rejectedIp = new LongAdder();
+  private final LongAdder rejectedUsername = new LongAdder();
+
+  public OttRateLimiter(
+      @Value("${ott.rate-limit.enabled:true}") boolean enabled,
+      @Value("${ott.rate-limit.ip.capacity:20}") int ipCapacity,
+      @Value("${ott.rate-limit.ip.period:1m}") Duration ipPeriod,
+      @Value("${ott.rate-limit.username.capacity:3}") int usernameCapacity,
+      @Value("${ott.rate-limit.username.period:5m}") Duration usernamePeriod,
+      @Value("${ott.rate-limit.max-keys:100000}") int maxKeys) {
+    this.enabled = enabled;
+    this.byIp = new RateLimiter(ipCapacity, ipPeriod, maxKeys);
+    this.byUsername = new RateLimiter(usernameCapacity, usernamePeriod, maxKeys);
+  }
+
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  /** Takes a token for the caller's IP, then for the requested username. */
+  public boolean tryAcquire(HttpServletRequest request) {
+    if (!byIp.tryAcquire(request.getRemoteAddr())) {
+      rejectedIp.increment();
+      log.debug("Too many one-time token requests from {}", request.getRemoteAddr());
+      return false;
+    }
+    String username = request.getParameter("username");
+    if (username != null && !byUsername.tryAcquire(username.trim().toLowerCase(Locale.ROOT))) {
+      rejectedUsername.increment();
+      log.debug("Too many one-time token requests for {}", username);
+      return false;
+    }
+    allowed.increment();
+    return true;
+  }
+
+  @Scheduled(fixedDelayString = "${ott.rate-limit.sweep-interval:PT1M}")
+  public void removeExpiredBuckets() {
+    int removed = byIp.evictExpired() + byUsername.evictExpired();
+    if (removed > 0) {
+      log.debug("Removed {} idle rate limit buckets", removed);
+    }
+  }
+
+  @Override
+  public void bindTo(MeterRegistry registry) {
+    if (!enabled) {
+      return;
+    }
+    FunctionCounter.builder("ott.ratelimit.allowed", allowed, LongAdder::sum)
+        .description("One-time token requests within the rate limits")
+        .register(registry);
+    bindRejected(registry, "ip", rejectedIp);
+    bindRejected(registry, "username", rejectedUsername);
+    Gauge.builder("ott.ratelimit.buckets", byIp, RateLimiter::size)
+        .description("Rate limit buckets kept in memory")
+        .tag("key", "ip")
+        .register(registry);
+    Gauge.builder("ott.ratelimit.buckets", byUsername, RateLimiter::size)
+        .description("Rate limit buckets kept in memory")
+        .tag("key", "username")
+        .register(registry);
+  }
+
+  private static void bindRejected(MeterRegistry registry, String key, LongAdder counter) {
+    FunctionCounter.builder("ott.ratelimit.rejected", counter, LongAdder::sum)
+        .description("One-time token requests rejected by a rate limit")
+        .tag("key", key)
+        .register(registry);
+  }
+}
@@ -0,0 +1,63 @@
+package com.galapea.techblog.ott.security;
+
+import com.galapea.techblog.ott.model.UserRecord;
+import java.util.HashMap;
+import java.util.Map;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.DelegatingPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.security.crypto.password.Pbkdf2PasswordEncoder;
+import org.springframework.security.crypto.password.Pbkdf2PasswordEncoder.SecretKeyFactoryAlgorithm;
+
+/**
+ * The password hashing policy. New hashes use the configured encoder and cost; stored {@code
+ * {id}hash} values of either supported encoder keep matching. A hash made with the other encoder or
+ * a lower bcrypt strength is re-encoded after the next successful password login.
+ *
+ * <p>Accounts that only sign in with one-time tokens store {@link UserRecord#NO_PASSWORD}, which is
+ * written without hashing and never matches a password. Pick the cost with {@code
+ * PasswordEncoderBenchmark}: the highest one whose {@code matches} stays within the login latency
+ * budget.
+ */
+public final class PasswordEncoders {
+
+  static final String BCRYPT_ID = "bcrypt";
+  static final String PBKDF2_ID = "pbkdf2@SpringSecurity_v5_8";
+
+  private PasswordEncoders() {}
+
+  /**
+   * @param encoder {@code bcrypt} or {@code pbkdf2}, used for new hashes
+   * @param bcryptStrength log2 of the bcrypt rounds, 4 to 31
+   * @param pbkdf2Iterations PBKDF2-HMAC-SHA256 iterations
+   */
+  public static PasswordEncoder create(String encoder, int bcryptStrength, int pbkdf2Iterations) {
+    String idForEncode =
+        switch (encoder) {
+          case "bcrypt" -> BCRYPT_ID;
+          case "pbkdf2" -> PBKDF2_ID;
+          default -> throw new IllegalArgumentException("Unsupported password encoder: " + encoder);
+        };
+    Map<String, PasswordEncoder> encoders = new HashMap<>();
+    encoders.put(BCRYPT_ID, new BCryptPasswordEncoder(bcryptStrength));
+    encoders.put(
+        PBKDF2_ID,
+        new Pbkdf2PasswordEncoder(
+            "", 16, pbkdf2Iterations, SecretKeyFactoryAlgorithm.PBKDF2WithHmacSHA256));
+    encoders.put("nologin", new NoLoginPasswordEncoder());
+    return new DelegatingPasswordEncoder(idForEncode, encoders);
+  }
+
+  private static final class NoLoginPasswordEncoder implements PasswordEncoder {
+
+    @Override
+    public String encode(CharSequence rawPassword) {
+      throw new UnsupportedOperationException("Accounts without a password cannot get one");
+    }
+
+    @Override
+    public boolean matches(CharSequence rawPassword, String encodedPassword) {
+      return false;
+    }
+  }
+}
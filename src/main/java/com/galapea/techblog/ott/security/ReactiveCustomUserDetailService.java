@@ -0,0 +1,29 @@
+package com.galapea.techblog.ott.security;
+
+import com.galapea.techblog.ott.service.ReactiveUsersContainerClient;
+import lombok.AllArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.security.core.userdetails.ReactiveUserDetailsService;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+
+/**
+ * {@link ReactiveUserDetailsService} over {@link ReactiveUsersContainerClient}, with the same
+ * authorities as {@link CustomUserDetailService}. An unknown email yields an empty result.
+ */
+@Service
+@AllArgsConstructor
+@ConditionalOnProperty(name = "griddb.reactive.enabled", havingValue = "true")
+public class ReactiveCustomUserDetailService implements ReactiveUserDetailsService {
+
+  private final ReactiveUsersContainerClient reactiveUsersContainerClient;
+  private final UserAuthorities userAuthorities;
+
+  @Override
+  public Mono<UserDetails> findByUsername(String email) {
+    return reactiveUsersContainerClient
+        .getUserByEmail(email)
+        .map(user -> CustomUserDetailService.toUserDetails(user, userAuthorities.of(user.id())));
+  }
+}
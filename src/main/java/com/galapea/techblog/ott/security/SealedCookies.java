@@ -0,0 +1,147 @@
+package com.galapea.techblog.ott.security;
+
+import jakarta.servlet.http.Cookie;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.util.Base64;
+import javax.crypto.Cipher;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseCookie;
+import org.springframework.lang.Nullable;
+
+/**
+ * Cookies whose value is encrypted and authenticated with AES-GCM, so the client can neither read
+ * nor change them. The cookie name is bound to the value, which cannot be moved to another cookie.
+ * Every node sharing the key reads the cookies of the others.
+ */
+@Slf4j
+final class SealedCookies {
+
+  private static final String TRANSFORMATION = "AES/GCM/NoPadding";
+  private static final int NONCE_BYTES = 12;
+  private static final int TAG_BITS = 128;
+  private static final int MAX_COOKIE_CHARS = 4000;
+  private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+  private static final Base64.Decoder DECODER = Base64.getUrlDecoder();
+
+  private final SecretKey key;
+  private final SecureRandom random = new SecureRandom();
+
+  /**
+   * @param secret Base64 of a 16, 24 or 32 byte AES key; a random key is used when blank
+   */
+  SealedCookies(String secret) {
+    byte[] bytes;
+    if (secret.isBlank()) {
+      log.warn("security.session.cookie.secret is not set, session cookies use a random key");
+      bytes = new byte[32];
+      random.nextBytes(bytes);
+    } else {
+      bytes = Base64.getDecoder().decode(secret);
+      if (bytes.length != 16 && bytes.length != 24 && bytes.length != 32) {
+        throw new IllegalArgumentException(
+            "security.session.cookie.secret must be a 16, 24 or 32 byte key, got " + bytes.length);
+      }
+    }
+    this.key = new SecretKeySpec(bytes, "AES");
+  }
+
+  /** Decrypted value of the cookie, or {@code null} if it is missing or was not sealed by us. */
+  @Nullable
+  byte[] read(HttpServletRequest request, String name) {
+    Cookie[] cookies = request.getCookies();
+    if (cookies == null) {
+      return null;
+    }
+    for (Cookie cookie : cookies) {
+      if (name.equals(cookie.getName())) {
+        return open(name, cookie.getValue());
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Sets the cookie to the encrypted content.
+   *
+   * @return {@code false} if the sealed value is too large for a cookie and was not written
+   */
+  boolean write(
+      HttpServletRequest request,
+      HttpServletResponse response,
+      String name,
+      byte[] content,
+      Duration maxAge) {
+    String value = seal(name, content);
+    if (value.length() > MAX_COOKIE_CHARS) {
+      log.warn("Cookie {} would take {} characters, not written", name, value.length());
+      return false;
+    }
+    addCookie(request, response, name, value, maxAge);
+    return true;
+  }
+
+  void delete(HttpServletRequest request, HttpServletResponse response, String name) {
+    addCookie(request, response, name, "", Duration.ZERO);
+  }
+
+  private static void addCookie(
+      HttpServletRequest request,
+      HttpServletResponse response,
+      String name,
+      String value,
+      Duration maxAge) {
+    String path = request.getContextPath();
+    ResponseCookie cookie =
+        ResponseCookie.from(name, value)
+            .path(path.isEmpty() ? "/" : path)
+            .maxAge(maxAge)
+            .httpOnly(true)
+            .secure(request.isSecure())
+            .sameSite("Lax")
+            .build();
+    response.addHeader(HttpHeaders.SET_COOKIE, cookie.toString());
+  }
+
+  private String seal(String name, byte[] content) {
+    try {
+      byte[] nonce = new byte[NONCE_BYTES];
+      random.nextBytes(nonce);
+      Cipher cipher = Cipher.getInstance(TRANSFORMATION);
+      cipher.init(Cipher.ENCRYPT_MODE, key, new GCMParameterSpec(TAG_BITS, nonce));
+      cipher.updateAAD(name.getBytes(StandardCharsets.UTF_8));
+      ByteBuffer sealed = ByteBuffer.allocate(NONCE_BYTES + cipher.getOutputSize(content.length));
+      sealed.put(nonce);
+      cipher.doFinal(ByteBuffer.wrap(content), sealed);
+      return ENCODER.encodeToString(sealed.array());
+    } catch (GeneralSecurityException e) {
+      throw new IllegalStateException("Cannot encrypt cookie " + name, e);
+    }
+  }
+
+  @Nullable
+  private byte[] open(String name, String value) {
+    try {
+      byte[] sealed = DECODER.decode(value);
+      if (sealed.length <= NONCE_BYTES) {
+        return null;
+      }
+      Cipher cipher = Cipher.getInstance(TRANSFORMATION);
+      cipher.init(Cipher.DECRYPT_MODE, key, new GCMParameterSpec(TAG_BITS, sealed, 0, NONCE_BYTES));
+      cipher.updateAAD(name.getBytes(StandardCharsets.UTF_8));
+      return cipher.doFinal(sealed, NONCE_BYTES, sealed.length - NONCE_BYTES);
+    } catch (IllegalArgumentException | GeneralSecurityException e) {
+      log.debug("Ignoring cookie {} that cannot be decrypted: {}", name, e.getMessage());
+      return null;
+    }
+  }
+}
@@ -1,29 +1,60 @@
 package com.galapea.techblog.ott.security;
 
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.annotation.Order;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.ProviderManager;
 import org.springframework.security.authentication.dao.DaoAuthenticationProvider;
+import org.springframework.security.authentication.ott.OneTimeTokenService;
 import org.springframework.security.config.Customizer;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.config.annotation.web.configurers.HeadersConfigurer.FrameOptionsConfig;
-import org.springframework.security.crypto.factory.PasswordEncoderFactories;
+import org.springframework.security.config.http.SessionCreationPolicy;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.web.SecurityFilterChain;
 import org.springframework.security.web.authentication.AuthenticationSuccessHandler;
+import org.springframework.security.web.authentication.ott.GenerateOneTimeTokenFilter;
+import org.springframework.security.web.csrf.CookieCsrfTokenRepository;
+import org.springframework.security.web.savedrequest.CookieRequestCache;
 import org.springframework.security.web.util.matcher.AntPathRequestMatcher;
 
 @Configuration
 @EnableWebSecurity
 public class SecurityConfig {
 
+  static final String CSRF_HEADER_NAME = "X-CSRF-TOKEN";
+
+  /**
+   * Actuator endpoints: health stays public for probes, everything else, Prometheus included, needs
+   * an admin. Scrapers authenticate with HTTP basic.
+   */
+  @Bean
+  @Order(1)
+  public SecurityFilterChain actuatorSecurityFilterChain(HttpSecurity http) throws Exception {
+    http.securityMatcher("/actuator/**")
+        .authorizeHttpRequests(
+            authorize ->
+                authorize
+                    .requestMatchers("/actuator/health", "/actuator/health/**")
+                    .permitAll()
+                    .anyRequest()
+                    .hasAuthority(UserAuthorities.ADMIN_ROLE))
+        .httpBasic(Customizer.withDefaults());
+    return http.build();
+  }
+
   @Bean
+  @Order(2)
   public SecurityFilterChain securityFilterChain(
       HttpSecurity http,
       SendLinkOneTimeTokenGenerationSuccessHandler successHandler,
-      CustomOneTimeTokenService customOneTimeTokenService)
+      OneTimeTokenService oneTimeTokenService,
+      OttRateLimiter ottRateLimiter,
+      ObjectProvider<CookieSecurityContextRepository> cookieSecurityContextRepository)
       throws Exception {
     AuthenticationSuccessHandler ottLoginsuccessHandler =
         (request, response, authentication) -> response.sendRedirect("/");
@@ -64,24 +95,49 @@ public class SecurityConfig {
             configurer ->
                 configurer
                     .tokenGenerationSuccessHandler(successHandler)
-                    .tokenService(customOneTimeTokenService)
+                    .tokenService(oneTimeTokenService)
                     .showDefaultSubmitPage(false)
                     .authenticationSuccessHandler(ottLoginsuccessHandler));
+    if (ottRateLimiter.isEnabled()) {
+      http.addFilterBefore(
+          new OttRateLimitFilter(ottRateLimiter), GenerateOneTimeTokenFilter.class);
+    }
+    CookieSecurityContextRepository contextRepository =
+        cookieSecurityContextRepository.getIfAvailable();
+    if (contextRepository != null) {
+      // no HttpSession: the login, CSRF token and saved request are kept in cookies
+      CookieCsrfTokenRepository csrfTokenRepository = new CookieCsrfTokenRepository();
+      // the header of the session-backed repository, which the API clients send in both modes
+      csrfTokenRepository.setHeaderName(CSRF_HEADER_NAME);
+      http.securityContext(context -> context.securityContextRepository(contextRepository))
+          .sessionManagement(
+              session -> session.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
+          .csrf(csrf -> csrf.csrfTokenRepository(csrfTokenRepository))
+          .requestCache(cache -> cache.requestCache(new CookieRequestCache()));
+    }
 
     return http.build();
   }
 
   @Bean
-  public PasswordEncoder passwordEncoder() {
-    return PasswordEncoderFactories.createDelegatingPasswordEncoder();
+  public PasswordEncoder passwordEncoder(
+      @Value("${security.password.encoder:bcrypt}") String encoder,
+      @Value("${security.password.bcrypt.strength:10}") int bcryptStrength,
+      @Value("${security.password.pbkdf2.iterations:310000}") int pbkdf2Iterations) {
+    return PasswordEncoders.create(encoder, bcryptStrength, pbkdf2Iterations);
   }
 
   @Bean
   public AuthenticationManager authenticationManager(
-      CustomUserDetailService userDetailsService, PasswordEncoder passwordEncoder) {
+      CustomUserDetailService userDetailsService,
+      PasswordEncoder passwordEncoder,
+      @Value("${security.password.upgrade-on-login:true}") boolean upgradeOnLogin) {
     DaoAuthenticationProvider provider = new DaoAuthenticationProvider();
     provider.setUserDetailsService(userDetailsService);
     provider.setPasswordEncoder(passwordEncoder);
+    if (upgradeOnLogin) {
+      provider.setUserDetailsPasswordService(userDetailsService);
+    }
     return new ProviderManager(provider);
   }
 }
@@ -4,7 +4,6 @@ import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import java.io.IOException;
-import java.util.concurrent.CompletableFuture;
 import lombok.SneakyThrows;
 import org.springframework.security.authentication.ott.OneTimeToken;
 import org.springframework.security.web.authentication.ott.OneTimeTokenGenerationSuccessHandler;
@@ -13,7 +12,6 @@ import org.springframework.security.web.util.UrlUtils;
 import org.springframework.stereotype.Component;
 import org.springframework.web.servlet.FlashMap;
 import org.springframework.web.servlet.FlashMapManager;
-import org.springframework.web.servlet.support.SessionFlashMapManager;
 import org.springframework.web.servlet.view.RedirectView;
 import org.springframework.web.util.UriComponentsBuilder;
 
@@ -21,13 +19,15 @@ import org.springframework.web.util.UriComponentsBuilder;
 public class SendLinkOneTimeTokenGenerationSuccessHandler
     implements OneTimeTokenGenerationSuccessHandler {
 
-  private final OttEmailService emailService;
+  private final OttEmailDispatcher emailDispatcher;
   private final OneTimeTokenGenerationSuccessHandler redirectHandler =
       new RedirectOneTimeTokenGenerationSuccessHandler("/ott/sent");
-  private final FlashMapManager flashMapManager = new SessionFlashMapManager();
+  private final FlashMapManager flashMapManager;
 
-  public SendLinkOneTimeTokenGenerationSuccessHandler(OttEmailService emailService) {
-    this.emailService = emailService;
+  public SendLinkOneTimeTokenGenerationSuccessHandler(
+      OttEmailDispatcher emailDispatcher, FlashMapManager flashMapManager) {
+    this.emailDispatcher = emailDispatcher;
+    this.flashMapManager = flashMapManager;
   }
 
   @Override
@@ -43,7 +43,7 @@ public class SendLinkOneTimeTokenGenerationSuccessHandler
             .path("/ott/submit")
             .queryParam("token", oneTimeToken.getTokenValue());
     String link = builder.toUriString();
-    CompletableFuture.runAsync(() -> emailService.sendEmail(oneTimeToken.getUsername(), link));
+    emailDispatcher.submit(oneTimeToken.getUsername(), link);
     // redirectHandler.handle(request, response, oneTimeToken);
     RedirectView redirectView = new RedirectView("/ott/sent");
     redirectView.setExposeModelAttributes(false);
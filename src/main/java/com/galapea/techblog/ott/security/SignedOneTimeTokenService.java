@@ -0,0 +1,205 @@
+package com.galapea.techblog.ott.security;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.concurrent.atomic.LongAdder;
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.lang.NonNull;
+import org.springframework.lang.Nullable;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.authentication.ott.DefaultOneTimeToken;
+import org.springframework.security.authentication.ott.GenerateOneTimeTokenRequest;
+import org.springframework.security.authentication.ott.OneTimeToken;
+import org.springframework.security.authentication.ott.OneTimeTokenAuthenticationToken;
+import org.springframework.security.authentication.ott.OneTimeTokenService;
+import org.springframework.stereotype.Service;
+import org.springframework.util.Assert;
+
+/**
+ * One-time tokens that carry their own state: the token is the expiry, a random nonce and the
+ * username, followed by a truncated HMAC-SHA256 of them, in URL-safe Base64 (signed, not
+ * encrypted). Nothing is stored when a token is generated; a consumed token's nonce is kept in
+ * {@link SpentNonces} until the token expires, so it cannot be used twice.
+ *
+ * <p>Every node sharing {@code ott.signed.secret} accepts the tokens, but the spent nonces are
+ * node-local: with several nodes, route {@code /login/ott} consistently or use the stored mode.
+ * Without a secret a random key is generated, and tokens do not survive a restart. Enabled with
+ * {@code ott.token-mode=signed}.
+ */
+@Slf4j
+@Service
+@ConditionalOnProperty(name = "ott.token-mode", havingValue = "signed")
+public class SignedOneTimeTokenService implements OneTimeTokenService, MeterBinder {
+
+  private static final Duration TOKEN_TTL = Duration.ofMinutes(5);
+  private static final String ALGORITHM = "HmacSHA256";
+  private static final int MAC_BYTES = 16;
+  private static final int HEADER_BYTES = Long.BYTES + Long.BYTES;
+  private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+  private static final Base64.Decoder DECODER = Base64.getUrlDecoder();
+
+  private final Mac prototype;
+  private final SecureRandom random = new SecureRandom();
+  private final SpentNonces spentNonces;
+
+  private final LongAdder generated = new LongAdder();
+  private final LongAdder consumed = new LongAdder();
+  private final LongAdder rejectedUnknown = new LongAdder();
+  private final LongAdder rejectedExpired = new LongAdder();
+  private final LongAdder rejectedReused = new LongAdder();
+  private final LongAdder rejectedFull = new LongAdder();
+
+  private Clock clock = Clock.systemUTC();
+
+  public SignedOneTimeTokenService(
+      @Value("${ott.signed.secret:}") String secret,
+      @Value("${ott.signed.max-spent:100000}") int maxSpent) {
+    byte[] key;
+    if (secret.isBlank()) {
+      log.warn("ott.signed.secret is not set, one-time tokens are signed with a random key");
+      key = new byte[32];
+      random.nextBytes(key);
+    } else {
+      key = Base64.getDecoder().decode(secret);
+      if (key.length < 32) {
+        throw new IllegalArgumentException("ott.signed.secret must be at least 32 bytes");
+      }
+    }
+    try {
+      this.prototype = Mac.getInstance(ALGORITHM);
+      this.prototype.init(new SecretKeySpec(key, ALGORITHM));
+    } catch (GeneralSecurityException e) {
+      throw new IllegalStateException("Cannot initialize " + ALGORITHM, e);
+    }
+    this.spentNonces = new SpentNonces(TOKEN_TTL.dividedBy(10), maxSpent);
+  }
+
+  /** Clock used for token expiry, for tests. */
+  public void setClock(Clock clock) {
+    Assert.notNull(clock, "clock cannot be null");
+    this.clock = clock;
+  }
+
+  @Override
+  @NonNull
+  public OneTimeToken generate(GenerateOneTimeTokenRequest request) {
+    Instant expiresAt = this.clock.instant().plus(TOKEN_TTL);
+    byte[] username = request.getUsername().getBytes(StandardCharsets.UTF_8);
+    ByteBuffer token = ByteBuffer.allocate(HEADER_BYTES + username.length + MAC_BYTES);
+    token.putLong(expiresAt.toEpochMilli()).putLong(random.nextLong()).put(username);
+    token.put(sign(token.array(), token.position()), 0, MAC_BYTES);
+    generated.increment();
+    return new DefaultOneTimeToken(
+        ENCODER.encodeToString(token.array()), request.getUsername(), expiresAt);
+  }
+
+  @Override
+  @Nullable
+  public OneTimeToken consume(OneTimeTokenAuthenticationToken authenticationToken) {
+    byte[] token = decode(authenticationToken.getTokenValue());
+    int signed = token == null ? 0 : token.length - MAC_BYTES;
+    if (signed <= HEADER_BYTES
+        || !MessageDigest.isEqual(
+            Arrays.copyOf(sign(token, signed), MAC_BYTES),
+            Arrays.copyOfRange(token, signed, token.length))) {
+      rejectedUnknown.increment();
+      return null;
+    }
+    ByteBuffer payload = ByteBuffer.wrap(token, 0, signed);
+    Instant expiresAt = Instant.ofEpochMilli(payload.getLong());
+    long nonce = payload.getLong();
+    if (this.clock.instant().isAfter(expiresAt)) {
+      rejectedExpired.increment();
+      return null;
+    }
+    switch (spentNonces.add(nonce, expiresAt)) {
+      case SPENT -> {
+        rejectedReused.increment();
+        return null;
+      }
+      case FULL -> {
+        rejectedFull.increment();
+        log.warn("Spent one-time token nonces are at their limit, rejected a login");
+        return null;
+      }
+      default -> {}
+    }
+    consumed.increment();
+    String username =
+        new String(token, HEADER_BYTES, signed - HEADER_BYTES, StandardCharsets.UTF_8);
+    return new DefaultOneTimeToken(authenticationToken.getTokenValue(), username, expiresAt);
+  }
+
+  @Nullable
+  private static byte[] decode(@Nullable String tokenValue) {
+    if (tokenValue == null) {
+      return null;
+    }
+    try {
+      return DECODER.decode(tokenValue);
+    } catch (IllegalArgumentException e) {
+      return null;
+    }
+  }
+
+  private byte[] sign(byte[] payload, int length) {
+    try {
+      Mac mac = (Mac) prototype.clone();
+      mac.update(payload, 0, length);
+      return mac.doFinal();
+    } catch (CloneNotSupportedException e) {
+      throw new IllegalStateException(ALGORITHM + " cannot be cloned", e);
+    }
+  }
+
+  @Scheduled(fixedDelayString = "${ott.token-store.sweep-interval:PT30S}")
+  public void removeExpiredNonces() {
+    long removed = spentNonces.removeExpired(this.clock.instant());
+    if (removed > 0) {
+      log.debug("Removed {} expired one-time token nonces", removed);
+    }
+  }
+
+  /** Nonces of used tokens that have not expired yet. */
+  public long spentNonces() {
+    return spentNonces.size();
+  }
+
+  @Override
+  public void bindTo(MeterRegistry registry) {
+    Gauge.builder("ott.tokens.spent", spentNonces, SpentNonces::size)
+        .description("Nonces of used one-time tokens kept until the tokens expire")
+        .register(registry);
+    FunctionCounter.builder("ott.tokens.generated", generated, LongAdder::sum)
+        .description("One-time tokens generated")
+        .register(registry);
+    bindConsumed(registry, "success", consumed);
+    bindConsumed(registry, "unknown", rejectedUnknown);
+    bindConsumed(registry, "expired", rejectedExpired);
+    bindConsumed(registry, "reused", rejectedReused);
+    bindConsumed(registry, "full", rejectedFull);
+  }
+
+  private static void bindConsumed(MeterRegistry registry, String result, LongAdder counter) {
+    FunctionCounter.builder("ott.tokens.consumed", counter, LongAdder::sum)
+        .description("One-time token login attempts")
+        .tag("result", result)
+        .register(registry);
+  }
+}
@@ -0,0 +1,74 @@
+package com.galapea.techblog.ott.security;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Nonces of signed one-time tokens that have been used, kept only until the tokens expire. Nonces
+ * are grouped in buckets by the expiry of their token, so expired nonces are dropped a whole bucket
+ * at a time. The set holds at most {@code maxNonces}; when it is full, new nonces are refused, so
+ * tokens fail to log in rather than becoming reusable.
+ */
+final class SpentNonces {
+
+  private final Map<Long, Set<Long>> buckets = new ConcurrentHashMap<>();
+  private final long bucketMillis;
+  private final int maxNonces;
+
+  SpentNonces(Duration bucketWidth, int maxNonces) {
+    this.bucketMillis = bucketWidth.toMillis();
+    this.maxNonces = maxNonces;
+  }
+
+  enum Result {
+    ADDED,
+    SPENT,
+    FULL
+  }
+
+  /** Marks the nonce of a token expiring at {@code expiresAt} as used. */
+  Result add(long nonce, Instant expiresAt) {
+    // a bucket covers the tokens expiring up to its end, so it can go once its end has passed
+    long bucket = Math.floorDiv(expiresAt.toEpochMilli(), bucketMillis) + 1;
+    Set<Long> nonces = buckets.get(bucket);
+    if (nonces != null && nonces.contains(nonce)) {
+      return Result.SPENT;
+    }
+    if (size() >= maxNonces) {
+      return Result.FULL;
+    }
+    if (nonces == null) {
+      nonces = buckets.computeIfAbsent(bucket, key -> ConcurrentHashMap.newKeySet());
+    }
+    return nonces.add(nonce) ? Result.ADDED : Result.SPENT;
+  }
+
+  /**
+   * Drops the nonces of tokens that expired before {@code now}.
+   *
+   * @return number of nonces removed
+   */
+  long removeExpired(Instant now) {
+    long removed = 0;
+    long current = Math.floorDiv(now.toEpochMilli(), bucketMillis);
+    for (var iterator = buckets.entrySet().iterator(); iterator.hasNext(); ) {
+      var entry = iterator.next();
+      if (entry.getKey() <= current) {
+        removed += entry.getValue().size();
+        iterator.remove();
+      }
+    }
+    return removed;
+  }
+
+  long size() {
+    long size = 0;
+    for (Set<Long> nonces : buckets.values()) {
+      size += nonces.size();
+    }
+    return size;
+  }
+}
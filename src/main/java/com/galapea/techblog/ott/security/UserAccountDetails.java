@@ -0,0 +1,65 @@
+package com.galapea.techblog.ott.security;
+
+import java.util.Collection;
+import java.util.Set;
+import org.springframework.security.core.CredentialsContainer;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.userdetails.UserDetails;
+
+/**
+ * {@link UserDetails} that keeps the authority set it is given instead of copying it, so the
+ * interned sets of {@link UserAuthorities} are shared by every login. Equal by username, like
+ * Spring Security's {@code User}.
+ */
+final class UserAccountDetails implements UserDetails, CredentialsContainer {
+
+  private final String username;
+  private String password;
+  private final Set<GrantedAuthority> authorities;
+
+  UserAccountDetails(String username, String password, Set<GrantedAuthority> authorities) {
+    this.username = username;
+    this.password = password;
+    this.authorities = authorities;
+  }
+
+  @Override
+  public String getUsername() {
+    return username;
+  }
+
+  @Override
+  public String getPassword() {
+    return password;
+  }
+
+  @Override
+  public Collection<? extends GrantedAuthority> getAuthorities() {
+    return authorities;
+  }
+
+  @Override
+  public void eraseCredentials() {
+    password = null;
+  }
+
+  @Override
+  public boolean equals(Object other) {
+    return other instanceof UserAccountDetails details && username.equals(details.username);
+  }
+
+  @Override
+  public int hashCode() {
+    return username.hashCode();
+  }
+
+  @Override
+  public String toString() {
+    return getClass().getSimpleName()
+        + " [Username="
+        + username
+        + ", Authorities="
+        + authorities
+        + "]";
+  }
+}
@@ -0,0 +1,131 @@
+package com.galapea.techblog.ott.security;
+
+import com.galapea.techblog.ott.exception.GridDbException;
+import com.galapea.techblog.ott.service.UserRolesContainerClient;
+import com.galapea.techblog.ott.service.UserRolesContainerClient.UserRoles;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.stereotype.Component;
+
+/**
+ * Authorities of every user, held in memory so a login resolves them without a GridDB request.
+ * Users without a {@code UserRoles} row have {@link #DEFAULT_ROLE} only. The map is loaded once and
+ * then refreshed with the rows changed since the last refresh; the previous refresh is overlapped
+ * by {@code overlap} to tolerate clock differences between the nodes writing roles.
+ *
+ * <p>Authority sets are interned: every user with the same roles shares one immutable set, and each
+ * role is a single {@link GrantedAuthority} instance.
+ */
+@Slf4j
+@Component
+public class UserAuthorities implements MeterBinder {
+
+  public static final String DEFAULT_ROLE = "ROLE_USER";
+  public static final String ADMIN_ROLE = "ROLE_ADMIN";
+
+  private final UserRolesContainerClient userRolesContainerClient;
+  private final long overlapMillis;
+  private final Map<String, GrantedAuthority> authorities = new ConcurrentHashMap<>();
+  private final Map<String, Set<GrantedAuthority>> authoritySets = new ConcurrentHashMap<>();
+  private final Map<String, Set<GrantedAuthority>> byUserId = new ConcurrentHashMap<>();
+  private final Set<GrantedAuthority> defaultAuthorities;
+  private volatile long refreshedUpTo;
+
+  public UserAuthorities(
+      UserRolesContainerClient userRolesContainerClient,
+      @Value("${users.roles.refresh-overlap:1m}") Duration overlap) {
+    this.userRolesContainerClient = userRolesContainerClient;
+    this.overlapMillis = overlap.toMillis();
+    this.defaultAuthorities = authoritySet("");
+  }
+
+  /** Authorities of the user, shared with every user that has the same roles. */
+  public Set<GrantedAuthority> of(String userId) {
+    return byUserId.getOrDefault(userId, defaultAuthorities);
+  }
+
+  /**
+   * Replaces the roles a user has beyond {@link #DEFAULT_ROLE}.
+   *
+   * @param roles role names such as {@code ROLE_ADMIN}; empty to revoke all of them
+   */
+  public void assign(String userId, Set<String> roles) {
+    String joined = roles.stream().sorted().collect(Collectors.joining(","));
+    long now = System.currentTimeMillis();
+    userRolesContainerClient.put(new UserRoles(userId, joined, now));
+    apply(new UserRoles(userId, joined, now));
+  }
+
+  @Scheduled(
+      initialDelayString = "${users.roles.refresh-interval:PT30S}",
+      fixedDelayString = "${users.roles.refresh-interval:PT30S}")
+  public void refresh() {
+    long since = refreshedUpTo == 0 ? 0 : refreshedUpTo - overlapMillis;
+    try {
+      int changed = 0;
+      for (UserRoles userRoles : userRolesContainerClient.findUpdatedSince(Math.max(0, since))) {
+        if (apply(userRoles)) {
+          changed++;
+        }
+        refreshedUpTo = Math.max(refreshedUpTo, userRoles.updatedAt());
+      }
+      if (refreshedUpTo == 0) {
+        // nothing stored yet: later refreshes only need to look back the overlap
+        refreshedUpTo = System.currentTimeMillis();
+      }
+      if (changed > 0) {
+        log.debug("Refreshed the roles of {} users", changed);
+      }
+    } catch (GridDbException e) {
+      log.warn("Failed to refresh user roles, keeping the current ones: {}", e.getMessage());
+    }
+  }
+
+  /**
+   * @return whether the user's authorities changed
+   */
+  private boolean apply(UserRoles userRoles) {
+    Set<GrantedAuthority> updated = authoritySet(userRoles.roles());
+    Set<GrantedAuthority> previous =
+        updated == defaultAuthorities
+            ? byUserId.remove(userRoles.userId())
+            : byUserId.put(userRoles.userId(), updated);
+    return (previous == null ? defaultAuthorities : previous) != updated;
+  }
+
+  private Set<GrantedAuthority> authoritySet(String roles) {
+    String key =
+        Stream.concat(Stream.of(DEFAULT_ROLE), Arrays.stream(roles.split(",")))
+            .map(String::trim)
+            .filter(role -> !role.isEmpty())
+            .distinct()
+            .sorted()
+            .collect(Collectors.joining(","));
+    return authoritySets.computeIfAbsent(
+        key,
+        k ->
+            Arrays.stream(k.split(","))
+                .map(role -> authorities.computeIfAbsent(role, SimpleGrantedAuthority::new))
+                .collect(Collectors.toUnmodifiableSet()));
+  }
+
+  @Override
+  public void bindTo(MeterRegistry registry) {
+    Gauge.builder("users.roles.assigned", byUserId, Map::size)
+        .description("Users with roles beyond the default one")
+        .register(registry);
+  }
+}
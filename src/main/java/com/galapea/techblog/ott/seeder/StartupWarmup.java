@@ -0,0 +1,118 @@
+package com.galapea.techblog.ott.seeder;
+
+import com.galapea.techblog.ott.service.UsersContainerClient;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.core.annotation.Order;
+import org.springframework.core.env.Environment;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.springframework.stereotype.Component;
+
+/**
+ * Optional warm-up run after the seeder and before the application reports readiness. It opens
+ * pooled GridDB connections with concurrent requests, loads the warm-up users into the user cache
+ * and runs the login lookup path repeatedly so it is compiled before the first real login. Failures
+ * are logged and never stop the startup. The time taken is recorded as {@code
+ * app.startup.phase{phase=warmup}}.
+ */
+@Slf4j
+@Component
+@Order(1)
+@ConditionalOnProperty(name = "startup.warmup.enabled", havingValue = "true")
+public class StartupWarmup implements CommandLineRunner {
+
+  private final UsersContainerClient usersContainerClient;
+  private final UserDetailsService userDetailsService;
+  private final MeterRegistry meterRegistry;
+  private final int connections;
+  private final int iterations;
+  private final List<String> users;
+  private final SimpleAsyncTaskExecutor executor;
+
+  public StartupWarmup(
+      UsersContainerClient usersContainerClient,
+      UserDetailsService userDetailsService,
+      MeterRegistry meterRegistry,
+      @Value("${startup.warmup.connections:8}") int connections,
+      @Value("${startup.warmup.iterations:2000}") int iterations,
+      @Value("${startup.warmup.users:admin@example.com,user@example.com}") List<String> users,
+      Environment environment) {
+    this.usersContainerClient = usersContainerClient;
+    this.userDetailsService = userDetailsService;
+    this.meterRegistry = meterRegistry;
+    this.connections = connections;
+    this.iterations = iterations;
+    this.users = users;
+    this.executor = new SimpleAsyncTaskExecutor("startup-warmup-");
+    this.executor.setVirtualThreads(Threading.VIRTUAL.isActive(environment));
+  }
+
+  @Override
+  public void run(String... args) {
+    Timer.builder(UserSeeder.STARTUP_PHASE)
+        .description("Time taken by a startup phase")
+        .tag("phase", "warmup")
+        .register(meterRegistry)
+        .record(
+            () -> {
+              openConnections();
+              primeLoginPath();
+            });
+  }
+
+  private void openConnections() {
+    // concurrent requests make the pool open one connection each
+    List<CompletableFuture<Set<String>>> requests = new ArrayList<>(connections);
+    for (int i = 0; i < connections; i++) {
+      Set<String> probe = Set.of("warmup-" + i + "@localhost");
+      requests.add(
+          CompletableFuture.supplyAsync(
+              () -> usersContainerClient.findExistingEmails(probe), executor));
+    }
+    int failed = 0;
+    for (CompletableFuture<Set<String>> request : requests) {
+      try {
+        request.join();
+      } catch (RuntimeException e) {
+        failed++;
+        log.warn("Warm-up request to GridDB failed: {}", e.getMessage());
+      }
+    }
+    log.info("Warmed up {} GridDB connections", connections - failed);
+  }
+
+  private void primeLoginPath() {
+    List<String> found = new ArrayList<>(users.size());
+    for (String user : users) {
+      try {
+        userDetailsService.loadUserByUsername(user);
+        found.add(user);
+      } catch (UsernameNotFoundException e) {
+        log.warn("Warm-up user {} does not exist", user);
+      } catch (RuntimeException e) {
+        log.warn("Warm-up lookup of {} failed: {}", user, e.getMessage());
+      }
+    }
+    if (found.isEmpty()) {
+      return;
+    }
+    UserDetails last = null;
+    for (int i = 0; i < iterations; i++) {
+      // served by the user cache once loaded above
+      last = userDetailsService.loadUserByUsername(found.get(i % found.size()));
+    }
+    log.info("Warmed up the login path with {} lookups of {}", iterations, last.getUsername());
+  }
+}
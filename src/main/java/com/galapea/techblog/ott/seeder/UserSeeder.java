@@ -1,59 +1,124 @@
 package com.galapea.techblog.ott.seeder;
 
 import com.galapea.techblog.ott.model.UserRecord;
-import com.galapea.techblog.ott.service.GridDbClient;
+import com.galapea.techblog.ott.security.UserAuthorities;
+import com.galapea.techblog.ott.service.GridDbSchema;
+import com.galapea.techblog.ott.service.UserRolesContainerClient;
 import com.galapea.techblog.ott.service.UsersContainerClient;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.util.List;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.boot.CommandLineRunner;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.core.annotation.Order;
+import org.springframework.core.env.Environment;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Component;
 
+/**
+ * Brings the GridDB schema up to date and creates the default users on startup. Both users are
+ * looked up with one query and the missing ones are written with one request; their passwords are
+ * encoded concurrently. Then the role map is loaded, and default users that never had roles
+ * assigned get theirs; roles revoked since are not granted again. Each phase is timed as {@code
+ * app.startup.phase}.
+ */
 @Slf4j
 @Component
+@Order(0)
 public class UserSeeder implements CommandLineRunner {
 
+  static final String STARTUP_PHASE = "app.startup.phase";
+
+  private record SeedUser(String email, String name, String password, Set<String> roles) {}
+
+  private static final List<SeedUser> SEED_USERS =
+      List.of(
+          new SeedUser(
+              "admin@example.com", "Admin User", "admin123", Set.of(UserAuthorities.ADMIN_ROLE)),
+          new SeedUser("user@example.com", "Regular User", "user123", Set.of()));
+
   private final PasswordEncoder passwordEncoder;
-  private final GridDbClient gridDbClient;
+  private final GridDbSchema gridDbSchema;
   private final UsersContainerClient usersContainerClient;
+  private final UserAuthorities userAuthorities;
+  private final UserRolesContainerClient userRolesContainerClient;
+  private final MeterRegistry meterRegistry;
+  private final SimpleAsyncTaskExecutor executor;
 
   public UserSeeder(
       PasswordEncoder passwordEncoder,
-      GridDbClient gridDbClient,
-      UsersContainerClient usersContainerClient) {
+      GridDbSchema gridDbSchema,
+      UsersContainerClient usersContainerClient,
+      UserAuthorities userAuthorities,
+      UserRolesContainerClient userRolesContainerClient,
+      MeterRegistry meterRegistry,
+      Environment environment) {
     this.passwordEncoder = passwordEncoder;
-    this.gridDbClient = gridDbClient;
+    this.gridDbSchema = gridDbSchema;
     this.usersContainerClient = usersContainerClient;
+    this.userAuthorities = userAuthorities;
+    this.userRolesContainerClient = userRolesContainerClient;
+    this.meterRegistry = meterRegistry;
+    this.executor = new SimpleAsyncTaskExecutor("user-seeder-");
+    this.executor.setVirtualThreads(Threading.VIRTUAL.isActive(environment));
   }
 
   @Override
   public void run(String... args) {
-    gridDbClient.createTableUser();
-    log.info("Create table Users if not exists");
-    UserRecord usr = usersContainerClient.getUserByEmail("one@test.com");
-    log.info("Test find test user: " + usr);
-    String defaultEmail = "admin@example.com";
-    String regularUserEmail = "user@example.com";
-    if (usersContainerClient.getUserByEmail(defaultEmail) == null) {
-      UserRecord user =
-          new UserRecord(
-              UUID.randomUUID().toString(),
-              defaultEmail,
-              "Admin User",
-              passwordEncoder.encode("admin123"));
-      usersContainerClient.insert(user);
-      log.info("Default admin user created with ID: " + user.id());
-    }
+    timed("schema", gridDbSchema::migrate);
+    timed("seed", this::seedUsers);
+    timed("roles", this::seedRoles);
+  }
 
-    if (usersContainerClient.getUserByEmail(regularUserEmail) == null) {
-      UserRecord user =
-          new UserRecord(
-              UUID.randomUUID().toString(),
-              regularUserEmail,
-              "Regular User",
-              passwordEncoder.encode("user123"));
-      usersContainerClient.insert(user);
-      log.info("Regular user created with ID: " + user.id());
+  private void seedUsers() {
+    Set<String> existing =
+        usersContainerClient.findExistingEmails(
+            SEED_USERS.stream().map(SeedUser::email).collect(Collectors.toSet()));
+    List<CompletableFuture<UserRecord>> encoded =
+        SEED_USERS.stream()
+            .filter(seed -> !existing.contains(seed.email()))
+            .map(
+                seed ->
+                    CompletableFuture.supplyAsync(
+                        () ->
+                            new UserRecord(
+                                UUID.randomUUID().toString(),
+                                seed.email(),
+                                seed.name(),
+                                passwordEncoder.encode(seed.password())),
+                        executor))
+            .toList();
+    List<UserRecord> users = encoded.stream().map(CompletableFuture::join).toList();
+    usersContainerClient.putUsers(users);
+    users.forEach(user -> log.info("Created {} with ID: {}", user.email(), user.id()));
+  }
+
+  private void seedRoles() {
+    userAuthorities.refresh();
+    for (SeedUser seed : SEED_USERS) {
+      if (seed.roles().isEmpty()) {
+        continue;
+      }
+      UserRecord user = usersContainerClient.getUserByEmail(seed.email());
+      // an existing row, even an empty one, means the roles were assigned or revoked since
+      if (user != null && userRolesContainerClient.find(user.id()) == null) {
+        userAuthorities.assign(user.id(), seed.roles());
+        log.info("Granted {} to {}", seed.roles(), seed.email());
+      }
     }
   }
+
+  private void timed(String phase, Runnable step) {
+    Timer.builder(STARTUP_PHASE)
+        .description("Time taken by a startup phase")
+        .tag("phase", phase)
+        .register(meterRegistry)
+        .record(step);
+  }
 }
@@ -4,13 +4,11 @@ import com.galapea.techblog.ott.exception.GridDbException;
 import com.galapea.techblog.ott.model.GridDbColumn;
 import com.galapea.techblog.ott.model.GridDbContainerDefinition;
 import com.galapea.techblog.ott.model.GridDbSqlStatement;
-import java.nio.charset.StandardCharsets;
 import java.util.List;
 import java.util.Set;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.http.HttpStatusCode;
-import org.springframework.http.MediaType;
 import org.springframework.stereotype.Service;
 import org.springframework.web.client.RestClient;
 
@@ -19,42 +17,32 @@ import org.springframework.web.client.RestClient;
 public class GridDbClient {
 
   private final RestClient restClient;
-  private final String baseUrl;
+  private final GridDbMetrics metrics;
+  private final GridDbResilience resilience;
 
   public GridDbClient(
-      @Value("${griddb.base-url}") String baseUrl,
-      @Value("${griddb.auth-token}") String authToken) {
-    this.baseUrl = baseUrl;
-    this.restClient =
-        RestClient.builder()
-            .baseUrl(this.baseUrl)
-            .defaultHeader("Authorization", "Basic " + authToken)
-            .defaultHeader("Content-Type", MediaType.APPLICATION_JSON_VALUE)
-            .defaultStatusHandler(
-                HttpStatusCode::isError,
-                (request, response) -> {
-                  log.error("GridDB API response failed: {}", response.getStatusText());
-                  String errorBody = new String(response.getBody().readAllBytes());
-                  log.error("GridDB API Response body: {}", errorBody);
-                  throw new GridDbException(
-                      "GridDB API request failed", response.getStatusCode(), errorBody);
-                })
-            .requestInterceptor(
-                (request, body, execution) -> {
-                  log.info("GridDB API Request: {} {}", request.getMethod(), request.getURI());
-                  if (body != null && body.length > 0) {
-                    log.info(
-                        "GridDB API Request body: {}", new String(body, StandardCharsets.UTF_8));
-                  }
-                  log.info("GridDB API Request headers: {}", request.getHeaders());
-                  return execution.execute(request, body);
-                })
-            .build();
+      @Qualifier("gridDbRestClient") RestClient gridDbRestClient,
+      GridDbMetrics metrics,
+      GridDbResilience resilience) {
+    this.restClient = gridDbRestClient;
+    this.metrics = metrics;
+    this.resilience = resilience;
   }
 
   public void executeDdlStatements(List<GridDbSqlStatement> statements) {
     try {
-      restClient.post().uri("/sql/ddl").body(statements).retrieve().toBodilessEntity();
+      metrics.record(
+          "ddl",
+          () ->
+              resilience.write(
+                  "ddl",
+                  () ->
+                      restClient
+                          .post()
+                          .uri("/sql/ddl")
+                          .body(statements)
+                          .retrieve()
+                          .toBodilessEntity()));
     } catch (GridDbException e) {
       throw e;
     } catch (Exception e) {
@@ -65,7 +53,18 @@ public class GridDbClient {
 
   public void createContainer(GridDbContainerDefinition containerDefinition) {
     try {
-      restClient.post().uri("/containers").body(containerDefinition).retrieve().toBodilessEntity();
+      metrics.record(
+          "createContainer",
+          () ->
+              resilience.write(
+                  "createContainer",
+                  () ->
+                      restClient
+                          .post()
+                          .uri("/containers")
+                          .body(containerDefinition)
+                          .retrieve()
+                          .toBodilessEntity()));
     } catch (GridDbException e) {
       if (e.getStatusCode().value() == 409) {
         return;
@@ -77,30 +76,15 @@ public class GridDbClient {
     }
   }
 
-  public void createTableUser() {
+  public void createTableOneTimeTokens() {
     List<GridDbColumn> columns =
         List.of(
-            new GridDbColumn("id", "STRING", Set.of("TREE")),
-            new GridDbColumn("email", "STRING"),
-            new GridDbColumn("name", "STRING"),
-            new GridDbColumn("password", "STRING"));
+            new GridDbColumn("token_value", "STRING", Set.of("TREE")),
+            new GridDbColumn("username", "STRING"),
+            new GridDbColumn("expires_at", "LONG", Set.of("TREE")));
 
     GridDbContainerDefinition containerDefinition =
-        GridDbContainerDefinition.createContainer("Users", columns);
+        GridDbContainerDefinition.createContainer("OneTimeTokens", columns);
     createContainer(containerDefinition);
   }
-
-  public void createTableUserSQL() {
-    List<GridDbSqlStatement> statements =
-        List.of(
-            new GridDbSqlStatement(
-                "CREATE TABLE IF NOT EXISTS Users ("
-                    + "id STRING PRIMARY KEY, "
-                    + "email STRING, "
-                    + "name STRING, "
-                    + "password STRING) "),
-            new GridDbSqlStatement("CREATE INDEX IF NOT EXISTS idx_users_email ON Users (email)"));
-
-    executeDdlStatements(statements);
-  }
 }
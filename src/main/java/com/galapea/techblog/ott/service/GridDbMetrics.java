@@ -0,0 +1,106 @@
+package com.galapea.techblog.ott.service;
+
+import com.galapea.techblog.ott.exception.GridDbException;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.util.function.Supplier;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Timers and response size summaries for GridDB REST calls, tagged by operation and status.
+ *
+ * <p>{@code griddb.client.requests} times every call; {@code status} is {@code success}, the HTTP
+ * status of a {@link GridDbException}, or {@code error} for any other failure. {@code
+ * griddb.client.response.size} records the {@code responseSizeByte} GridDB reports for SQL selects.
+ */
+@Component
+public class GridDbMetrics {
+
+  static final String REQUESTS = "griddb.client.requests";
+  static final String RESPONSE_SIZE = "griddb.client.response.size";
+
+  private final MeterRegistry registry;
+
+  public GridDbMetrics(MeterRegistry registry) {
+    this.registry = registry;
+  }
+
+  public <T> T record(String operation, Supplier<T> call) {
+    Timer.Sample sample = Timer.start(registry);
+    Throwable failure = null;
+    try {
+      return call.get();
+    } catch (RuntimeException | Error e) {
+      failure = e;
+      throw e;
+    } finally {
+      stop(sample, operation, failure);
+    }
+  }
+
+  public void record(String operation, Runnable call) {
+    record(
+        operation,
+        () -> {
+          call.run();
+          return null;
+        });
+  }
+
+  /** Times a non-blocking call from subscription until it completes or fails. */
+  public <T> Mono<T> record(String operation, Mono<T> call) {
+    return Mono.defer(
+        () -> {
+          Timer.Sample sample = start();
+          return call.doOnSuccess(result -> stop(sample, operation, null))
+              .doOnError(failure -> stop(sample, operation, failure));
+        });
+  }
+
+  /** Times a streamed call from subscription until its last element or failure. */
+  public <T> Flux<T> record(String operation, Flux<T> call) {
+    return Flux.defer(
+        () -> {
+          Timer.Sample sample = start();
+          return call.doOnComplete(() -> stop(sample, operation, null))
+              .doOnError(failure -> stop(sample, operation, failure));
+        });
+  }
+
+  /** Starts timing a call whose end is only known later, e.g. a streamed response. */
+  public Timer.Sample start() {
+    return Timer.start(registry);
+  }
+
+  public void stop(Timer.Sample sample, String operation, Throwable failure) {
+    sample.stop(
+        Timer.builder(REQUESTS)
+            .description("GridDB REST calls")
+            .tag("operation", operation)
+            .tag("status", status(failure))
+            .publishPercentileHistogram()
+            .register(registry));
+  }
+
+  public void recordResponseSize(String operation, long bytes) {
+    DistributionSummary.builder(RESPONSE_SIZE)
+        .description("Response size reported by GridDB")
+        .baseUnit("bytes")
+        .tag("operation", operation)
+        .register(registry)
+        .record(bytes);
+  }
+
+  private static String status(Throwable failure) {
+    if (failure == null) {
+      return "success";
+    }
+    if (failure instanceof GridDbException e && e.getStatusCode() != null) {
+      return String.valueOf(e.getStatusCode().value());
+    }
+    return "error";
+  }
+}
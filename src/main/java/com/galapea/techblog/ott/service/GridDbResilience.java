@@ -0,0 +1,580 @@
+package com.galapea.techblog.ott.service;
+
+import com.galapea.techblog.ott.config.GridDbTransport;
+import com.galapea.techblog.ott.exception.GridDbException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import java.net.SocketTimeoutException;
+import java.net.http.HttpTimeoutException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BooleanSupplier;
+import java.util.function.Supplier;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.env.Environment;
+import org.springframework.core.env.StandardEnvironment;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.ResourceAccessException;
+import reactor.core.Exceptions;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
+
+/**
+ * Timeouts, retries, a circuit breaker and hedged requests for GridDB REST calls.
+ *
+ * <ul>
+ *   <li>Timeouts: a call runs on the calling thread with a response timeout of {@code
+ *       griddb.resilience.read-timeout} or {@code write-timeout}, overridable per operation with
+ *       {@code griddb.resilience.timeout.<operation>}. The timeout is enforced by the HTTP
+ *       transport (see {@link GridDbTransport#withResponseTimeout}), which releases the connection;
+ *       the caller then gets a 504 {@link GridDbException}.
+ *   <li>Retries: reads that fail with a timeout, an I/O error or a 408, 429 or 5xx status are
+ *       retried up to {@code max-attempts} times with jittered exponential backoff. Writes are not
+ *       retried.
+ *   <li>Circuit breaker: when at least half of the last {@code circuit-breaker.window} calls failed
+ *       that way, calls fail fast with a 503 for {@code circuit-breaker.open-duration}, after which
+ *       a few trial calls decide whether to close it again.
+ *   <li>Hedging: for {@link #hedgedRead} a second identical request is sent when the first has not
+ *       answered within {@code hedge.delay}; the first successful response wins. Both requests run
+ *       on a pool of at most {@code hedge.max-threads} threads; when it is busy the read is not
+ *       hedged.
+ * </ul>
+ *
+ * <p>The {@link Mono} and {@link Flux} overloads apply the same policies to non-blocking calls with
+ * Reactor operators instead of worker threads, sharing one circuit breaker with the blocking ones.
+ */
+@Slf4j
+@Component
+public class GridDbResilience {
+
+  enum State {
+    CLOSED,
+    OPEN,
+    HALF_OPEN
+  }
+
+  private final boolean enabled;
+  private final Duration readTimeout;
+  private final Duration writeTimeout;
+  private final int maxAttempts;
+  private final Duration initialBackoff;
+  private final Duration maxBackoff;
+  private final boolean hedgeEnabled;
+  private final Duration hedgeDelay;
+  private final CircuitBreaker circuitBreaker;
+  private final Environment environment;
+  private final MeterRegistry registry;
+  private final ThreadPoolExecutor hedgeExecutor;
+  private final Map<String, Duration> timeouts = new ConcurrentHashMap<>();
+
+  public GridDbResilience(
+      @Value("${griddb.resilience.enabled:true}") boolean enabled,
+      @Value("${griddb.resilience.read-timeout:3s}") Duration readTimeout,
+      @Value("${griddb.resilience.write-timeout:10s}") Duration writeTimeout,
+      @Value("${griddb.resilience.retry.max-attempts:3}") int maxAttempts,
+      @Value("${griddb.resilience.retry.initial-backoff:100ms}") Duration initialBackoff,
+      @Value("${griddb.resilience.retry.max-backoff:1s}") Duration maxBackoff,
+      @Value("${griddb.resilience.circuit-breaker.window:50}") int window,
+      @Value("${griddb.resilience.circuit-breaker.minimum-calls:20}") int minimumCalls,
+      @Value("${griddb.resilience.circuit-breaker.failure-rate:0.5}") double failureRate,
+      @Value("${griddb.resilience.circuit-breaker.open-duration:10s}") Duration openDuration,
+      @Value("${griddb.resilience.circuit-breaker.half-open-calls:3}") int halfOpenCalls,
+      @Value("${griddb.resilience.hedge.enabled:false}") boolean hedgeEnabled,
+      @Value("${griddb.resilience.hedge.delay:200ms}") Duration hedgeDelay,
+      @Value("${griddb.resilience.hedge.max-threads:16}") int hedgeMaxThreads,
+      MeterRegistry registry,
+      Environment environment) {
+    this.enabled = enabled;
+    this.readTimeout = readTimeout;
+    this.writeTimeout = writeTimeout;
+    this.maxAttempts = Math.max(1, maxAttempts);
+    this.initialBackoff = initialBackoff;
+    this.maxBackoff = maxBackoff;
+    this.hedgeEnabled = hedgeEnabled;
+    this.hedgeDelay = hedgeDelay;
+    this.circuitBreaker =
+        new CircuitBreaker(window, minimumCalls, failureRate, openDuration, halfOpenCalls);
+    this.environment = environment;
+    this.registry = registry;
+    CustomizableThreadFactory threads = new CustomizableThreadFactory("griddb-hedge-");
+    threads.setDaemon(true);
+    // no queue: a hedged read that finds every thread busy runs unhedged on the caller
+    this.hedgeExecutor =
+        new ThreadPoolExecutor(
+            0,
+            Math.max(2, hedgeMaxThreads),
+            60,
+            TimeUnit.SECONDS,
+            new SynchronousQueue<>(),
+            threads);
+    Gauge.builder("griddb.circuit.state", circuitBreaker, b -> b.state().ordinal())
+        .description("GridDB circuit breaker state: 0 closed, 1 open, 2 half-open")
+        .register(registry);
+  }
+
+  /** Resilience turned off: every call runs directly on the calling thread. */
+  public static GridDbResilience disabled(MeterRegistry registry) {
+    return new GridDbResilience(
+        false,
+        Duration.ZERO,
+        Duration.ZERO,
+        1,
+        Duration.ZERO,
+        Duration.ZERO,
+        1,
+        1,
+        1,
+        Duration.ZERO,
+        1,
+        false,
+        Duration.ZERO,
+        2,
+        registry,
+        new StandardEnvironment());
+  }
+
+  @PreDestroy
+  void shutdown() {
+    hedgeExecutor.shutdownNow();
+  }
+
+  /** An idempotent read: timeout, retries and the circuit breaker. */
+  public <T> T read(String operation, Supplier<T> call) {
+    return execute(operation, call, timeout(operation, readTimeout), maxAttempts, false);
+  }
+
+  /** Like {@link #read}, and hedged with a second request when enabled. */
+  public <T> T hedgedRead(String operation, Supplier<T> call) {
+    return execute(operation, call, timeout(operation, readTimeout), maxAttempts, hedgeEnabled);
+  }
+
+  /**
+   * Opens a streamed response: retries and the circuit breaker, but no timeout, because a response
+   * that arrives after the caller gave up could not be closed. The socket read timeout applies.
+   */
+  public <T> T openStream(String operation, Supplier<T> call) {
+    return execute(operation, call, Duration.ZERO, maxAttempts, false);
+  }
+
+  /** A write: timeout and the circuit breaker, never retried. */
+  public <T> T write(String operation, Supplier<T> call) {
+    return execute(operation, call, timeout(operation, writeTimeout), 1, false);
+  }
+
+  public void write(String operation, Runnable call) {
+    write(
+        operation,
+        () -> {
+          call.run();
+          return null;
+        });
+  }
+
+  /** Non-blocking {@link #read(String, Supplier)}. */
+  public <T> Mono<T> read(String operation, Mono<T> call) {
+    return read(operation, call, false);
+  }
+
+  /** Non-blocking {@link #hedgedRead(String, Supplier)}. */
+  public <T> Mono<T> hedgedRead(String operation, Mono<T> call) {
+    return read(operation, call, hedgeEnabled);
+  }
+
+  /**
+   * Non-blocking {@link #openStream(String, Supplier)}: retried only while no element has been
+   * emitted, so a retried stream never repeats rows.
+   */
+  public <T> Flux<T> openStream(String operation, Flux<T> call) {
+    if (!enabled) {
+      return call;
+    }
+    return Flux.defer(
+        () -> {
+          AtomicBoolean emitted = new AtomicBoolean();
+          return guarded(operation, call.doOnNext(element -> emitted.set(true)))
+              .retryWhen(retry(operation, () -> !emitted.get()));
+        });
+  }
+
+  private <T> Mono<T> read(String operation, Mono<T> call, boolean hedge) {
+    if (!enabled) {
+      return call;
+    }
+    Duration timeout = timeout(operation, readTimeout);
+    Mono<T> attempt = hedge ? hedged(operation, call) : call;
+    if (!timeout.isZero()) {
+      attempt = attempt.timeout(timeout, Mono.error(() -> timedOut(operation, timeout)));
+    }
+    return guarded(operation, attempt.flux())
+        .retryWhen(retry(operation, () -> true))
+        .singleOrEmpty();
+  }
+
+  /** Passes each subscription through the circuit breaker and records its outcome once. */
+  private <T> Flux<T> guarded(String operation, Flux<T> call) {
+    return Flux.defer(
+        () -> {
+          if (!circuitBreaker.tryAcquire()) {
+            return Flux.error(rejected(operation));
+          }
+          AtomicBoolean recorded = new AtomicBoolean();
+          return call.doOnNext(element -> record(recorded, true))
+              .doOnComplete(() -> record(recorded, true))
+              .doOnError(failure -> record(recorded, !isTransient(failure)))
+              // says nothing about GridDB, but must not keep a half-open trial slot taken
+              .doOnCancel(() -> record(recorded, true));
+        });
+  }
+
+  private void record(AtomicBoolean recorded, boolean success) {
+    if (recorded.compareAndSet(false, true)) {
+      circuitBreaker.record(success);
+    }
+  }
+
+  private Retry retry(String operation, BooleanSupplier allowed) {
+    return Retry.from(
+        signals ->
+            signals.concatMap(
+                signal -> {
+                  Throwable failure = signal.failure();
+                  int attempt = (int) signal.totalRetries() + 1;
+                  if (!isTransient(failure)
+                      || failure instanceof CircuitOpenException
+                      || attempt >= maxAttempts
+                      || !allowed.getAsBoolean()) {
+                    return Mono.error(failure);
+                  }
+                  counter("griddb.resilience.retries", operation, "Retried GridDB calls")
+                      .increment();
+                  log.debug(
+                      "Retrying {} after attempt {} failed: {}",
+                      operation,
+                      attempt,
+                      failure.getMessage());
+                  return Mono.delay(backoff(attempt));
+                }));
+  }
+
+  private <T> Mono<T> hedged(String operation, Mono<T> call) {
+    // wrapped so that a lookup without a result still counts as the first response
+    Mono<Optional<T>> primary = call.map(Optional::of).defaultIfEmpty(Optional.empty());
+    Mono<Optional<T>> backup =
+        Mono.delay(hedgeDelay)
+            .doOnNext(
+                tick ->
+                    counter("griddb.resilience.hedges", operation, "Hedged GridDB requests sent")
+                        .increment())
+            .then(primary)
+            .doOnNext(
+                result ->
+                    counter(
+                            "griddb.resilience.hedges.won",
+                            operation,
+                            "Hedged requests answered first")
+                        .increment());
+    return Mono.firstWithValue(primary, backup)
+        .onErrorMap(
+            NoSuchElementException.class,
+            e -> {
+              List<Throwable> failures = Exceptions.unwrapMultiple(e.getCause());
+              return failures.isEmpty() ? e : failures.get(0);
+            })
+        .flatMap(Mono::justOrEmpty);
+  }
+
+  private Duration timeout(String operation, Duration fallback) {
+    return timeouts.computeIfAbsent(
+        operation,
+        op -> environment.getProperty("griddb.resilience.timeout." + op, Duration.class, fallback));
+  }
+
+  private <T> T execute(
+      String operation, Supplier<T> call, Duration timeout, int attempts, boolean hedge) {
+    if (!enabled) {
+      return call.get();
+    }
+    for (int attempt = 1; ; attempt++) {
+      if (!circuitBreaker.tryAcquire()) {
+        throw rejected(operation);
+      }
+      try {
+        T result = attempt(operation, call, timeout, hedge);
+        circuitBreaker.record(true);
+        return result;
+      } catch (RuntimeException e) {
+        boolean transientFailure = isTransient(e);
+        circuitBreaker.record(!transientFailure);
+        if (!transientFailure || attempt >= attempts) {
+          throw e;
+        }
+        counter("griddb.resilience.retries", operation, "Retried GridDB calls").increment();
+        log.debug("Retrying {} after attempt {} failed: {}", operation, attempt, e.getMessage());
+        try {
+          Thread.sleep(backoff(attempt).toMillis());
+        } catch (InterruptedException interrupted) {
+          Thread.currentThread().interrupt();
+          throw e;
+        }
+      }
+    }
+  }
+
+  private <T> T attempt(String operation, Supplier<T> call, Duration timeout, boolean hedge) {
+    Supplier<T> timed =
+        timeout.isZero() ? call : () -> GridDbTransport.withResponseTimeout(timeout, call);
+    try {
+      return hedge ? hedged(operation, timed) : timed.get();
+    } catch (RuntimeException e) {
+      // clients may have wrapped the transport's exception
+      if (!timeout.isZero() && isTimeout(e)) {
+        throw timedOut(operation, timeout, e);
+      }
+      throw e;
+    }
+  }
+
+  /**
+   * Sends the call and, when it has not answered within the hedge delay, a second one; returns the
+   * first success. Both end at the latest when their response timeout expires.
+   */
+  private <T> T hedged(String operation, Supplier<T> call) {
+    CompletionService<T> completion = new ExecutorCompletionService<>(hedgeExecutor);
+    Callable<T> task = call::get;
+    List<Future<T>> started = new ArrayList<>(2);
+    try {
+      try {
+        started.add(completion.submit(task));
+      } catch (RejectedExecutionException e) {
+        return call.get();
+      }
+      int pending = 1;
+      Future<T> done = completion.poll(hedgeDelay.toNanos(), TimeUnit.NANOSECONDS);
+      if (done == null) {
+        try {
+          started.add(completion.submit(task));
+          pending++;
+          counter("griddb.resilience.hedges", operation, "Hedged GridDB requests sent").increment();
+        } catch (RejectedExecutionException e) {
+          // pool busy: wait for the first request only
+        }
+      }
+      while (true) {
+        if (done == null) {
+          done = completion.take();
+        }
+        pending--;
+        try {
+          T result = done.get();
+          if (started.size() > 1 && done == started.get(1)) {
+            counter("griddb.resilience.hedges.won", operation, "Hedged requests answered first")
+                .increment();
+          }
+          return result;
+        } catch (ExecutionException e) {
+          if (pending > 0) {
+            // the other request may still succeed
+            done = null;
+            continue;
+          }
+          throw e.getCause() instanceof RuntimeException cause
+              ? cause
+              : new GridDbException(
+                  "GridDB " + operation + " failed",
+                  HttpStatusCode.valueOf(500),
+                  null,
+                  e.getCause());
+        }
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new GridDbException(
+          "Interrupted while waiting for GridDB", HttpStatusCode.valueOf(503), null, e);
+    } finally {
+      for (Future<T> future : started) {
+        future.cancel(true);
+      }
+    }
+  }
+
+  /** Whether the failure is a response or read timeout of the HTTP transport. */
+  static boolean isTimeout(Throwable failure) {
+    for (Throwable cause = failure; cause != null; cause = cause.getCause()) {
+      if (cause instanceof SocketTimeoutException || cause instanceof HttpTimeoutException) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  static boolean isTransient(Throwable failure) {
+    if (failure instanceof GridDbException e) {
+      if (e.getStatusCode() == null) {
+        return false;
+      }
+      int status = e.getStatusCode().value();
+      return status == 408 || status == 429 || status >= 500;
+    }
+    return failure instanceof ResourceAccessException;
+  }
+
+  private GridDbException rejected(String operation) {
+    counter("griddb.resilience.rejected", operation, "Calls rejected by the open circuit")
+        .increment();
+    return new CircuitOpenException();
+  }
+
+  private GridDbException timedOut(String operation, Duration timeout) {
+    return timedOut(operation, timeout, null);
+  }
+
+  private GridDbException timedOut(String operation, Duration timeout, Throwable cause) {
+    counter("griddb.resilience.timeouts", operation, "GridDB calls that timed out").increment();
+    return new GridDbException(
+        "GridDB " + operation + " timed out after " + timeout.toMillis() + " ms",
+        HttpStatusCode.valueOf(504),
+        null,
+        cause);
+  }
+
+  private Duration backoff(int attempt) {
+    long exponential = initialBackoff.toMillis() << Math.min(attempt - 1, 20);
+    long capped = Math.min(exponential, maxBackoff.toMillis());
+    return Duration.ofMillis(capped / 2 + ThreadLocalRandom.current().nextLong(capped / 2 + 1));
+  }
+
+  private Counter counter(String name, String operation, String description) {
+    return Counter.builder(name)
+        .description(description)
+        .tag("operation", operation)
+        .register(registry);
+  }
+
+  State circuitState() {
+    return circuitBreaker.state();
+  }
+
+  /** Fails a call while the circuit is open; never retried. */
+  static final class CircuitOpenException extends GridDbException {
+    CircuitOpenException() {
+      super("GridDB circuit breaker is open", HttpStatusCode.valueOf(503), null);
+    }
+  }
+
+  /** Count-based circuit breaker over the outcomes of the last {@code window} calls. */
+  static final class CircuitBreaker {
+
+    private final boolean[] outcomes;
+    private final int minimumCalls;
+    private final double failureRate;
+    private final long openNanos;
+    private final int halfOpenCalls;
+
+    private State state = State.CLOSED;
+    private int next;
+    private int recorded;
+    private int failures;
+    private long openedAt;
+    private int trialsStarted;
+    private int trialsSucceeded;
+
+    CircuitBreaker(
+        int window, int minimumCalls, double failureRate, Duration openDuration, int halfOpen) {
+      this.outcomes = new boolean[Math.max(1, window)];
+      this.minimumCalls = Math.min(Math.max(1, minimumCalls), outcomes.length);
+      this.failureRate = failureRate;
+      this.openNanos = openDuration.toNanos();
+      this.halfOpenCalls = Math.max(1, halfOpen);
+    }
+
+    synchronized boolean tryAcquire() {
+      if (state == State.OPEN) {
+        if (System.nanoTime() - openedAt < openNanos) {
+          return false;
+        }
+        transition(State.HALF_OPEN);
+      }
+      if (state == State.HALF_OPEN) {
+        if (trialsStarted >= halfOpenCalls) {
+          return false;
+        }
+        trialsStarted++;
+      }
+      return true;
+    }
+
+    synchronized void record(boolean success) {
+      if (state == State.HALF_OPEN) {
+        if (!success) {
+          transition(State.OPEN);
+        } else if (++trialsSucceeded >= halfOpenCalls) {
+          transition(State.CLOSED);
+        }
+        return;
+      }
+      if (state == State.OPEN) {
+        return;
+      }
+      if (recorded == outcomes.length) {
+        if (!outcomes[next]) {
+          failures--;
+        }
+      } else {
+        recorded++;
+      }
+      outcomes[next] = success;
+      if (!success) {
+        failures++;
+      }
+      next = (next + 1) % outcomes.length;
+      if (recorded >= minimumCalls && failures >= failureRate * recorded) {
+        transition(State.OPEN);
+      }
+    }
+
+    synchronized State state() {
+      return state;
+    }
+
+    private void transition(State to) {
+      if (to != state) {
+        log.warn("GridDB circuit breaker {} -> {}", state, to);
+      }
+      state = to;
+      switch (to) {
+        case OPEN -> openedAt = System.nanoTime();
+        case HALF_OPEN -> {
+          trialsStarted = 0;
+          trialsSucceeded = 0;
+        }
+        case CLOSED -> {
+          recorded = 0;
+          failures = 0;
+          next = 0;
+        }
+      }
+    }
+  }
+}
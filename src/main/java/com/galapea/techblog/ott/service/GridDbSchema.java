@@ -0,0 +1,153 @@
+package com.galapea.techblog.ott.service;
+
+import com.galapea.techblog.ott.exception.GridDbException;
+import com.galapea.techblog.ott.model.GridDbCloudSQLOutPut;
+import com.galapea.techblog.ott.model.GridDbCloudSQLSelectInput;
+import com.galapea.techblog.ott.model.GridDbSqlStatement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.web.client.RestClient;
+
+/**
+ * Versioned schema of the application's containers. The applied version is recorded in the {@code
+ * SchemaVersion} container, so a startup with the current schema costs one query and no DDL. When
+ * migrations are pending, their statements are sent in a single {@code /sql/ddl} request and the
+ * new version is recorded afterwards.
+ *
+ * <p>Every statement is idempotent ({@code IF NOT EXISTS}), so nodes starting at the same time may
+ * both apply a migration, and containers created before the schema was versioned are adopted as
+ * they are. Add changes as a new {@link Migration}; never edit an applied one.
+ */
+@Slf4j
+@Service
+public class GridDbSchema {
+
+  static final String METADATA_CONTAINER = "SchemaVersion";
+  private static final String SCHEMA_NAME = "users";
+
+  record Migration(int version, String description, List<String> statements) {}
+
+  static final List<Migration> MIGRATIONS =
+      List.of(
+          new Migration(
+              1,
+              "Users and UserRoles containers",
+              List.of(
+                  "CREATE TABLE IF NOT EXISTS Users ("
+                      + "id STRING PRIMARY KEY, email STRING, name STRING, \"password\" STRING)",
+                  "CREATE TABLE IF NOT EXISTS UserRoles ("
+                      + "user_id STRING PRIMARY KEY, roles STRING, updated_at LONG)")),
+          new Migration(
+              2,
+              "Indexes for user lookups by email and incremental role refreshes",
+              List.of(
+                  "CREATE INDEX IF NOT EXISTS idx_users_email ON Users (email)",
+                  "CREATE INDEX IF NOT EXISTS idx_user_roles_updated_at ON UserRoles (updated_at)")));
+
+  private static final String CREATE_METADATA =
+      "CREATE TABLE IF NOT EXISTS SchemaVersion ("
+          + "schema_name STRING PRIMARY KEY, version INTEGER, applied_at LONG)";
+  private static final String SELECT_VERSION =
+      "SELECT version FROM SchemaVersion WHERE schema_name == '" + SCHEMA_NAME + "'";
+
+  private final RestClient restClient;
+  private final GridDbClient gridDbClient;
+  private final GridDbMetrics metrics;
+  private final GridDbResilience resilience;
+
+  public GridDbSchema(
+      @Qualifier("gridDbRestClient") RestClient gridDbRestClient,
+      GridDbClient gridDbClient,
+      GridDbMetrics metrics,
+      GridDbResilience resilience) {
+    this.restClient = gridDbRestClient;
+    this.gridDbClient = gridDbClient;
+    this.metrics = metrics;
+    this.resilience = resilience;
+  }
+
+  public static int latestVersion() {
+    return MIGRATIONS.get(MIGRATIONS.size() - 1).version();
+  }
+
+  /**
+   * Applies the pending migrations.
+   *
+   * @return the number of migrations applied, {@code 0} if the schema was current
+   */
+  public int migrate() {
+    int current = currentVersion();
+    List<GridDbSqlStatement> statements = new ArrayList<>();
+    statements.add(new GridDbSqlStatement(CREATE_METADATA));
+    int applied = 0;
+    for (Migration migration : MIGRATIONS) {
+      if (migration.version() > current) {
+        migration.statements().forEach(sql -> statements.add(new GridDbSqlStatement(sql)));
+        log.info("Applying schema version {}: {}", migration.version(), migration.description());
+        applied++;
+      }
+    }
+    if (applied == 0) {
+      log.info("Schema is at version {}, nothing to apply", current);
+      return 0;
+    }
+    gridDbClient.executeDdlStatements(statements);
+    recordVersion(latestVersion());
+    return applied;
+  }
+
+  /** Applied schema version, {@code 0} when none was recorded yet. */
+  public int currentVersion() {
+    List<GridDbCloudSQLSelectInput> body =
+        List.of(new GridDbCloudSQLSelectInput("sql-select", SELECT_VERSION));
+    try {
+      GridDbCloudSQLOutPut[] response =
+          metrics.record(
+              "schemaVersion",
+              () ->
+                  resilience.read(
+                      "schemaVersion",
+                      () -> execute(() -> post("/sql", body, GridDbCloudSQLOutPut[].class))));
+      if (response == null
+          || response.length == 0
+          || response[0].results() == null
+          || response[0].results().isEmpty()) {
+        return 0;
+      }
+      return Integer.parseInt(response[0].results().get(0).get(0));
+    } catch (GridDbException e) {
+      if (e.getStatusCode().value() == HttpStatus.NOT_FOUND.value()) {
+        // no metadata container yet; the migrations create it
+        log.debug("No schema version recorded: {}", e.getMessage());
+        return 0;
+      }
+      throw e;
+    }
+  }
+
+  private void recordVersion(int version) {
+    List<List<Object>> rows = List.of(List.of(SCHEMA_NAME, version, System.currentTimeMillis()));
+    String url = String.format("/containers/%s/rows", METADATA_CONTAINER);
+    metrics.record(
+        "schemaVersion",
+        () ->
+            resilience.write(
+                "schemaVersion",
+                () ->
+                    execute(
+                        () -> restClient.put().uri(url).body(rows).retrieve().toBodilessEntity())));
+  }
+
+  private <T> T post(String uri, Object body, Class<T> responseType) {
+    return restClient.post().uri(uri).body(body).retrieve().body(responseType);
+  }
+
+  private static <T> T execute(Supplier<T> call) {
+    return GridDbException.wrap("Failed to execute schema request", call);
+  }
+}
@@ -0,0 +1,142 @@
+package com.galapea.techblog.ott.service;
+
+import com.galapea.techblog.ott.exception.GridDbException;
+import com.galapea.techblog.ott.model.GridDbCloudSQLInsert;
+import com.galapea.techblog.ott.model.GridDbCloudSQLOutPut;
+import com.galapea.techblog.ott.model.GridDbCloudSQLSelectInput;
+import com.galapea.techblog.ott.model.GridDbCloudSQLUpdateOutput;
+import com.galapea.techblog.ott.util.SqlTemplate;
+import java.time.Instant;
+import java.util.List;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpMethod;
+import org.springframework.security.authentication.ott.DefaultOneTimeToken;
+import org.springframework.security.authentication.ott.OneTimeToken;
+import org.springframework.stereotype.Service;
+import org.springframework.web.client.RestClient;
+
+/** Access to the {@code OneTimeTokens} container used by the GridDB one-time token store. */
+@Slf4j
+@Service
+@ConditionalOnProperty(name = "ott.token-store.type", havingValue = "griddb")
+public class OneTimeTokensContainerClient {
+  private static final String CONTAINER_NAME = "OneTimeTokens";
+  private static final SqlTemplate SELECT_TOKEN =
+      SqlTemplate.compile(
+          "SELECT token_value, username, expires_at FROM OneTimeTokens WHERE token_value == ?");
+  private static final SqlTemplate DELETE_TOKEN =
+      SqlTemplate.compile("DELETE FROM OneTimeTokens WHERE token_value == ?");
+  private static final SqlTemplate DELETE_EXPIRED =
+      SqlTemplate.compile("DELETE FROM OneTimeTokens WHERE expires_at < ?");
+  private static final String COUNT = "SELECT COUNT(*) FROM OneTimeTokens";
+
+  private final RestClient restClient;
+  private final GridDbMetrics metrics;
+  private final GridDbResilience resilience;
+
+  public OneTimeTokensContainerClient(
+      @Qualifier("gridDbRestClient") RestClient gridDbRestClient,
+      GridDbMetrics metrics,
+      GridDbResilience resilience) {
+    this.restClient = gridDbRestClient;
+    this.metrics = metrics;
+    this.resilience = resilience;
+  }
+
+  public void put(OneTimeToken token) {
+    List<List<Object>> rows =
+        List.of(
+            List.of(
+                token.getTokenValue(), token.getUsername(), token.getExpiresAt().toEpochMilli()));
+    String url = String.format("/containers/%s/rows", CONTAINER_NAME);
+    execute("putToken", HttpMethod.PUT, url, rows, null);
+  }
+
+  /**
+   * Deletes the token row and returns the token if this call was the one that deleted it.
+   *
+   * @return the token or {@code null} if it does not exist or was taken concurrently
+   */
+  public OneTimeToken take(String tokenValue) {
+    if (tokenValue == null || tokenValue.isEmpty()) {
+      return null;
+    }
+    String select = SELECT_TOKEN.bind(tokenValue);
+    GridDbCloudSQLOutPut[] response =
+        execute(
+            "takeToken",
+            HttpMethod.POST,
+            "/sql",
+            List.of(new GridDbCloudSQLSelectInput("sql-select", select)),
+            GridDbCloudSQLOutPut[].class);
+    if (response == null || response.length == 0 || response[0].results().isEmpty()) {
+      return null;
+    }
+    List<String> row = response[0].results().get(0);
+    if (update("takeToken", DELETE_TOKEN.bind(tokenValue)) != 1) {
+      // another node consumed it between our select and delete
+      return null;
+    }
+    return new DefaultOneTimeToken(
+        row.get(0), row.get(1), Instant.ofEpochMilli(Long.parseLong(row.get(2))));
+  }
+
+  public long deleteExpired(Instant now) {
+    return update("deleteExpiredTokens", DELETE_EXPIRED.bind(now.toEpochMilli()));
+  }
+
+  public long count() {
+    GridDbCloudSQLOutPut[] response =
+        execute(
+            "countTokens",
+            HttpMethod.POST,
+            "/sql",
+            List.of(new GridDbCloudSQLSelectInput("sql-select", COUNT)),
+            GridDbCloudSQLOutPut[].class);
+    if (response == null || response.length == 0 || response[0].results().isEmpty()) {
+      return 0;
+    }
+    return Long.parseLong(response[0].results().get(0).get(0));
+  }
+
+  private long update(String operation, String statement) {
+    GridDbCloudSQLUpdateOutput[] response =
+        execute(
+            operation,
+            HttpMethod.POST,
+            "/sql/update",
+            List.of(new GridDbCloudSQLInsert(statement)),
+            GridDbCloudSQLUpdateOutput[].class);
+    if (response == null || response.length == 0) {
+      return 0;
+    }
+    return response[0].updatedRows();
+  }
+
+  private <T> T execute(
+      String operation, HttpMethod method, String uri, Object body, Class<T> responseType) {
+    // a token SELECT is safe to retry; writes and the DELETE that claims a token are not
+    boolean read = method == HttpMethod.POST && uri.equals("/sql");
+    return metrics.record(
+        operation,
+        () ->
+            read
+                ? resilience.read(operation, () -> execute(method, uri, body, responseType))
+                : resilience.write(operation, () -> execute(method, uri, body, responseType)));
+  }
+
+  private <T> T execute(HttpMethod method, String uri, Object body, Class<T> responseType) {
+    return GridDbException.wrap(
+        "Failed to execute " + method + " request",
+        () -> {
+          RestClient.ResponseSpec spec = restClient.method(method).uri(uri).body(body).retrieve();
+          if (responseType == null) {
+            spec.toBodilessEntity();
+            return null;
+          }
+          return spec.body(responseType);
+        });
+  }
+}
@@ -0,0 +1,128 @@
+package com.galapea.techblog.ott.service;
+
+import com.galapea.techblog.ott.exception.GridDbException;
+import com.galapea.techblog.ott.model.GridDbCloudSQLOutPut;
+import com.galapea.techblog.ott.model.GridDbCloudSQLSelectInput;
+import com.galapea.techblog.ott.model.UserRecord;
+import java.util.List;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.stereotype.Service;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Non-blocking, read-only counterpart of {@link UsersContainerClient} on {@link WebClient}, for
+ * deployments serving reactive callers. It sends the same statements and request bodies, shares the
+ * user cache, metrics and resilience policies with the blocking client, and decodes streamed rows
+ * while the response arrives. Enabled with {@code griddb.reactive.enabled}.
+ */
+@Slf4j
+@Service
+@ConditionalOnProperty(name = "griddb.reactive.enabled", havingValue = "true")
+public class ReactiveUsersContainerClient {
+
+  private final WebClient webClient;
+  private final UserRecordCache userCache;
+  private final GridDbMetrics metrics;
+  private final GridDbResilience resilience;
+
+  public ReactiveUsersContainerClient(
+      @Qualifier("gridDbWebClient") WebClient gridDbWebClient,
+      UserRecordCache userCache,
+      GridDbMetrics metrics,
+      GridDbResilience resilience) {
+    this.webClient = gridDbWebClient;
+    this.userCache = userCache;
+    this.metrics = metrics;
+    this.resilience = resilience;
+  }
+
+  public Mono<UserRecord> getUserById(String userId) {
+    return userCache.getById(
+        userId, getOneUser("getUserById", UsersContainerClient.SELECT_BY_ID.bind(userId)));
+  }
+
+  public Mono<UserRecord> getUserByEmail(String email) {
+    return userCache.getByEmail(
+        email, getOneUser("getUserByEmail", UsersContainerClient.SELECT_BY_EMAIL.bind(email)));
+  }
+
+  private Mono<UserRecord> getOneUser(String operation, String statement) {
+    Mono<GridDbCloudSQLOutPut> call =
+        webClient
+            .post()
+            .uri("/sql")
+            .bodyValue(List.of(new GridDbCloudSQLSelectInput("sql-select", statement)))
+            .retrieve()
+            .bodyToMono(GridDbCloudSQLOutPut[].class)
+            .map(outputs -> outputs[0])
+            .onErrorMap(e -> !(e instanceof GridDbException), ReactiveUsersContainerClient::failed);
+    return metrics
+        .record(operation, resilience.hedgedRead(operation, call))
+        .flatMap(
+            output -> {
+              metrics.recordResponseSize(operation, output.responseSizeByte());
+              log.debug("{} returned {} rows", operation, output.results().size());
+              return Mono.justOrEmpty(UsersContainerClient.toUser(output));
+            });
+  }
+
+  /**
+   * Query users from the Users container, decoded while the response is being received.
+   *
+   * @param offset Starting position of the results
+   * @param limit Maximum number of results to return
+   * @param condition Query condition (e.g., "email == 'admin'")
+   * @param sort Sort order (e.g., "email asc")
+   * @return Users in response order
+   */
+  public Flux<UserRecord> streamUsers(int offset, int limit, String condition, String sort) {
+    UsersContainerClient.UsersQueryRequest request =
+        new UsersContainerClient.UsersQueryRequest(offset, limit, condition, sort);
+    String url = String.format("/containers/%s/rows", UsersContainerClient.CONTAINER_NAME);
+    return streamRows("queryUsers", url, request, "rows");
+  }
+
+  /**
+   * Keyset page of users ordered by id, see {@link UsersContainerClient#streamUsersAfter}.
+   *
+   * @param afterId id of the last user of the previous page, or {@code null} for the first page
+   * @param limit Maximum number of results to return
+   * @return Users ordered by id
+   */
+  public Flux<UserRecord> streamUsersAfter(String afterId, int limit) {
+    String statement =
+        afterId == null
+            ? UsersContainerClient.SELECT_PAGE.bind(limit)
+            : UsersContainerClient.SELECT_PAGE_AFTER.bind(afterId, limit);
+    return streamRows(
+        "queryUsersAfter",
+        "/sql",
+        List.of(new GridDbCloudSQLSelectInput("sql-select", statement)),
+        "results");
+  }
+
+  private Flux<UserRecord> streamRows(
+      String operation, String url, Object request, String rowsField) {
+    Flux<UserRecord> rows =
+        webClient
+            .post()
+            .uri(url)
+            .bodyValue(request)
+            .retrieve()
+            .bodyToFlux(DataBuffer.class)
+            .transform(body -> UserRowDecoder.decode(body, rowsField))
+            .onErrorMap(e -> !(e instanceof GridDbException), ReactiveUsersContainerClient::failed);
+    return metrics.record(operation, resilience.openStream(operation, rows));
+  }
+
+  private static GridDbException failed(Throwable e) {
+    return new GridDbException(
+        "Failed to execute POST request", HttpStatusCode.valueOf(500), e.getMessage(), e);
+  }
+}
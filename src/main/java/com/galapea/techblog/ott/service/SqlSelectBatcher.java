@@ -0,0 +1,185 @@
+package com.galapea.techblog.ott.service;
+
+import com.galapea.techblog.ott.config.GridDbTransport;
+import com.galapea.techblog.ott.exception.GridDbException;
+import com.galapea.techblog.ott.model.GridDbCloudSQLOutPut;
+import com.galapea.techblog.ott.model.GridDbCloudSQLSelectInput;
+import java.net.SocketTimeoutException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.web.client.ResourceAccessException;
+
+/**
+ * Collects point selects arriving within a short window and sends them to GridDB as one
+ * multi-statement {@code /sql} request, then hands every caller the result at its own index.
+ *
+ * <p>A caller with a {@link GridDbTransport#withResponseTimeout response timeout} waits at most
+ * that long; the batch is sent with the longest timeout of its callers.
+ */
+@Slf4j
+class SqlSelectBatcher implements AutoCloseable {
+
+  private record Pending(
+      GridDbCloudSQLSelectInput input,
+      Duration timeout,
+      CompletableFuture<GridDbCloudSQLOutPut> result) {}
+
+  private final Function<List<GridDbCloudSQLSelectInput>, GridDbCloudSQLOutPut[]> sender;
+  private final long windowNanos;
+  private final int maxBatchSize;
+  private final LinkedBlockingQueue<Pending> queue = new LinkedBlockingQueue<>();
+  private final SimpleAsyncTaskExecutor sendExecutor;
+  private final Thread dispatcher;
+  private volatile boolean running = true;
+
+  private final LongAdder statements = new LongAdder();
+  private final LongAdder batches = new LongAdder();
+
+  SqlSelectBatcher(
+      Function<List<GridDbCloudSQLSelectInput>, GridDbCloudSQLOutPut[]> sender,
+      Duration window,
+      int maxBatchSize,
+      int maxConcurrentBatches,
+      boolean virtualThreads) {
+    this.sender = sender;
+    this.windowNanos = window.toNanos();
+    this.maxBatchSize = maxBatchSize;
+    this.sendExecutor = new SimpleAsyncTaskExecutor("griddb-sql-batch-");
+    this.sendExecutor.setVirtualThreads(virtualThreads);
+    this.sendExecutor.setConcurrencyLimit(maxConcurrentBatches);
+    this.dispatcher = new Thread(this::dispatchLoop, "griddb-sql-batcher");
+    this.dispatcher.setDaemon(true);
+    this.dispatcher.start();
+  }
+
+  GridDbCloudSQLOutPut select(GridDbCloudSQLSelectInput input) {
+    if (!running) {
+      throw new GridDbException("SQL batcher is closed", HttpStatusCode.valueOf(503), null);
+    }
+    Duration timeout = GridDbTransport.responseTimeout();
+    Pending pending = new Pending(input, timeout, new CompletableFuture<>());
+    queue.add(pending);
+    if (!running) {
+      failPending();
+    }
+    try {
+      return timeout == null
+          ? pending.result().get()
+          : pending.result().get(timeout.toNanos(), TimeUnit.NANOSECONDS);
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof RuntimeException cause) {
+        throw cause;
+      }
+      throw new GridDbException(
+          "Batched GridDB select failed", HttpStatusCode.valueOf(500), null, e.getCause());
+    } catch (TimeoutException e) {
+      throw new ResourceAccessException(
+          "Batched GridDB select timed out",
+          new SocketTimeoutException("No result within " + timeout.toMillis() + " ms"));
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new GridDbException(
+          "Interrupted while waiting for GridDB", HttpStatusCode.valueOf(503), null, e);
+    }
+  }
+
+  private void dispatchLoop() {
+    while (running) {
+      try {
+        Pending first = queue.take();
+        List<Pending> batch = new ArrayList<>(maxBatchSize);
+        batch.add(first);
+        long deadline = System.nanoTime() + windowNanos;
+        while (batch.size() < maxBatchSize) {
+          long remaining = deadline - System.nanoTime();
+          Pending next = remaining > 0 ? queue.poll(remaining, TimeUnit.NANOSECONDS) : null;
+          if (next == null) {
+            queue.drainTo(batch, maxBatchSize - batch.size());
+            break;
+          }
+          batch.add(next);
+        }
+        sendExecutor.execute(() -> send(batch));
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        break;
+      } catch (RuntimeException e) {
+        log.error("SQL batch dispatch failed", e);
+      }
+    }
+    failPending();
+  }
+
+  private void send(List<Pending> batch) {
+    batches.increment();
+    statements.add(batch.size());
+    try {
+      List<GridDbCloudSQLSelectInput> inputs = new ArrayList<>(batch.size());
+      Duration timeout = null;
+      for (Pending pending : batch) {
+        inputs.add(pending.input());
+        if (pending.timeout() != null
+            && (timeout == null || pending.timeout().compareTo(timeout) > 0)) {
+          timeout = pending.timeout();
+        }
+      }
+      GridDbCloudSQLOutPut[] response =
+          timeout == null
+              ? sender.apply(inputs)
+              : GridDbTransport.withResponseTimeout(timeout, () -> sender.apply(inputs));
+      if (response == null || response.length != batch.size()) {
+        throw new GridDbException(
+            "GridDB returned "
+                + (response == null ? 0 : response.length)
+                + " results for "
+                + batch.size()
+                + " statements",
+            HttpStatusCode.valueOf(502),
+            null);
+      }
+      for (int i = 0; i < batch.size(); i++) {
+        batch.get(i).result().complete(response[i]);
+      }
+    } catch (RuntimeException e) {
+      for (Pending pending : batch) {
+        pending.result().completeExceptionally(e);
+      }
+    }
+  }
+
+  private void failPending() {
+    GridDbException closed =
+        new GridDbException("SQL batcher is closed", HttpStatusCode.valueOf(503), null);
+    Pending pending;
+    while ((pending = queue.poll()) != null) {
+      pending.result().completeExceptionally(closed);
+    }
+  }
+
+  /** Number of statements sent through the batcher. */
+  long statements() {
+    return statements.sum();
+  }
+
+  /** Number of {@code /sql} requests the statements were sent in. */
+  long batches() {
+    return batches.sum();
+  }
+
+  @Override
+  public void close() {
+    running = false;
+    dispatcher.interrupt();
+  }
+}
@@ -0,0 +1,177 @@
+package com.galapea.techblog.ott.service;
+
+import com.galapea.techblog.ott.model.UserRecord;
+import com.galapea.techblog.ott.util.BloomFilter;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import java.util.concurrent.atomic.LongAdder;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * In-memory Bloom filters of user emails and ids, used to answer "does this user exist?" without a
+ * GridDB round trip when the answer is no.
+ *
+ * <p>{@link UsersContainerClient} adds every user it writes, and {@link UserService} rebuilds the
+ * filters periodically by paging through the {@code Users} container, which also drops deleted
+ * users and resizes the filters. Until the first build completes every lookup is a possible hit.
+ * Users written by other application instances are only seen after the next rebuild, so the index
+ * is off by default and should only be enabled when a single instance writes users.
+ */
+@Slf4j
+@Component
+public class UserExistenceIndex implements MeterBinder {
+
+  private record Filters(BloomFilter emails, BloomFilter ids) {
+
+    void add(UserRecord user) {
+      if (user.email() != null) {
+        emails.add(user.email());
+      }
+      if (user.id() != null) {
+        ids.add(user.id());
+      }
+    }
+  }
+
+  /** Filters being filled by a rebuild; see {@link UserService#rebuildExistenceIndex()}. */
+  public final class Rebuild {
+
+    private final Filters filters;
+    private long users;
+
+    private Rebuild(Filters filters) {
+      this.filters = filters;
+    }
+
+    public void add(UserRecord user) {
+      filters.add(user);
+      users++;
+    }
+
+    /** Replaces the current filters. */
+    public void complete() {
+      synchronized (UserExistenceIndex.this) {
+        current = filters;
+        building = null;
+        userCount = users;
+      }
+      log.info(
+          "User existence index rebuilt with {} users ({} KiB)",
+          users,
+          (filters.emails().sizeInBytes() + filters.ids().sizeInBytes()) / 1024);
+    }
+
+    /** Discards the filters, keeping the current ones. */
+    public void abandon() {
+      synchronized (UserExistenceIndex.this) {
+        if (building == filters) {
+          building = null;
+        }
+      }
+    }
+  }
+
+  private final boolean enabled;
+  private final long expectedUsers;
+  private final double falsePositiveProbability;
+
+  private volatile Filters current;
+  private volatile Filters building;
+  private volatile long userCount;
+
+  private final LongAdder skipped = new LongAdder();
+  private final LongAdder checked = new LongAdder();
+
+  public UserExistenceIndex(
+      @Value("${griddb.user-index.enabled:false}") boolean enabled,
+      @Value("${griddb.user-index.expected-users:100000}") long expectedUsers,
+      @Value("${griddb.user-index.false-positive-probability:0.01}")
+          double falsePositiveProbability) {
+    this.enabled = enabled;
+    this.expectedUsers = expectedUsers;
+    this.falsePositiveProbability = falsePositiveProbability;
+  }
+
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  /** {@code false} only if no user has this email; {@code true} means GridDB has to be asked. */
+  public boolean mightContainEmail(String email) {
+    Filters filters = current;
+    return record(filters == null || filters.emails().mightContain(email));
+  }
+
+  /** {@code false} only if no user has this id; {@code true} means GridDB has to be asked. */
+  public boolean mightContainId(String id) {
+    Filters filters = current;
+    return record(filters == null || filters.ids().mightContain(id));
+  }
+
+  private boolean record(boolean possibleHit) {
+    (possibleHit ? checked : skipped).increment();
+    return possibleHit;
+  }
+
+  /**
+   * Registers a written user. Call it once the write has returned, successfully or not: a rebuild
+   * that starts afterwards pages over the stored row, and one already running gets the user here.
+   * Adding a user whose write failed only costs a lookup.
+   */
+  public void add(UserRecord user) {
+    if (!enabled) {
+      return;
+    }
+    // building first: a rebuild completing in between has then already become current
+    Filters next = building;
+    Filters filters = current;
+    if (next != null) {
+      next.add(user);
+    }
+    if (filters != null && filters != next) {
+      filters.add(user);
+    }
+  }
+
+  /**
+   * Starts filling new filters sized for the larger of the configured expected users and twice the
+   * users seen by the last build. Users written from now on are added to them as well; the caller
+   * must then add every stored user and {@link Rebuild#complete() complete} the rebuild.
+   */
+  public synchronized Rebuild startRebuild() {
+    long expected = Math.max(expectedUsers, userCount * 2);
+    Filters filters =
+        new Filters(
+            BloomFilter.create(expected, falsePositiveProbability),
+            BloomFilter.create(expected, falsePositiveProbability));
+    building = filters;
+    return new Rebuild(filters);
+  }
+
+  public boolean isReady() {
+    return current != null;
+  }
+
+  @Override
+  public void bindTo(MeterRegistry registry) {
+    if (!enabled) {
+      return;
+    }
+    bindChecks(registry, "skipped", skipped);
+    bindChecks(registry, "checked", checked);
+    Gauge.builder("users.index.users", this, index -> index.userCount)
+        .description("Users in the existence index at its last rebuild")
+        .register(registry);
+  }
+
+  private static void bindChecks(MeterRegistry registry, String result, LongAdder counter) {
+    FunctionCounter.builder("users.index.lookups", counter, LongAdder::sum)
+        .description("Existence checks answered by the index (skipped) or passed to GridDB")
+        .tag("result", result)
+        .register(registry);
+  }
+}
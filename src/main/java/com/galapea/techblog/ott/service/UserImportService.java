@@ -0,0 +1,328 @@
+package com.galapea.techblog.ott.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.galapea.techblog.ott.model.UserDTO;
+import com.galapea.techblog.ott.model.UserImportResult;
+import com.galapea.techblog.ott.model.UserImportResult.RowError;
+import com.galapea.techblog.ott.model.UserRecord;
+import com.galapea.techblog.ott.util.BadRequestException;
+import com.galapea.techblog.ott.util.Csv;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.core.env.Environment;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.stereotype.Service;
+
+/**
+ * Bulk creation of users from CSV or newline-delimited JSON.
+ *
+ * <p>The input is read as a stream and cut into batches. Each batch is checked against existing
+ * emails with one query and written with one row put request, instead of a lookup and an INSERT per
+ * user. Batches are written on a dedicated executor with a cap on concurrent batches shared by all
+ * imports; when the cap is reached reading the input waits. Rows that cannot be imported are
+ * reported with their line number while the rest of the input continues.
+ *
+ * <p>Only the emails of batches that are not written yet are kept to catch duplicates within the
+ * input; a duplicate of an already written row is found by the existing email query. Memory use is
+ * therefore bounded by the batch size and the concurrency cap, not by the input.
+ */
+@Slf4j
+@Service
+public class UserImportService implements MeterBinder {
+
+  private static final int MAX_FIELD_LENGTH = 255;
+
+  public enum Format {
+    CSV,
+    NDJSON
+  }
+
+  private record Row(long line, UserDTO user) {}
+
+  private final UsersContainerClient usersContainerClient;
+  private final ObjectReader ndjsonReader;
+  private final int batchSize;
+  private final int maxErrors;
+  private final SimpleAsyncTaskExecutor writeExecutor;
+
+  private final LongAdder created = new LongAdder();
+  private final LongAdder rejected = new LongAdder();
+
+  public UserImportService(
+      UsersContainerClient usersContainerClient,
+      ObjectMapper objectMapper,
+      @Value("${users.import.batch-size:500}") int batchSize,
+      @Value("${users.import.max-concurrent-batches:4}") int maxConcurrentBatches,
+      @Value("${users.import.max-errors:1000}") int maxErrors,
+      Environment environment) {
+    this.usersContainerClient = usersContainerClient;
+    this.ndjsonReader =
+        objectMapper
+            .readerFor(UserDTO.class)
+            .without(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+    this.batchSize = batchSize;
+    this.maxErrors = maxErrors;
+    this.writeExecutor = new SimpleAsyncTaskExecutor("user-import-");
+    this.writeExecutor.setVirtualThreads(Threading.VIRTUAL.isActive(environment));
+    this.writeExecutor.setConcurrencyLimit(maxConcurrentBatches);
+  }
+
+  /**
+   * Imports users from {@code input}. CSV input needs a header row with an {@code email} column and
+   * optionally a {@code name} column; other columns are ignored. NDJSON input has one user object
+   * per line. New ids are always generated.
+   *
+   * @throws BadRequestException if the CSV header has no {@code email} column
+   */
+  public UserImportResult importUsers(InputStream input, Format format) throws IOException {
+    Import state = new Import();
+    BufferedReader reader =
+        new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8));
+    List<CompletableFuture<Void>> writes = new ArrayList<>();
+    try {
+      List<Row> batch = new ArrayList<>(batchSize);
+      RowSource rows = format == Format.CSV ? csvRows(reader) : ndjsonRows(reader, state);
+      for (Row row = rows.next(); row != null; row = rows.next()) {
+        if (!state.accept(row)) {
+          continue;
+        }
+        batch.add(row);
+        if (batch.size() == batchSize) {
+          writes.add(submit(batch, state));
+          batch = new ArrayList<>(batchSize);
+        }
+      }
+      if (!batch.isEmpty()) {
+        writes.add(submit(batch, state));
+      }
+    } finally {
+      // let submitted batches finish even if reading failed
+      CompletableFuture.allOf(writes.toArray(CompletableFuture[]::new)).join();
+    }
+    UserImportResult result = state.result();
+    log.info(
+        "Imported {} of {} users, {} rows rejected",
+        result.created(),
+        result.received(),
+        result.failed());
+    return result;
+  }
+
+  private CompletableFuture<Void> submit(List<Row> batch, Import state) {
+    // blocks while the concurrency limit is reached, which paces reading the input
+    return CompletableFuture.runAsync(() -> write(batch, state), writeExecutor);
+  }
+
+  private void write(List<Row> batch, Import state) {
+    try {
+      writeBatch(batch, state);
+    } finally {
+      state.written(batch);
+    }
+  }
+
+  private void writeBatch(List<Row> batch, Import state) {
+    Set<String> emails = new HashSet<>();
+    for (Row row : batch) {
+      emails.add(row.user().getEmail());
+    }
+    Set<String> existing;
+    try {
+      existing = usersContainerClient.findExistingEmails(emails);
+    } catch (RuntimeException e) {
+      failed(batch, state, e);
+      return;
+    }
+    List<Row> written = new ArrayList<>(batch.size());
+    List<UserRecord> users = new ArrayList<>(batch.size());
+    for (Row row : batch) {
+      if (existing.contains(row.user().getEmail())) {
+        state.reject(row, "email already exists");
+      } else {
+        written.add(row);
+        users.add(
+            new UserRecord(
+                UUID.randomUUID().toString(),
+                row.user().getEmail(),
+                row.user().getName(),
+                UserRecord.NO_PASSWORD));
+      }
+    }
+    try {
+      usersContainerClient.putUsers(users);
+      state.created(users.size());
+    } catch (RuntimeException e) {
+      failed(written, state, e);
+    }
+  }
+
+  private static void failed(List<Row> rows, Import state, RuntimeException e) {
+    log.warn("Failed to import a batch of {} users", rows.size(), e);
+    String message = "import failed: " + e.getMessage();
+    for (Row row : rows) {
+      state.reject(row, message);
+    }
+  }
+
+  private interface RowSource {
+    Row next() throws IOException;
+  }
+
+  private RowSource csvRows(BufferedReader reader) throws IOException {
+    Csv.Reader csv = new Csv.Reader(reader);
+    List<String> header = csv.next();
+    if (header == null) {
+      return () -> null;
+    }
+    int emailColumn = -1;
+    int nameColumn = -1;
+    for (int i = 0; i < header.size(); i++) {
+      String column = header.get(i).strip().toLowerCase(Locale.ROOT);
+      if (column.equals("email")) {
+        emailColumn = i;
+      } else if (column.equals("name")) {
+        nameColumn = i;
+      }
+    }
+    if (emailColumn < 0) {
+      throw new BadRequestException("CSV header has no email column");
+    }
+    int email = emailColumn;
+    int name = nameColumn;
+    return () -> {
+      List<String> record = csv.next();
+      if (record == null) {
+        return null;
+      }
+      UserDTO user = new UserDTO();
+      user.setEmail(email < record.size() ? record.get(email) : null);
+      user.setName(name >= 0 && name < record.size() ? record.get(name) : null);
+      return new Row(csv.recordLine(), user);
+    };
+  }
+
+  private RowSource ndjsonRows(BufferedReader reader, Import state) {
+    long[] lineNumber = {0};
+    return () -> {
+      while (true) {
+        String line = reader.readLine();
+        if (line == null) {
+          return null;
+        }
+        lineNumber[0]++;
+        if (line.isBlank()) {
+          continue;
+        }
+        try {
+          return new Row(lineNumber[0], ndjsonReader.readValue(line));
+        } catch (JsonProcessingException e) {
+          state.received();
+          state.reject(
+              new Row(lineNumber[0], new UserDTO()), "invalid JSON: " + e.getOriginalMessage());
+        }
+      }
+    };
+  }
+
+  private static String validate(UserDTO user) {
+    String email = user.getEmail() == null ? null : user.getEmail().strip();
+    user.setEmail(email);
+    if (email == null || email.isEmpty()) {
+      return "email is required";
+    }
+    if (email.length() > MAX_FIELD_LENGTH) {
+      return "email is longer than " + MAX_FIELD_LENGTH + " characters";
+    }
+    if (user.getName() != null && user.getName().length() > MAX_FIELD_LENGTH) {
+      return "name is longer than " + MAX_FIELD_LENGTH + " characters";
+    }
+    return null;
+  }
+
+  /** Progress of one import; rows are rejected from the reading thread and from batch writes. */
+  private final class Import {
+
+    private final Set<String> pendingEmails = ConcurrentHashMap.newKeySet();
+    private final List<RowError> errors = new ArrayList<>();
+    private long received;
+    private long createdRows;
+    private long failedRows;
+
+    /** Validates a parsed row; rejected rows are recorded and not written. */
+    boolean accept(Row row) {
+      received();
+      String error = validate(row.user());
+      if (error == null && !pendingEmails.add(row.user().getEmail())) {
+        error = "duplicate email in input";
+      }
+      if (error != null) {
+        reject(row, error);
+        return false;
+      }
+      return true;
+    }
+
+    /** Forgets the emails of a batch once it is stored, or failed. */
+    void written(List<Row> batch) {
+      for (Row row : batch) {
+        pendingEmails.remove(row.user().getEmail());
+      }
+    }
+
+    synchronized void received() {
+      received++;
+    }
+
+    synchronized void reject(Row row, String message) {
+      failedRows++;
+      rejected.increment();
+      if (errors.size() < maxErrors) {
+        errors.add(new RowError(row.line(), row.user().getEmail(), message));
+      }
+    }
+
+    synchronized void created(int count) {
+      createdRows += count;
+      created.add(count);
+    }
+
+    synchronized UserImportResult result() {
+      List<RowError> sorted = new ArrayList<>(errors);
+      sorted.sort(Comparator.comparingLong(RowError::line));
+      return new UserImportResult(
+          received, createdRows, failedRows, sorted, failedRows > errors.size());
+    }
+  }
+
+  @Override
+  public void bindTo(MeterRegistry registry) {
+    FunctionCounter.builder("users.import.created", created, LongAdder::sum)
+        .description("Users created by bulk imports")
+        .register(registry);
+    FunctionCounter.builder("users.import.rejected", rejected, LongAdder::sum)
+        .description("Rows rejected by bulk imports")
+        .register(registry);
+  }
+}
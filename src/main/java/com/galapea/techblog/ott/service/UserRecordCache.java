@@ -0,0 +1,191 @@
+package com.galapea.techblog.ott.service;
+
+import com.galapea.techblog.ott.model.UserRecord;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+/**
+ * Bounded read-through cache for single user lookups by id and by email.
+ *
+ * <p>Missing users are never cached. Every write bumps an epoch so that a lookup which started
+ * before the write cannot publish the record it read after the write has invalidated it. The email
+ * each id is cached under is kept in a reverse map, so invalidating an id does not scan the email
+ * cache.
+ */
+@Slf4j
+@Component
+public class UserRecordCache implements MeterBinder {
+
+  private final boolean enabled;
+  private final Cache<String, UserRecord> byId;
+  private final Cache<String, UserRecord> byEmail;
+  private final Map<String, String> emailById = new ConcurrentHashMap<>();
+  private final AtomicLong writeEpoch = new AtomicLong();
+
+  public UserRecordCache(
+      @Value("${griddb.user-cache.enabled:true}") boolean enabled,
+      @Value("${griddb.user-cache.max-size:10000}") long maxSize,
+      @Value("${griddb.user-cache.ttl:5m}") Duration ttl) {
+    this.enabled = enabled;
+    this.byId = newCache(maxSize, ttl);
+    this.byEmail =
+        Caffeine.newBuilder()
+            .maximumSize(maxSize)
+            .expireAfterWrite(ttl)
+            .evictionListener(
+                (String email, UserRecord user, RemovalCause cause) ->
+                    emailById.remove(user.id(), email))
+            .recordStats()
+            .build();
+    log.info("User cache enabled={}, maxSize={}, ttl={}", enabled, maxSize, ttl);
+  }
+
+  private static Cache<String, UserRecord> newCache(long maxSize, Duration ttl) {
+    return Caffeine.newBuilder().maximumSize(maxSize).expireAfterWrite(ttl).recordStats().build();
+  }
+
+  public UserRecord getById(String id, Supplier<UserRecord> loader) {
+    return get(byId, id, loader);
+  }
+
+  public UserRecord getByEmail(String email, Supplier<UserRecord> loader) {
+    return get(byEmail, email, loader);
+  }
+
+  private UserRecord get(Cache<String, UserRecord> cache, String key, Supplier<UserRecord> loader) {
+    if (!enabled || key == null) {
+      return loader.get();
+    }
+    UserRecord cached = cache.getIfPresent(key);
+    if (cached != null) {
+      return cached;
+    }
+    long epoch = writeEpoch.get();
+    UserRecord loaded = loader.get();
+    if (loaded != null) {
+      put(loaded, epoch);
+    }
+    return loaded;
+  }
+
+  /** Like {@link #getById(String, Supplier)} with a non-blocking loader. */
+  public Mono<UserRecord> getById(String id, Mono<UserRecord> loader) {
+    return get(byId, id, loader);
+  }
+
+  /** Like {@link #getByEmail(String, Supplier)} with a non-blocking loader. */
+  public Mono<UserRecord> getByEmail(String email, Mono<UserRecord> loader) {
+    return get(byEmail, email, loader);
+  }
+
+  private Mono<UserRecord> get(
+      Cache<String, UserRecord> cache, String key, Mono<UserRecord> loader) {
+    if (!enabled || key == null) {
+      return loader;
+    }
+    return Mono.defer(
+        () -> {
+          UserRecord cached = cache.getIfPresent(key);
+          if (cached != null) {
+            return Mono.just(cached);
+          }
+          long epoch = writeEpoch.get();
+          return loader.doOnNext(loaded -> put(loaded, epoch));
+        });
+  }
+
+  private void put(UserRecord loaded, long epoch) {
+    byId.put(loaded.id(), loaded);
+    byEmail.put(loaded.email(), loaded);
+    emailById.put(loaded.id(), loaded.email());
+    if (writeEpoch.get() != epoch) {
+      // a write raced with this lookup, the record may already be stale
+      evict(loaded.id(), loaded.email());
+    }
+  }
+
+  /** Drops every entry that refers to the given user, by id or by email. */
+  public void invalidate(UserRecord user) {
+    writeEpoch.incrementAndGet();
+    evict(user.id(), user.email());
+  }
+
+  /** Drops every entry that refers to the given user id. */
+  public void invalidateId(String id) {
+    writeEpoch.incrementAndGet();
+    evict(id, null);
+  }
+
+  /** Drops every entry that refers to one of the given user ids. */
+  public void invalidateIds(Collection<String> ids) {
+    writeEpoch.incrementAndGet();
+    for (String id : ids) {
+      evict(id, null);
+    }
+  }
+
+  private void evict(String id, String email) {
+    if (id != null) {
+      UserRecord previous = byId.asMap().remove(id);
+      if (previous != null) {
+        evictEmail(previous.email());
+      }
+      // the email cache may hold an older record of the id, or one evicted from byId already
+      String cachedEmail = emailById.remove(id);
+      if (cachedEmail != null) {
+        evictEmail(cachedEmail);
+      }
+    }
+    if (email != null) {
+      evictEmail(email);
+    }
+  }
+
+  private void evictEmail(String email) {
+    UserRecord previous = byEmail.asMap().remove(email);
+    if (previous != null) {
+      emailById.remove(previous.id(), email);
+    }
+  }
+
+  public void invalidateAll() {
+    writeEpoch.incrementAndGet();
+    byId.invalidateAll();
+    byEmail.invalidateAll();
+    emailById.clear();
+  }
+
+  public CacheStats byIdStats() {
+    return byId.stats();
+  }
+
+  public CacheStats byEmailStats() {
+    return byEmail.stats();
+  }
+
+  public long size() {
+    return byId.estimatedSize() + byEmail.estimatedSize();
+  }
+
+  @Override
+  public void bindTo(MeterRegistry registry) {
+    new CaffeineCacheMetrics<>(byId, "users-by-id", Tags.empty()).bindTo(registry);
+    new CaffeineCacheMetrics<>(byEmail, "users-by-email", Tags.empty()).bindTo(registry);
+  }
+}
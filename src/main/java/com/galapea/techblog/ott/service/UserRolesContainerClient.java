@@ -0,0 +1,110 @@
+package com.galapea.techblog.ott.service;
+
+import com.galapea.techblog.ott.exception.GridDbException;
+import com.galapea.techblog.ott.model.GridDbCloudSQLOutPut;
+import com.galapea.techblog.ott.model.GridDbCloudSQLSelectInput;
+import com.galapea.techblog.ott.util.SqlTemplate;
+import java.util.ArrayList;
+import java.util.List;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.http.HttpMethod;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Service;
+import org.springframework.web.client.RestClient;
+
+/**
+ * Access to the {@code UserRoles} container: one row per user with roles beyond the default one,
+ * keyed by user id. Rows are never deleted; revoking every role writes an empty list, so changes
+ * can be read incrementally by {@code updated_at}.
+ */
+@Slf4j
+@Service
+public class UserRolesContainerClient {
+  static final String CONTAINER_NAME = "UserRoles";
+  private static final SqlTemplate SELECT_CHANGED =
+      SqlTemplate.compile(
+          "SELECT user_id, roles, updated_at FROM UserRoles WHERE updated_at >= ?"
+              + " ORDER BY updated_at");
+  private static final SqlTemplate SELECT_BY_USER =
+      SqlTemplate.compile("SELECT user_id, roles, updated_at FROM UserRoles WHERE user_id = ?");
+
+  /** Roles of one user, comma separated. */
+  public record UserRoles(String userId, String roles, long updatedAt) {}
+
+  private final RestClient restClient;
+  private final GridDbMetrics metrics;
+  private final GridDbResilience resilience;
+
+  public UserRolesContainerClient(
+      @Qualifier("gridDbRestClient") RestClient gridDbRestClient,
+      GridDbMetrics metrics,
+      GridDbResilience resilience) {
+    this.restClient = gridDbRestClient;
+    this.metrics = metrics;
+    this.resilience = resilience;
+  }
+
+  /** Replaces the roles of a user. */
+  public void put(UserRoles userRoles) {
+    List<List<Object>> rows =
+        List.of(List.of(userRoles.userId(), userRoles.roles(), userRoles.updatedAt()));
+    String url = String.format("/containers/%s/rows", CONTAINER_NAME);
+    metrics.record(
+        "putRoles",
+        () -> resilience.write("putRoles", () -> execute(HttpMethod.PUT, url, rows, null)));
+  }
+
+  /**
+   * @param since epoch milliseconds; {@code 0} loads every row
+   * @return rows updated at or after {@code since}, oldest first
+   */
+  public List<UserRoles> findUpdatedSince(long since) {
+    return select("findRoles", SELECT_CHANGED.bind(since));
+  }
+
+  /**
+   * @return the row of the user, {@code null} if roles were never assigned; a user whose roles were
+   *     revoked has a row with no roles
+   */
+  @Nullable
+  public UserRoles find(String userId) {
+    List<UserRoles> rows = select("findUserRoles", SELECT_BY_USER.bind(userId));
+    return rows.isEmpty() ? null : rows.get(0);
+  }
+
+  private List<UserRoles> select(String operation, String statement) {
+    List<GridDbCloudSQLSelectInput> body =
+        List.of(new GridDbCloudSQLSelectInput("sql-select", statement));
+    GridDbCloudSQLOutPut[] response =
+        metrics.record(
+            operation,
+            () ->
+                resilience.read(
+                    operation,
+                    () -> execute(HttpMethod.POST, "/sql", body, GridDbCloudSQLOutPut[].class)));
+    if (response == null || response.length == 0 || response[0].results() == null) {
+      return List.of();
+    }
+    List<UserRoles> rows = new ArrayList<>(response[0].results().size());
+    for (List<String> row : response[0].results()) {
+      rows.add(
+          new UserRoles(
+              row.get(0), row.get(1) == null ? "" : row.get(1), Long.parseLong(row.get(2))));
+    }
+    return rows;
+  }
+
+  private <T> T execute(HttpMethod method, String uri, Object body, Class<T> responseType) {
+    return GridDbException.wrap(
+        "Failed to execute " + method + " request",
+        () -> {
+          RestClient.ResponseSpec spec = restClient.method(method).uri(uri).body(body).retrieve();
+          if (responseType == null) {
+            spec.toBodilessEntity();
+            return null;
+          }
+          return spec.body(responseType);
+        });
+  }
+}
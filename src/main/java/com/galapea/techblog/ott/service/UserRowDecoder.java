@@ -0,0 +1,178 @@
+package com.galapea.techblog.ott.service;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.async.ByteBufferFeeder;
+import com.galapea.techblog.ott.exception.GridDbException;
+import com.galapea.techblog.ott.model.UserRecord;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.HttpStatusCode;
+import reactor.core.publisher.Flux;
+
+/**
+ * Non-blocking counterpart of {@link UserRowReader}: decodes the row array of a GridDB response
+ * from body chunks as they arrive, with Jackson's non-blocking parser, and emits each user as soon
+ * as its row is complete. Only the current row is buffered, never the response.
+ */
+@Slf4j
+final class UserRowDecoder {
+
+  private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+  private enum Phase {
+    START,
+    FIELDS,
+    ROWS,
+    ROW,
+    DONE
+  }
+
+  private final JsonParser parser;
+  private final ByteBufferFeeder feeder;
+  private final String rowsField;
+  private Phase phase = Phase.START;
+  private boolean rowsFieldNext;
+  private int skipDepth;
+  private int column;
+  private final String[] values = new String[4];
+
+  private UserRowDecoder(String rowsField) throws IOException {
+    this.parser = JSON_FACTORY.createNonBlockingByteBufferParser();
+    this.feeder = (ByteBufferFeeder) parser.getNonBlockingInputFeeder();
+    this.rowsField = rowsField;
+  }
+
+  /**
+   * @param body response body chunks, released once decoded
+   * @param rowsField {@code rows} for container queries, {@code results} for SQL selects
+   */
+  static Flux<UserRecord> decode(Flux<DataBuffer> body, String rowsField) {
+    return Flux.using(
+        () -> new UserRowDecoder(rowsField),
+        decoder ->
+            body.concatMapIterable(decoder::feed)
+                .concatWith(Flux.defer(() -> Flux.fromIterable(decoder.endOfInput()))),
+        UserRowDecoder::close);
+  }
+
+  private List<UserRecord> feed(DataBuffer buffer) {
+    try {
+      if (phase == Phase.DONE) {
+        return List.of();
+      }
+      List<UserRecord> users = new ArrayList<>();
+      try (DataBuffer.ByteBufferIterator chunks = buffer.readableByteBuffers()) {
+        while (phase != Phase.DONE && chunks.hasNext()) {
+          ByteBuffer chunk = chunks.next();
+          feeder.feedInput(chunk);
+          drain(users);
+        }
+      }
+      return users;
+    } catch (IOException e) {
+      throw new GridDbException(
+          "Failed to read GridDB rows", HttpStatusCode.valueOf(500), e.getMessage(), e);
+    } finally {
+      DataBufferUtils.release(buffer);
+    }
+  }
+
+  private List<UserRecord> endOfInput() {
+    if (phase == Phase.DONE) {
+      return List.of();
+    }
+    try {
+      feeder.endOfInput();
+      List<UserRecord> users = new ArrayList<>();
+      drain(users);
+      return users;
+    } catch (IOException e) {
+      throw new GridDbException(
+          "Failed to read GridDB rows", HttpStatusCode.valueOf(500), e.getMessage(), e);
+    }
+  }
+
+  private void drain(List<UserRecord> users) throws IOException {
+    JsonToken token;
+    while (phase != Phase.DONE
+        && (token = parser.nextToken()) != null
+        && token != JsonToken.NOT_AVAILABLE) {
+      if (skipDepth > 0) {
+        skip(token);
+        continue;
+      }
+      switch (phase) {
+        case START -> start(token);
+        case FIELDS -> field(token);
+        case ROWS -> phase = token == JsonToken.START_ARRAY ? startRow() : Phase.DONE;
+        case ROW -> column(token, users);
+        default -> {}
+      }
+    }
+  }
+
+  private void start(JsonToken token) {
+    if (token == JsonToken.START_OBJECT) {
+      phase = Phase.FIELDS;
+    } else if (token != JsonToken.START_ARRAY) {
+      // SQL responses hold one object per statement; anything else has no rows
+      phase = Phase.DONE;
+    }
+  }
+
+  private void field(JsonToken token) throws IOException {
+    if (token == JsonToken.FIELD_NAME) {
+      rowsFieldNext = rowsField.equals(parser.currentName());
+    } else if (rowsFieldNext) {
+      phase = token == JsonToken.START_ARRAY ? Phase.ROWS : Phase.DONE;
+    } else if (token == JsonToken.END_OBJECT) {
+      phase = Phase.DONE;
+    } else {
+      skip(token);
+    }
+  }
+
+  private Phase startRow() {
+    column = 0;
+    return Phase.ROW;
+  }
+
+  private void column(JsonToken token, List<UserRecord> users) throws IOException {
+    if (token == JsonToken.END_ARRAY) {
+      if (column >= 4) {
+        users.add(new UserRecord(values[0], values[1], values[2], values[3]));
+      }
+      phase = Phase.ROWS;
+      return;
+    }
+    if (column < 4) {
+      values[column] = token.isScalarValue() ? parser.getValueAsString() : null;
+    }
+    column++;
+    skip(token);
+  }
+
+  /** Tracks the nesting of a value that is not needed until it has been passed. */
+  private void skip(JsonToken token) {
+    if (token.isStructStart()) {
+      skipDepth++;
+    } else if (token.isStructEnd()) {
+      skipDepth--;
+    }
+  }
+
+  private void close() {
+    try {
+      parser.close();
+    } catch (IOException e) {
+      log.debug("Failed to close GridDB row decoder", e);
+    }
+  }
+}
@@ -0,0 +1,94 @@
+package com.galapea.techblog.ott.service;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.galapea.techblog.ott.model.UserRecord;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+
+/**
+ * Reads the row array of a GridDB response one row at a time, so a large result never has to be
+ * held in memory. Handles both the {@code rows} object of {@code /containers/{name}/rows} and the
+ * {@code results} of the first statement in a {@code /sql} response array. Rows with fewer than
+ * four columns are skipped.
+ */
+final class UserRowReader implements Closeable {
+
+  private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+  private final JsonParser parser;
+  private boolean inRows;
+
+  /**
+   * @param body response body
+   * @param rowsField {@code rows} for container queries, {@code results} for SQL selects
+   */
+  UserRowReader(InputStream body, String rowsField) throws IOException {
+    this.parser = JSON_FACTORY.createParser(body);
+    this.inRows = seekRows(rowsField);
+  }
+
+  private boolean seekRows(String rowsField) throws IOException {
+    JsonToken token = parser.nextToken();
+    if (token == JsonToken.START_ARRAY) {
+      // SQL responses hold one object per statement
+      token = parser.nextToken();
+    }
+    if (token != JsonToken.START_OBJECT) {
+      return false;
+    }
+    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+      String field = parser.currentName();
+      JsonToken value = parser.nextToken();
+      if (rowsField.equals(field)) {
+        return value == JsonToken.START_ARRAY;
+      }
+      parser.skipChildren();
+    }
+    return false;
+  }
+
+  /**
+   * @return the next user, or {@code null} when the rows array is exhausted
+   */
+  UserRecord next() {
+    try {
+      while (inRows) {
+        JsonToken token = parser.nextToken();
+        if (token != JsonToken.START_ARRAY) {
+          inRows = false;
+          return null;
+        }
+        String id = null;
+        String email = null;
+        String name = null;
+        String password = null;
+        int column = 0;
+        while (parser.nextToken() != JsonToken.END_ARRAY) {
+          String value = parser.getValueAsString();
+          switch (column++) {
+            case 0 -> id = value;
+            case 1 -> email = value;
+            case 2 -> name = value;
+            case 3 -> password = value;
+            default -> parser.skipChildren();
+          }
+        }
+        if (column >= 4) {
+          return new UserRecord(id, email, name, password);
+        }
+      }
+      return null;
+    } catch (IOException e) {
+      throw new UncheckedIOException("Failed to read GridDB rows", e);
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+    parser.close();
+  }
+}
@@ -1,28 +1,92 @@
 package com.galapea.techblog.ott.service;
 
 import com.galapea.techblog.ott.model.UserDTO;
+import com.galapea.techblog.ott.model.UserPage;
 import com.galapea.techblog.ott.model.UserRecord;
 import com.galapea.techblog.ott.util.NotFoundException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
-import org.springframework.security.crypto.password.PasswordEncoder;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
+@Slf4j
 @Service
 public class UserService {
+  private static final int EXPORT_PAGE_SIZE = 500;
+
   private final UsersContainerClient usersContainerClient;
-  private final PasswordEncoder passwordEncoder;
+  private final UserExistenceIndex existenceIndex;
+  private final int bulkChunkSize;
 
   public UserService(
-      final UsersContainerClient usersContainerClient, final PasswordEncoder passwordEncoder) {
+      final UsersContainerClient usersContainerClient,
+      final UserExistenceIndex existenceIndex,
+      @Value("${users.bulk.chunk-size:1000}") final int bulkChunkSize) {
     this.usersContainerClient = usersContainerClient;
-    this.passwordEncoder = passwordEncoder;
+    this.existenceIndex = existenceIndex;
+    this.bulkChunkSize = bulkChunkSize;
   }
 
   public List<UserDTO> findAll() {
-    final List<UserRecord> users = usersContainerClient.queryUsers();
-    return users.stream().map(user -> mapToDTO(user, new UserDTO())).toList();
+    final List<UserDTO> users = new ArrayList<>();
+    usersContainerClient.forEachUser(user -> users.add(mapToDTO(user, new UserDTO())));
+    return users;
+  }
+
+  /**
+   * Keyset page of users ordered by id.
+   *
+   * @param after id of the last user of the previous page, {@code null} for the first page
+   * @param limit page size
+   */
+  public UserPage findPage(final String after, final int limit) {
+    final List<UserRecord> users = usersContainerClient.queryUsersAfter(after, limit + 1);
+    final boolean hasMore = users.size() > limit;
+    final List<UserDTO> page =
+        users.stream().limit(limit).map(user -> mapToDTO(user, new UserDTO())).toList();
+    return new UserPage(page, hasMore ? page.get(page.size() - 1).getId() : null);
+  }
+
+  /**
+   * Walks every user ordered by id, one keyset page at a time. Each page's rows are read from the
+   * response as they are consumed and the next page is requested only after the previous one is
+   * done, so memory use is bounded by the page size.
+   */
+  public void forEachUser(final Consumer<UserDTO> consumer) {
+    forEachRecord(user -> consumer.accept(mapToDTO(user, new UserDTO())));
+  }
+
+  private void forEachRecord(final Consumer<UserRecord> consumer) {
+    String after = null;
+    while (true) {
+      int count = 0;
+      try (Stream<UserRecord> page =
+          usersContainerClient.streamUsersAfter(after, EXPORT_PAGE_SIZE)) {
+        final Iterator<UserRecord> users = page.iterator();
+        while (users.hasNext()) {
+          final UserRecord user = users.next();
+          consumer.accept(user);
+          after = user.id();
+          count++;
+        }
+      }
+      if (count < EXPORT_PAGE_SIZE) {
+        return;
+      }
+    }
   }
 
   public UserDTO get(final String id) {
@@ -50,18 +114,14 @@ public class UserService {
             UUID.randomUUID().toString(),
             userDTO.getEmail(),
             userDTO.getName(),
-            passwordEncoder.encode(UUID.randomUUID().toString()));
+            UserRecord.NO_PASSWORD);
     usersContainerClient.insert(user);
     return user.id();
   }
 
   public void update(final String id, final UserDTO userDTO) {
-    UserRecord user =
-        new UserRecord(
-            userDTO.getId(),
-            userDTO.getEmail(),
-            userDTO.getName(),
-            passwordEncoder.encode(UUID.randomUUID().toString()));
+    // only the name is written, the stored password is left as it is
+    UserRecord user = new UserRecord(id, userDTO.getEmail(), userDTO.getName(), null);
     usersContainerClient.update(user);
   }
 
@@ -69,6 +129,39 @@ public class UserService {
     usersContainerClient.deleteUser(id);
   }
 
+  /**
+   * Deletes users with one GridDB request per {@code users.bulk.chunk-size} ids.
+   *
+   * @return number of distinct ids submitted
+   */
+  public int deleteAll(final Collection<String> ids) {
+    final List<String> distinct = List.copyOf(new LinkedHashSet<>(ids));
+    for (int from = 0; from < distinct.size(); from += bulkChunkSize) {
+      usersContainerClient.deleteUsers(
+          distinct.subList(from, Math.min(from + bulkChunkSize, distinct.size())));
+    }
+    return distinct.size();
+  }
+
+  /**
+   * Renames users with one GridDB request per {@code users.bulk.chunk-size} users.
+   *
+   * @param namesById new name by user id
+   * @return number of users updated
+   */
+  public long renameAll(final Map<String, String> namesById) {
+    long updated = 0;
+    final Map<String, String> chunk = new LinkedHashMap<>();
+    for (final Map.Entry<String, String> entry : namesById.entrySet()) {
+      chunk.put(entry.getKey(), entry.getValue());
+      if (chunk.size() == bulkChunkSize) {
+        updated += usersContainerClient.renameUsers(chunk);
+        chunk.clear();
+      }
+    }
+    return updated + usersContainerClient.renameUsers(chunk);
+  }
+
   private UserDTO mapToDTO(final UserRecord user, final UserDTO userDTO) {
     userDTO.setId(user.id());
     userDTO.setEmail(user.email());
@@ -77,10 +170,34 @@ public class UserService {
   }
 
   public boolean idExists(final String id) {
-    return usersContainerClient.getUserById(id) != null;
+    return existenceIndex.mightContainId(id) && usersContainerClient.getUserById(id) != null;
   }
 
   public boolean emailExists(final String email) {
-    return usersContainerClient.getUserByEmail(email) != null;
+    return existenceIndex.mightContainEmail(email)
+        && usersContainerClient.getUserByEmail(email) != null;
+  }
+
+  /**
+   * Rebuilds the {@link UserExistenceIndex} from the {@code Users} container once the application
+   * is ready, after the seeder, and then every {@code griddb.user-index.rebuild-interval}. Until a
+   * rebuild succeeds every existence check goes to GridDB.
+   */
+  @EventListener(ApplicationReadyEvent.class)
+  @Scheduled(
+      initialDelayString = "${griddb.user-index.rebuild-interval:PT15M}",
+      fixedDelayString = "${griddb.user-index.rebuild-interval:PT15M}")
+  public void rebuildExistenceIndex() {
+    if (!existenceIndex.isEnabled()) {
+      return;
+    }
+    final UserExistenceIndex.Rebuild rebuild = existenceIndex.startRebuild();
+    try {
+      forEachRecord(rebuild::add);
+      rebuild.complete();
+    } catch (final RuntimeException e) {
+      rebuild.abandon();
+      log.warn("Failed to rebuild the user existence index: {}", e.getMessage());
+    }
   }
 }
@@ -2,54 +2,125 @@ package com.galapea.techblog.ott.service;
 
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.galapea.techblog.ott.exception.GridDbException;
+import com.galapea.techblog.ott.model.GridDbCloudSQLInsert;
+import com.galapea.techblog.ott.model.GridDbCloudSQLOutPut;
+import com.galapea.techblog.ott.model.GridDbCloudSQLSelectInput;
+import com.galapea.techblog.ott.model.GridDbCloudSQLUpdateOutput;
 import com.galapea.techblog.ott.model.UserRecord;
-import java.nio.charset.StandardCharsets;
+import com.galapea.techblog.ott.util.SingleFlight;
+import com.galapea.techblog.ott.util.SqlTemplate;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PreDestroy;
+import java.io.IOException;
+import java.time.Duration;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.core.env.Environment;
 import org.springframework.http.HttpMethod;
 import org.springframework.http.HttpStatusCode;
-import org.springframework.http.MediaType;
+import org.springframework.http.client.ClientHttpResponse;
 import org.springframework.stereotype.Service;
 import org.springframework.web.client.RestClient;
 
 @Slf4j
 @Service
-public class UsersContainerClient {
-  private static final String CONTAINER_NAME = "Users";
+public class UsersContainerClient implements MeterBinder {
+  static final String CONTAINER_NAME = "Users";
+  static final SqlTemplate SELECT_BY_ID =
+      SqlTemplate.compile("SELECT id, email, name, \"password\" FROM Users where id == ?");
+  static final SqlTemplate SELECT_BY_EMAIL =
+      SqlTemplate.compile("SELECT id, email, name, \"password\" FROM Users where email == ?");
+  static final SqlTemplate SELECT_PAGE =
+      SqlTemplate.compile("SELECT id, email, name, \"password\" FROM Users ORDER BY id LIMIT ?");
+  static final SqlTemplate SELECT_PAGE_AFTER =
+      SqlTemplate.compile(
+          "SELECT id, email, name, \"password\" FROM Users WHERE id > ? ORDER BY id LIMIT ?");
+  private static final SqlTemplate INSERT =
+      SqlTemplate.compile("INSERT INTO Users(id, email, name, \"password\") VALUES (?, ?, ?, ?)");
+  private static final SqlTemplate UPDATE_NAME =
+      SqlTemplate.compile("UPDATE Users set name = ? where id == ?");
+  private static final SqlTemplate UPDATE_PASSWORD =
+      SqlTemplate.compile("UPDATE Users set \"password\" = ? where id == ?");
   private final RestClient restClient;
-  private final String baseUrl;
+  private final UserRecordCache userCache;
+  private final UserExistenceIndex existenceIndex;
+  private final GridDbMetrics metrics;
+  private final GridDbResilience resilience;
+  private final SingleFlight<String, UserRecord> lookups = new SingleFlight<>();
+  private final SqlSelectBatcher selectBatcher;
 
   public UsersContainerClient(
-      @Value("${griddb.base-url}") String baseUrl,
-      @Value("${griddb.auth-token}") String authToken) {
-    this.baseUrl = baseUrl;
-    this.restClient =
-        RestClient.builder()
-            .baseUrl(this.baseUrl)
-            .defaultHeader("Authorization", "Basic " + authToken)
-            .defaultHeader("Content-Type", MediaType.APPLICATION_JSON_VALUE)
-            .defaultStatusHandler(
-                HttpStatusCode::isError,
-                (request, response) -> {
-                  log.error("GridDB API response failed: {}", response.getStatusText());
-                  String errorBody = new String(response.getBody().readAllBytes());
-                  log.error("GridDB API Response error body: {}", errorBody);
-                  throw new GridDbException(
-                      "GridDB API request failed", response.getStatusCode(), errorBody);
-                })
-            .requestInterceptor(
-                (request, body, execution) -> {
-                  log.info("GridDB API Request: {} {}", request.getMethod(), request.getURI());
-                  if (body != null && body.length > 0) {
-                    log.info(
-                        "GridDB API Request body: {}", new String(body, StandardCharsets.UTF_8));
-                  }
-                  log.info("GridDB API Request headers: {}", request.getHeaders());
-                  return execution.execute(request, body);
-                })
-            .build();
+      @Qualifier("gridDbRestClient") RestClient gridDbRestClient,
+      UserRecordCache userCache,
+      UserExistenceIndex existenceIndex,
+      GridDbMetrics metrics,
+      GridDbResilience resilience,
+      @Value("${griddb.sql-batch.enabled:true}") boolean batchEnabled,
+      @Value("${griddb.sql-batch.window:2ms}") Duration batchWindow,
+      @Value("${griddb.sql-batch.max-size:16}") int batchMaxSize,
+      @Value("${griddb.sql-batch.max-concurrent:8}") int batchMaxConcurrent,
+      Environment environment) {
+    this.userCache = userCache;
+    this.existenceIndex = existenceIndex;
+    this.metrics = metrics;
+    this.resilience = resilience;
+    this.restClient = gridDbRestClient;
+    this.selectBatcher =
+        batchEnabled
+            ? new SqlSelectBatcher(
+                inputs -> post("/sql", inputs, GridDbCloudSQLOutPut[].class),
+                batchWindow,
+                batchMaxSize,
+                batchMaxConcurrent,
+                Threading.VIRTUAL.isActive(environment))
+            : null;
+  }
+
+  @PreDestroy
+  void closeSelectBatcher() {
+    if (selectBatcher != null) {
+      selectBatcher.close();
+    }
+  }
+
+  @Override
+  public void bindTo(MeterRegistry registry) {
+    FunctionCounter.builder("griddb.lookups.executions", lookups, SingleFlight::executions)
+        .description("User lookups sent to GridDB")
+        .register(registry);
+    FunctionCounter.builder("griddb.lookups.collapsed", lookups, SingleFlight::collapsed)
+        .description("User lookups that shared an identical in-flight request")
+        .register(registry);
+    Gauge.builder("griddb.lookups.in.flight", lookups, SingleFlight::inFlight)
+        .description("User lookups currently waiting for GridDB")
+        .register(registry);
+    if (selectBatcher != null) {
+      FunctionCounter.builder("griddb.sql.batch.statements", selectBatcher, b -> b.statements())
+          .description("SELECT statements sent through the batcher")
+          .register(registry);
+      FunctionCounter.builder("griddb.sql.batch.requests", selectBatcher, b -> b.batches())
+          .description("/sql requests the batched statements were sent in")
+          .register(registry);
+    }
   }
 
   public static class UsersQueryRequest {
@@ -117,18 +188,8 @@ public class UsersContainerClient {
    * @return Query result from GridDB
    */
   public List<UserRecord> queryUsers(int offset, int limit, String condition, String sort) {
-    UsersQueryRequest request = new UsersQueryRequest(offset, limit, condition, sort);
-    String url = String.format("/containers/%s/rows", CONTAINER_NAME);
-    GridDbCloudContainerOutput response = post(url, request, GridDbCloudContainerOutput.class);
     List<UserRecord> userRecords = new ArrayList<>();
-    if (response == null || response.total() == 0) {
-      return userRecords;
-    }
-    for (List<String> row : response.rows()) {
-      if (row.size() >= 4) {
-        userRecords.add(new UserRecord(row.get(0), row.get(1), row.get(2), row.get(3)));
-      }
-    }
+    forEachUser(offset, limit, condition, sort, userRecords::add);
     return userRecords;
   }
 
@@ -141,107 +202,414 @@ public class UsersContainerClient {
     return queryUsers(0, 100, null, null);
   }
 
-  private <T> T post(String uri, Object body, Class<T> responseType) {
+  /**
+   * Query users and hand each one to the consumer while the response is being read, without
+   * materializing the result.
+   *
+   * @param offset Starting position of the results
+   * @param limit Maximum number of results to return
+   * @param condition Query condition (e.g., "email == 'admin'")
+   * @param sort Sort order (e.g., "email asc")
+   * @param consumer Receives every user in response order
+   */
+  public void forEachUser(
+      int offset, int limit, String condition, String sort, Consumer<UserRecord> consumer) {
+    try (Stream<UserRecord> users = streamUsers(offset, limit, condition, sort)) {
+      users.forEach(consumer);
+    }
+  }
+
+  /**
+   * Stream users with default parameters (first 100 records)
+   *
+   * @param consumer Receives every user in response order
+   */
+  public void forEachUser(Consumer<UserRecord> consumer) {
+    forEachUser(0, 100, null, null, consumer);
+  }
+
+  /**
+   * Query users as a lazily decoded stream. Rows are parsed from the HTTP response as the stream is
+   * consumed, so memory use does not depend on the number of rows. The stream holds the connection
+   * and must be closed, e.g. with try-with-resources.
+   *
+   * @param offset Starting position of the results
+   * @param limit Maximum number of results to return
+   * @param condition Query condition (e.g., "email == 'admin'")
+   * @param sort Sort order (e.g., "email asc")
+   * @return Users in response order
+   */
+  public Stream<UserRecord> streamUsers(int offset, int limit, String condition, String sort) {
+    UsersQueryRequest request = new UsersQueryRequest(offset, limit, condition, sort);
+    String url = String.format("/containers/%s/rows", CONTAINER_NAME);
+    return streamRows("queryUsers", url, request, "rows");
+  }
+
+  /**
+   * Keyset page of users ordered by id: the first {@code limit} users whose id sorts after {@code
+   * afterId}. Unlike offset paging the cost of a page does not grow with its position because the
+   * range scan starts on the row key index.
+   *
+   * @param afterId id of the last user of the previous page, or {@code null} for the first page
+   * @param limit Maximum number of results to return
+   * @return Users ordered by id, lazily decoded; the stream must be closed
+   */
+  public Stream<UserRecord> streamUsersAfter(String afterId, int limit) {
+    String statement =
+        afterId == null ? SELECT_PAGE.bind(limit) : SELECT_PAGE_AFTER.bind(afterId, limit);
+    return streamRows(
+        "queryUsersAfter",
+        "/sql",
+        List.of(new GridDbCloudSQLSelectInput("sql-select", statement)),
+        "results");
+  }
+
+  public List<UserRecord> queryUsersAfter(String afterId, int limit) {
+    try (Stream<UserRecord> users = streamUsersAfter(afterId, limit)) {
+      return users.toList();
+    }
+  }
+
+  private Stream<UserRecord> streamRows(
+      String operation, String url, Object request, String rowsField) {
+    // timed until the stream is closed, since rows are read while it is consumed
+    Timer.Sample sample = metrics.start();
+    ClientHttpResponse response;
     try {
-      return restClient.post().uri(uri).body(body).retrieve().body(responseType);
+      response = resilience.openStream(operation, () -> exchange(url, request));
     } catch (GridDbException e) {
+      metrics.stop(sample, operation, e);
       throw e;
-    } catch (Exception e) {
-      throw new GridDbException(
-          "Failed to execute POST request", HttpStatusCode.valueOf(500), e.getMessage(), e);
     }
-  }
-
-  private void post(String uri, Object body) {
     try {
-      restClient.post().uri(uri).body(body).retrieve().toBodilessEntity();
+      UserRowReader reader = new UserRowReader(response.getBody(), rowsField);
+      Spliterator<UserRecord> rows =
+          new Spliterators.AbstractSpliterator<>(
+              Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL) {
+            @Override
+            public boolean tryAdvance(Consumer<? super UserRecord> action) {
+              UserRecord user = reader.next();
+              if (user == null) {
+                return false;
+              }
+              action.accept(user);
+              return true;
+            }
+          };
+      return StreamSupport.stream(rows, false)
+          .onClose(
+              () -> {
+                try {
+                  reader.close();
+                } catch (IOException e) {
+                  log.debug("Failed to close GridDB row reader", e);
+                } finally {
+                  response.close();
+                  metrics.stop(sample, operation, null);
+                }
+              });
     } catch (GridDbException e) {
+      response.close();
+      metrics.stop(sample, operation, e);
       throw e;
+    } catch (IOException e) {
+      response.close();
+      GridDbException failure =
+          new GridDbException(
+              "Failed to read GridDB rows", HttpStatusCode.valueOf(500), e.getMessage(), e);
+      metrics.stop(sample, operation, failure);
+      throw failure;
+    }
+  }
+
+  /**
+   * POSTs the request and returns the open response, or throws if GridDB answered with an error.
+   */
+  private ClientHttpResponse exchange(String url, Object request) {
+    ClientHttpResponse response;
+    try {
+      response =
+          restClient
+              .post()
+              .uri(url)
+              .body(request)
+              .exchange((clientRequest, clientResponse) -> clientResponse, false);
     } catch (Exception e) {
       throw new GridDbException(
           "Failed to execute POST request", HttpStatusCode.valueOf(500), e.getMessage(), e);
     }
+    try {
+      if (response.getStatusCode().isError()) {
+        String errorBody = new String(response.getBody().readAllBytes());
+        log.error("GridDB API Response error body: {}", errorBody);
+        throw new GridDbException("GridDB API request failed", response.getStatusCode(), errorBody);
+      }
+      return response;
+    } catch (IOException e) {
+      response.close();
+      throw new GridDbException(
+          "Failed to read GridDB response", HttpStatusCode.valueOf(500), e.getMessage(), e);
+    } catch (GridDbException e) {
+      response.close();
+      throw e;
+    }
+  }
+
+  private <T> T post(String uri, Object body, Class<T> responseType) {
+    return GridDbException.wrap(
+        "Failed to execute POST request",
+        () -> restClient.post().uri(uri).body(body).retrieve().body(responseType));
+  }
+
+  private void post(String uri, Object body) {
+    GridDbException.wrap(
+        "Failed to execute POST request",
+        () -> restClient.post().uri(uri).body(body).retrieve().toBodilessEntity());
   }
 
   public UserRecord getUserById(String userId) {
-    String statement =
-        String.format("SELECT id, email, name, \"password\" FROM Users where id == '%s'", userId);
-    return getOneUser(statement);
+    return userCache.getById(userId, () -> getOneUser("getUserById", SELECT_BY_ID.bind(userId)));
   }
 
   public UserRecord getUserByEmail(String email) {
-    String statement =
-        String.format("SELECT id, email, name, \"password\" FROM Users where email == '%s'", email);
-    return getOneUser(statement);
+    return userCache.getByEmail(
+        email, () -> getOneUser("getUserByEmail", SELECT_BY_EMAIL.bind(email)));
+  }
+
+  /** Lookups sharing an in-flight request for an identical statement. */
+  public SingleFlight<String, UserRecord> lookups() {
+    return lookups;
   }
 
-  private UserRecord getOneUser(String statement) {
+  private UserRecord getOneUser(String operation, String statement) {
+    return lookups.execute(statement, () -> fetchOneUser(operation, statement));
+  }
+
+  private UserRecord fetchOneUser(String operation, String statement) {
     String type = "sql-select";
     GridDbCloudSQLSelectInput input = new GridDbCloudSQLSelectInput(type, statement);
-    var response = post("/sql", List.of(input), GridDbCloudSQLOutPut[].class);
-    for (GridDbCloudSQLOutPut item : response) {
-      log.info("Response: {}", item);
-    }
-    log.info("Output: {}", response[0]);
-    if (response[0].results().size() == 0) {
-      return null;
-    }
+    GridDbCloudSQLOutPut output =
+        metrics.record(
+            operation,
+            () ->
+                resilience.hedgedRead(
+                    operation,
+                    () ->
+                        selectBatcher != null
+                            ? selectBatcher.select(input)
+                            : post("/sql", List.of(input), GridDbCloudSQLOutPut[].class)[0]));
+    metrics.recordResponseSize(operation, output.responseSizeByte());
+    UserRecord foundUser = toUser(output);
+    log.debug(
+        "{} returned {} rows, user {}",
+        operation,
+        output.results().size(),
+        foundUser == null ? null : foundUser.id());
+    return foundUser;
+  }
+
+  /** The user of a single user select, or {@code null} when nothing matched. */
+  static UserRecord toUser(GridDbCloudSQLOutPut output) {
     UserRecord foundUser = null;
-    for (List<String> row : response[0].results()) {
+    for (List<String> row : output.results()) {
       if (row.size() < 4) {
         break;
       }
       foundUser = new UserRecord(row.get(0), row.get(1), row.get(2), row.get(3));
     }
-    log.info("Found user: {}", foundUser);
     return foundUser;
   }
 
   public void insert(UserRecord user) {
-    String stmt =
-        "INSERT INTO Users(id, email, name, \"password\") VALUES ('"
-            + user.id()
-            + "', '"
-            + user.email()
-            + "', '"
-            + user.name()
-            + "', '"
-            + user.password()
-            + "')";
+    String stmt = INSERT.bind(user.id(), user.email(), user.name(), user.password());
     GridDbCloudSQLInsert insert = new GridDbCloudSQLInsert(stmt);
 
-    post("/sql/update", List.of(insert));
+    try {
+      metrics.record(
+          "insert", () -> resilience.write("insert", () -> post("/sql/update", List.of(insert))));
+    } finally {
+      existenceIndex.add(user);
+      lookups.forgetAll();
+      userCache.invalidate(user);
+    }
+  }
+
+  /**
+   * Emails among {@code emails} that already belong to a user, looked up with a single {@code IN}
+   * query.
+   */
+  public Set<String> findExistingEmails(Collection<String> emails) {
+    if (emails.isEmpty()) {
+      return Set.of();
+    }
+    StringBuilder statement =
+        new StringBuilder(48 + emails.size() * 32)
+            .append("SELECT email FROM Users WHERE email IN (");
+    String separator = "";
+    for (String email : emails) {
+      SqlTemplate.appendLiteral(statement.append(separator), email);
+      separator = ", ";
+    }
+    GridDbCloudSQLSelectInput input =
+        new GridDbCloudSQLSelectInput("sql-select", statement.append(')').toString());
+    GridDbCloudSQLOutPut output =
+        metrics.record(
+            "findExistingEmails",
+            () ->
+                resilience.read(
+                    "findExistingEmails",
+                    () -> post("/sql", List.of(input), GridDbCloudSQLOutPut[].class)[0]));
+    metrics.recordResponseSize("findExistingEmails", output.responseSizeByte());
+    Set<String> existing = new HashSet<>();
+    for (List<String> row : output.results()) {
+      existing.add(row.get(0));
+    }
+    return existing;
+  }
+
+  /**
+   * Writes users with one row put request instead of an INSERT statement each. A row whose id
+   * already exists is overwritten.
+   */
+  public void putUsers(List<UserRecord> users) {
+    if (users.isEmpty()) {
+      return;
+    }
+    List<List<String>> rows = new ArrayList<>(users.size());
+    for (UserRecord user : users) {
+      rows.add(Arrays.asList(user.id(), user.email(), user.name(), user.password()));
+    }
+    String url = String.format("/containers/%s/rows", CONTAINER_NAME);
+    try {
+      metrics.record(
+          "putUsers",
+          () ->
+              resilience.write(
+                  "putUsers",
+                  () -> restClient.put().uri(url).body(rows).retrieve().toBodilessEntity()));
+    } finally {
+      users.forEach(existenceIndex::add);
+      lookups.forgetAll();
+      userCache.invalidateIds(users.stream().map(UserRecord::id).toList());
+    }
   }
 
   public void update(UserRecord user) {
-    String statement =
-        String.format("UPDATE Users set name = '%s' where id == '%s'", user.name(), user.id());
+    String statement = UPDATE_NAME.bind(user.name(), user.id());
 
     GridDbCloudSQLInsert insert = new GridDbCloudSQLInsert(statement);
 
-    post("/sql/update", List.of(insert));
+    try {
+      metrics.record(
+          "update", () -> resilience.write("update", () -> post("/sql/update", List.of(insert))));
+    } finally {
+      lookups.forgetAll();
+      userCache.invalidate(user);
+    }
+  }
+
+  /** Replaces the stored password hash of {@code user}. */
+  public void updatePassword(UserRecord user, String password) {
+    GridDbCloudSQLInsert statement =
+        new GridDbCloudSQLInsert(UPDATE_PASSWORD.bind(password, user.id()));
+    try {
+      metrics.record(
+          "updatePassword",
+          () -> resilience.write("updatePassword", () -> post("/sql/update", List.of(statement))));
+    } finally {
+      lookups.forgetAll();
+      userCache.invalidate(user);
+    }
   }
 
   public void deleteUser(String id) {
     String url = String.format("/containers/%s/rows", CONTAINER_NAME);
-    restClient.method(HttpMethod.DELETE).uri(url).body(List.of(id)).retrieve().toBodilessEntity();
+    try {
+      metrics.record(
+          "deleteUser",
+          () ->
+              resilience.write(
+                  "deleteUser",
+                  () ->
+                      restClient
+                          .method(HttpMethod.DELETE)
+                          .uri(url)
+                          .body(List.of(id))
+                          .retrieve()
+                          .toBodilessEntity()));
+    } finally {
+      lookups.forgetAll();
+      userCache.invalidateId(id);
+    }
   }
-}
-
-record GridDbCloudSQLInsert(@JsonProperty("stmt") String statement) {}
 
-record GridDbCloudSQLSelectInput(String type, @JsonProperty("stmt") String statement) {}
-
-record GDCColumnInfo(@JsonProperty("name") String name, @JsonProperty("type") String type) {}
-
-record GridDbCloudSQLOutPut(
-    @JsonProperty("columns") List<GDCColumnInfo> columns,
-    @JsonProperty("results") List<List<String>> results,
-    @JsonProperty("responseSizeByte") long responseSizeByte) {}
+  /** Deletes the rows of all {@code ids} with one request. Unknown ids are ignored. */
+  public void deleteUsers(Collection<String> ids) {
+    if (ids.isEmpty()) {
+      return;
+    }
+    String url = String.format("/containers/%s/rows", CONTAINER_NAME);
+    try {
+      metrics.record(
+          "deleteUsers",
+          () ->
+              resilience.write(
+                  "deleteUsers",
+                  () ->
+                      restClient
+                          .method(HttpMethod.DELETE)
+                          .uri(url)
+                          .body(ids)
+                          .retrieve()
+                          .toBodilessEntity()));
+    } finally {
+      lookups.forgetAll();
+      userCache.invalidateIds(ids);
+    }
+  }
 
-record GridDbCloudContainerOutput(
-    @JsonProperty("columns") List<GDCColumnInfo> columns,
-    @JsonProperty("rows") List<List<String>> rows,
-    @JsonProperty("total") long total,
-    @JsonProperty("offset") long offset,
-    @JsonProperty("limit") long limit) {}
+  /**
+   * Renames users with one {@code /sql/update} request: one {@code UPDATE ... WHERE id IN (...)}
+   * statement per distinct new name.
+   *
+   * @param namesById new name by user id
+   * @return number of rows updated
+   */
+  public long renameUsers(Map<String, String> namesById) {
+    if (namesById.isEmpty()) {
+      return 0;
+    }
+    Map<String, List<String>> idsByName = new LinkedHashMap<>();
+    namesById.forEach(
+        (id, name) -> idsByName.computeIfAbsent(name, n -> new ArrayList<>()).add(id));
+    List<GridDbCloudSQLInsert> statements = new ArrayList<>(idsByName.size());
+    idsByName.forEach(
+        (name, ids) -> {
+          StringBuilder statement = new StringBuilder(48 + ids.size() * 40);
+          SqlTemplate.appendLiteral(statement.append("UPDATE Users set name = "), name);
+          String separator = " where id IN (";
+          for (String id : ids) {
+            SqlTemplate.appendLiteral(statement.append(separator), id);
+            separator = ", ";
+          }
+          statements.add(new GridDbCloudSQLInsert(statement.append(')').toString()));
+        });
+    try {
+      GridDbCloudSQLUpdateOutput[] outputs =
+          metrics.record(
+              "renameUsers",
+              () ->
+                  resilience.write(
+                      "renameUsers",
+                      () -> post("/sql/update", statements, GridDbCloudSQLUpdateOutput[].class)));
+      long updated = 0;
+      for (GridDbCloudSQLUpdateOutput output : outputs) {
+        updated += output.updatedRows();
+      }
+      return updated;
+    } finally {
+      lookups.forgetAll();
+      userCache.invalidateIds(namesById.keySet());
+    }
+  }
+}
@@ -0,0 +1,16 @@
+package com.galapea.techblog.ott.util;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(HttpStatus.BAD_REQUEST)
+public class BadRequestException extends RuntimeException {
+
+  public BadRequestException() {
+    super();
+  }
+
+  public BadRequestException(final String message) {
+    super(message);
+  }
+}
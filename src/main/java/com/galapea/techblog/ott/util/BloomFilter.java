@@ -0,0 +1,101 @@
+package com.galapea.techblog.ott.util;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Thread-safe Bloom filter over strings. {@link #mightContain} never returns {@code false} for a
+ * value that was added; it returns {@code true} for a value that was not added with roughly the
+ * configured false positive probability, as long as no more than the expected number of values were
+ * added. Values cannot be removed.
+ */
+public final class BloomFilter {
+
+  private final AtomicLongArray words;
+  private final long bitCount;
+  private final int hashCount;
+  private final long expectedInsertions;
+  private final LongAdder insertions = new LongAdder();
+
+  private BloomFilter(long bitCount, int hashCount, long expectedInsertions) {
+    this.words = new AtomicLongArray((int) ((bitCount + 63) >>> 6));
+    this.bitCount = (long) words.length() << 6;
+    this.hashCount = hashCount;
+    this.expectedInsertions = expectedInsertions;
+  }
+
+  /**
+   * @param expectedInsertions number of values the filter is sized for
+   * @param falsePositiveProbability e.g. {@code 0.01}
+   */
+  public static BloomFilter create(long expectedInsertions, double falsePositiveProbability) {
+    if (falsePositiveProbability <= 0 || falsePositiveProbability >= 1) {
+      throw new IllegalArgumentException("False positive probability must be between 0 and 1");
+    }
+    long n = Math.max(1, expectedInsertions);
+    double ln2 = Math.log(2);
+    long bits =
+        Math.max(64, (long) Math.ceil(-n * Math.log(falsePositiveProbability) / (ln2 * ln2)));
+    if (bits > (long) Integer.MAX_VALUE << 6) {
+      throw new IllegalArgumentException("Bloom filter for " + n + " values is too large");
+    }
+    int hashes = Math.max(1, (int) Math.round((double) bits / n * ln2));
+    return new BloomFilter(bits, hashes, n);
+  }
+
+  public void add(CharSequence value) {
+    long h1 = hash(value);
+    long h2 = mix(h1 ^ 0x9E3779B97F4A7C15L) | 1;
+    for (int i = 0; i < hashCount; i++) {
+      long bit = Long.remainderUnsigned(h1 + i * h2, bitCount);
+      int index = (int) (bit >>> 6);
+      long mask = 1L << bit;
+      long word = words.get(index);
+      while ((word & mask) == 0 && !words.weakCompareAndSetVolatile(index, word, word | mask)) {
+        word = words.get(index);
+      }
+    }
+    insertions.increment();
+  }
+
+  public boolean mightContain(CharSequence value) {
+    long h1 = hash(value);
+    long h2 = mix(h1 ^ 0x9E3779B97F4A7C15L) | 1;
+    for (int i = 0; i < hashCount; i++) {
+      long bit = Long.remainderUnsigned(h1 + i * h2, bitCount);
+      if ((words.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /** Number of {@link #add} calls, including repeated values. */
+  public long insertions() {
+    return insertions.sum();
+  }
+
+  public long expectedInsertions() {
+    return expectedInsertions;
+  }
+
+  /** Size of the bit array in bytes. */
+  public long sizeInBytes() {
+    return bitCount >>> 3;
+  }
+
+  private static long hash(CharSequence value) {
+    // FNV-1a over the UTF-16 code units, finished with a 64-bit mixer
+    long h = 0xCBF29CE484222325L;
+    for (int i = 0; i < value.length(); i++) {
+      h = (h ^ value.charAt(i)) * 0x100000001B3L;
+    }
+    return mix(h);
+  }
+
+  private static long mix(long h) {
+    h = (h ^ (h >>> 33)) * 0xFF51AFD7ED558CCDL;
+    h = (h ^ (h >>> 33)) * 0xC4CEB9FE1A85EC53L;
+    return h ^ (h >>> 33);
+  }
+}
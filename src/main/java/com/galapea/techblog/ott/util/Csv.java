@@ -0,0 +1,163 @@
+package com.galapea.techblog.ott.util;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Minimal RFC 4180 CSV: comma separated, fields optionally enclosed in double quotes with embedded
+ * quotes doubled, records ended by CRLF or LF. Quoted fields may span lines.
+ */
+public final class Csv {
+
+  private static final int MAX_RECORD_LENGTH = 64 * 1024;
+
+  private Csv() {}
+
+  /** Reads records one at a time from a character stream. */
+  public static final class Reader {
+
+    private final java.io.Reader in;
+    private final StringBuilder field = new StringBuilder();
+    private long line = 1;
+    private long recordLine;
+    private int pushback = -2;
+
+    public Reader(java.io.Reader in) {
+      this.in = in;
+    }
+
+    /**
+     * The next record, or {@code null} at the end of the input. Empty lines are skipped.
+     *
+     * @throws IOException on read failures, an unterminated quote or a record over 64 KiB
+     */
+    public List<String> next() throws IOException {
+      List<String> record = new ArrayList<>();
+      field.setLength(0);
+      recordLine = line;
+      boolean quoted = false;
+      boolean wasQuoted = false;
+      int length = 0;
+      while (true) {
+        int c = read();
+        if (++length > MAX_RECORD_LENGTH) {
+          throw new IOException("CSV record starting on line " + recordLine + " is too long");
+        }
+        if (quoted) {
+          if (c == -1) {
+            throw new IOException("Unterminated quote in CSV record on line " + recordLine);
+          }
+          if (c == '"') {
+            int following = read();
+            if (following == '"') {
+              field.append('"');
+            } else {
+              quoted = false;
+              pushback = following;
+            }
+          } else {
+            if (c == '\n') {
+              line++;
+            }
+            field.append((char) c);
+          }
+        } else if (c == '"' && field.isEmpty() && !wasQuoted) {
+          quoted = true;
+          wasQuoted = true;
+        } else if (c == ',') {
+          record.add(field.toString());
+          field.setLength(0);
+          wasQuoted = false;
+        } else if (c == '\r' || c == '\n' || c == -1) {
+          if (c == '\r') {
+            int following = read();
+            if (following != '\n') {
+              pushback = following;
+            }
+          }
+          if (c != -1) {
+            line++;
+          }
+          if (record.isEmpty() && field.isEmpty() && !wasQuoted) {
+            if (c == -1) {
+              return null;
+            }
+            // blank line
+            recordLine = line;
+            length = 0;
+            continue;
+          }
+          record.add(field.toString());
+          return record;
+        } else {
+          field.append((char) c);
+        }
+      }
+    }
+
+    /** Line number on which the last record returned by {@link #next()} started. */
+    public long recordLine() {
+      return recordLine;
+    }
+
+    private int read() throws IOException {
+      if (pushback != -2) {
+        int c = pushback;
+        pushback = -2;
+        return c;
+      }
+      return in.read();
+    }
+  }
+
+  /** Appends one record, quoting fields that contain a separator, quote or line break. */
+  public static void appendRecord(Appendable out, List<String> fields) throws IOException {
+    for (int i = 0; i < fields.size(); i++) {
+      if (i > 0) {
+        out.append(',');
+      }
+      appendField(out, fields.get(i));
+    }
+    out.append("\r\n");
+  }
+
+  /**
+   * {@code value} with a leading {@code '} when it starts with {@code =}, {@code +}, {@code -},
+   * {@code @}, a tab or a carriage return, so spreadsheets open it as text instead of evaluating a
+   * formula. For files meant to be opened in a spreadsheet; it changes the value for other readers.
+   */
+  public static String formulaSafe(String value) {
+    if (value == null || value.isEmpty()) {
+      return value;
+    }
+    return switch (value.charAt(0)) {
+      case '=', '+', '-', '@', '\t', '\r' -> "'" + value;
+      default -> value;
+    };
+  }
+
+  private static void appendField(Appendable out, String value) throws IOException {
+    if (value == null || value.isEmpty()) {
+      return;
+    }
+    boolean quote = false;
+    for (int i = 0; i < value.length() && !quote; i++) {
+      char c = value.charAt(i);
+      quote = c == ',' || c == '"' || c == '\r' || c == '\n';
+    }
+    if (!quote) {
+      out.append(value);
+      return;
+    }
+    out.append('"');
+    for (int i = 0; i < value.length(); i++) {
+      char c = value.charAt(i);
+      if (c == '"') {
+        out.append('"');
+      }
+      out.append(c);
+    }
+    out.append('"');
+  }
+}
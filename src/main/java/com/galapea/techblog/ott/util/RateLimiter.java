@@ -0,0 +1,138 @@
+package com.galapea.techblog.ott.util;
+
+import java.time.Duration;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Per-key token buckets with bounded memory. A bucket holds up to {@code capacity} tokens and
+ * refills completely over {@code period}; {@link #tryAcquire} takes one token or fails without
+ * blocking.
+ *
+ * <p>Each bucket is a single {@link AtomicLong} holding the time at which it will be full again
+ * (the generic cell rate algorithm), updated with compare-and-set. A bucket that is full again
+ * carries no state, so it can be dropped at any time. Keys are spread over stripes that each hold
+ * at most {@code maxKeys / stripes} buckets; when a stripe is full, expired buckets are dropped,
+ * and keys that still do not fit share one overflow bucket per stripe, so a flood of distinct keys
+ * is throttled as a whole instead of growing the map. A full stripe is swept inline at most once
+ * per token interval, so during such a flood new keys go straight to the overflow bucket; {@link
+ * #evictExpired()} is meant to be called periodically for the rest.
+ */
+public final class RateLimiter {
+
+  private static final int STRIPES = 64;
+
+  private static final class Stripe {
+    private final ConcurrentHashMap<String, AtomicLong> buckets = new ConcurrentHashMap<>();
+    private final AtomicInteger size = new AtomicInteger();
+    private final AtomicLong overflow = new AtomicLong(System.nanoTime());
+    private final AtomicLong lastSweep;
+
+    Stripe(long lastSweep) {
+      this.lastSweep = new AtomicLong(lastSweep);
+    }
+  }
+
+  private final long intervalNanos;
+  private final long toleranceNanos;
+  private final int maxKeysPerStripe;
+  private final Stripe[] stripes = new Stripe[STRIPES];
+
+  /**
+   * @param capacity tokens a bucket holds when full, i.e. the allowed burst
+   * @param period time in which an empty bucket refills completely
+   * @param maxKeys upper bound for the number of buckets kept
+   */
+  public RateLimiter(int capacity, Duration period, int maxKeys) {
+    if (capacity < 1 || period.isNegative() || period.isZero()) {
+      throw new IllegalArgumentException("Rate limit needs a positive capacity and period");
+    }
+    this.intervalNanos = Math.max(1, period.toNanos() / capacity);
+    this.toleranceNanos = intervalNanos * capacity;
+    this.maxKeysPerStripe = Math.max(1, maxKeys / STRIPES);
+    long now = System.nanoTime();
+    for (int i = 0; i < STRIPES; i++) {
+      stripes[i] = new Stripe(now - intervalNanos);
+    }
+  }
+
+  /** Takes a token from the bucket of {@code key}; {@code false} if it is empty. */
+  public boolean tryAcquire(String key) {
+    long now = System.nanoTime();
+    Stripe stripe = stripes[spread(key.hashCode()) & (STRIPES - 1)];
+    AtomicLong bucket = stripe.buckets.get(key);
+    if (bucket == null) {
+      bucket = bucket(stripe, key, now);
+    }
+    return tryAcquire(bucket, now);
+  }
+
+  private boolean tryAcquire(AtomicLong bucket, long now) {
+    while (true) {
+      long fullAt = bucket.get();
+      long next = (fullAt - now > 0 ? fullAt : now) + intervalNanos;
+      if (next - now > toleranceNanos) {
+        return false;
+      }
+      if (bucket.compareAndSet(fullAt, next)) {
+        return true;
+      }
+    }
+  }
+
+  private AtomicLong bucket(Stripe stripe, String key, long now) {
+    if (stripe.size.get() >= maxKeysPerStripe) {
+      long lastSweep = stripe.lastSweep.get();
+      if (now - lastSweep < intervalNanos || !stripe.lastSweep.compareAndSet(lastSweep, now)) {
+        return stripe.overflow;
+      }
+      evictExpired(stripe, now);
+      if (stripe.size.get() >= maxKeysPerStripe) {
+        return stripe.overflow;
+      }
+    }
+    AtomicLong created = new AtomicLong(now);
+    AtomicLong existing = stripe.buckets.putIfAbsent(key, created);
+    if (existing != null) {
+      return existing;
+    }
+    stripe.size.incrementAndGet();
+    return created;
+  }
+
+  /** Drops the buckets that are full again; returns how many were dropped. */
+  public int evictExpired() {
+    long now = System.nanoTime();
+    int evicted = 0;
+    for (Stripe stripe : stripes) {
+      evicted += evictExpired(stripe, now);
+    }
+    return evicted;
+  }
+
+  private static int evictExpired(Stripe stripe, long now) {
+    int evicted = 0;
+    for (var entry : stripe.buckets.entrySet()) {
+      AtomicLong bucket = entry.getValue();
+      if (bucket.get() - now <= 0 && stripe.buckets.remove(entry.getKey(), bucket)) {
+        stripe.size.decrementAndGet();
+        evicted++;
+      }
+    }
+    return evicted;
+  }
+
+  /** Number of buckets currently kept. */
+  public int size() {
+    int size = 0;
+    for (Stripe stripe : stripes) {
+      size += stripe.size.get();
+    }
+    return size;
+  }
+
+  private static int spread(int hash) {
+    return hash ^ (hash >>> 16);
+  }
+}
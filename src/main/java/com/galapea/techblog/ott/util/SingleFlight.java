@@ -0,0 +1,74 @@
+package com.galapea.techblog.ott.util;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Collapses concurrent calls with the same key into one execution. The first caller runs the call,
+ * callers arriving while it is in flight wait for and share its result or exception.
+ */
+public class SingleFlight<K, V> {
+
+  private final ConcurrentHashMap<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+  private final LongAdder executions = new LongAdder();
+  private final LongAdder collapsed = new LongAdder();
+
+  public V execute(K key, Supplier<V> call) {
+    CompletableFuture<V> mine = new CompletableFuture<>();
+    CompletableFuture<V> existing = inFlight.putIfAbsent(key, mine);
+    if (existing != null) {
+      collapsed.increment();
+      return join(existing);
+    }
+    executions.increment();
+    try {
+      V value = call.get();
+      mine.complete(value);
+      return value;
+    } catch (RuntimeException | Error e) {
+      mine.completeExceptionally(e);
+      throw e;
+    } finally {
+      inFlight.remove(key, mine);
+    }
+  }
+
+  /**
+   * Stops new callers from joining calls that are currently in flight. Use it after a write so no
+   * caller can be handed a result that was read before the write.
+   */
+  public void forgetAll() {
+    inFlight.clear();
+  }
+
+  private V join(CompletableFuture<V> future) {
+    try {
+      return future.join();
+    } catch (CompletionException e) {
+      if (e.getCause() instanceof RuntimeException cause) {
+        throw cause;
+      }
+      if (e.getCause() instanceof Error cause) {
+        throw cause;
+      }
+      throw e;
+    }
+  }
+
+  /** Number of calls that were actually executed. */
+  public long executions() {
+    return executions.sum();
+  }
+
+  /** Number of calls that were served by another caller's execution. */
+  public long collapsed() {
+    return collapsed.sum();
+  }
+
+  public int inFlight() {
+    return inFlight.size();
+  }
+}
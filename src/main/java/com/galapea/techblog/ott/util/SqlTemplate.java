@@ -0,0 +1,130 @@
+package com.galapea.techblog.ott.util;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * SQL statement with {@code ?} placeholders, split into its literal fragments once so binding only
+ * appends. Bound values become SQL literals: strings are single-quoted with embedded quotes
+ * doubled, numbers and booleans are written as is and {@code null} becomes {@code NULL}. A value
+ * can therefore never end its literal and inject SQL.
+ *
+ * <p>Placeholders inside quoted strings or quoted identifiers of the template are left alone. Each
+ * statement is built in one builder sized from the template, so short values need no resize.
+ */
+public final class SqlTemplate {
+
+  private final String sql;
+  private final String[] fragments;
+  private final int fragmentLength;
+
+  private SqlTemplate(String sql, String[] fragments) {
+    this.sql = sql;
+    this.fragments = fragments;
+    int length = 0;
+    for (String fragment : fragments) {
+      length += fragment.length();
+    }
+    this.fragmentLength = length;
+  }
+
+  public static SqlTemplate compile(String sql) {
+    List<String> fragments = new ArrayList<>();
+    int start = 0;
+    char quote = 0;
+    for (int i = 0; i < sql.length(); i++) {
+      char c = sql.charAt(i);
+      if (quote != 0) {
+        if (c == quote) {
+          quote = 0;
+        }
+      } else if (c == '\'' || c == '"') {
+        quote = c;
+      } else if (c == '?') {
+        fragments.add(sql.substring(start, i));
+        start = i + 1;
+      }
+    }
+    if (quote != 0) {
+      throw new IllegalArgumentException("Unterminated quote in SQL template: " + sql);
+    }
+    fragments.add(sql.substring(start));
+    return new SqlTemplate(sql, fragments.toArray(String[]::new));
+  }
+
+  public int parameterCount() {
+    return fragments.length - 1;
+  }
+
+  public String bind(Object value) {
+    checkCount(1);
+    StringBuilder builder = new StringBuilder(fragmentLength + literalLength(value));
+    builder.append(fragments[0]);
+    appendLiteral(builder, value);
+    builder.append(fragments[1]);
+    return builder.toString();
+  }
+
+  public String bind(Object... values) {
+    checkCount(values.length);
+    int length = fragmentLength;
+    for (Object value : values) {
+      length += literalLength(value);
+    }
+    StringBuilder builder = new StringBuilder(length);
+    builder.append(fragments[0]);
+    for (int i = 0; i < values.length; i++) {
+      appendLiteral(builder, values[i]);
+      builder.append(fragments[i + 1]);
+    }
+    return builder.toString();
+  }
+
+  /** Appends {@code value} as a SQL literal. */
+  public static StringBuilder appendLiteral(StringBuilder builder, Object value) {
+    if (value == null) {
+      return builder.append("NULL");
+    }
+    if (value instanceof Number || value instanceof Boolean) {
+      return builder.append(value);
+    }
+    String text = value.toString();
+    builder.append('\'');
+    int quote = text.indexOf('\'');
+    if (quote < 0) {
+      // fast path: nothing to escape
+      builder.append(text);
+    } else {
+      int from = 0;
+      while (quote >= 0) {
+        builder.append(text, from, quote + 1).append('\'');
+        from = quote + 1;
+        quote = text.indexOf('\'', from);
+      }
+      builder.append(text, from, text.length());
+    }
+    return builder.append('\'');
+  }
+
+  /** {@code value} as a SQL literal. */
+  public static String literal(Object value) {
+    return appendLiteral(new StringBuilder(), value).toString();
+  }
+
+  private void checkCount(int count) {
+    if (count != parameterCount()) {
+      throw new IllegalArgumentException(
+          "Expected " + parameterCount() + " values but got " + count + " for: " + sql);
+    }
+  }
+
+  /** Expected length of {@code value} as a literal, with room for a few doubled quotes. */
+  private static int literalLength(Object value) {
+    return value instanceof CharSequence text ? text.length() + 8 : 20;
+  }
+
+  @Override
+  public String toString() {
+    return sql;
+  }
+}
@@ -0,0 +1,115 @@
+package com.galapea.techblog.ott.security;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import jakarta.servlet.http.Cookie;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextImpl;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.springframework.security.web.context.HttpRequestResponseHolder;
+
+class CookieSecurityContextRepositoryTest {
+
+  private static final Instant NOW = Instant.parse("2026-01-01T10:00:00Z");
+  private static final GrantedAuthority USER = new SimpleGrantedAuthority("ROLE_USER");
+  private static final GrantedAuthority ADMIN = new SimpleGrantedAuthority("ROLE_ADMIN");
+
+  private final Map<String, Set<GrantedAuthority>> users = new HashMap<>();
+  private CookieSecurityContextRepository repository;
+
+  @BeforeEach
+  void setUp() {
+    users.put("admin@example.com", Set.of(USER, ADMIN));
+    SealedCookies cookies = new SealedCookies(Base64.getEncoder().encodeToString(new byte[32]));
+    repository =
+        new CookieSecurityContextRepository(
+            cookies,
+            Duration.ofHours(8),
+            username -> {
+              Set<GrantedAuthority> authorities = users.get(username);
+              if (authorities == null) {
+                throw new UsernameNotFoundException("User not found");
+              }
+              return new UserAccountDetails(username, "{noop}secret", authorities);
+            });
+    repository.setClock(Clock.fixed(NOW, ZoneOffset.UTC));
+  }
+
+  @Test
+  void restoresTheLogin() {
+    Authentication authentication = load(save("admin@example.com"));
+
+    assertThat(authentication.getName()).isEqualTo("admin@example.com");
+    assertThat(AuthorityUtils.authorityListToSet(authentication.getAuthorities()))
+        .containsExactlyInAnyOrder("ROLE_USER", "ROLE_ADMIN");
+    assertThat(((UserAccountDetails) authentication.getPrincipal()).getPassword()).isNull();
+  }
+
+  @Test
+  void appliesRevokedRoles() {
+    String cookie = save("admin@example.com");
+
+    users.put("admin@example.com", Set.of(USER));
+
+    assertThat(AuthorityUtils.authorityListToSet(load(cookie).getAuthorities()))
+        .containsExactly("ROLE_USER");
+  }
+
+  @Test
+  void dropsTheLoginOfDeletedUsers() {
+    String cookie = save("admin@example.com");
+
+    users.remove("admin@example.com");
+
+    assertThat(load(cookie)).isNull();
+  }
+
+  @Test
+  void dropsExpiredLogins() {
+    String cookie = save("admin@example.com");
+
+    repository.setClock(Clock.fixed(NOW.plus(Duration.ofHours(8)).plusMillis(1), ZoneOffset.UTC));
+
+    assertThat(load(cookie)).isNull();
+  }
+
+  private String save(String username) {
+    Authentication authentication =
+        UsernamePasswordAuthenticationToken.authenticated(
+            username, null, AuthorityUtils.createAuthorityList("ROLE_USER"));
+    MockHttpServletResponse response = new MockHttpServletResponse();
+    repository.saveContext(
+        new SecurityContextImpl(authentication), new MockHttpServletRequest(), response);
+    String header = response.getHeader(HttpHeaders.SET_COOKIE);
+    String prefix = CookieSecurityContextRepository.COOKIE_NAME + "=";
+    return header.substring(prefix.length(), header.indexOf(';'));
+  }
+
+  @SuppressWarnings("deprecation")
+  private Authentication load(String cookie) {
+    MockHttpServletRequest request = new MockHttpServletRequest();
+    request.setCookies(new Cookie(CookieSecurityContextRepository.COOKIE_NAME, cookie));
+    SecurityContext context =
+        repository.loadContext(
+            new HttpRequestResponseHolder(request, new MockHttpServletResponse()));
+    return context.getAuthentication();
+  }
+}
@@ -0,0 +1,114 @@
+package com.galapea.techblog.ott.security;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import com.galapea.techblog.ott.model.UserDTO;
+import com.galapea.techblog.ott.rest.UserResource;
+import com.galapea.techblog.ott.service.UserImportService;
+import com.galapea.techblog.ott.service.UserService;
+import jakarta.servlet.http.Cookie;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Set;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.authentication.ott.OneTimeTokenService;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContextImpl;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.web.servlet.MockMvc;
+
+/** The JSON API with {@code security.session.mode=cookie}, called the way API clients call it. */
+@WebMvcTest(controllers = UserResource.class, properties = "security.session.mode=cookie")
+@Import({SecurityConfig.class, CookieSessionConfig.class})
+class CookieSessionApiTest {
+
+  private static final String USERNAME = "admin@example.com";
+  private static final String CSRF_TOKEN = "0f6c3c0e-4a8d-4c55-9d3f-0d6b1c3f8a21";
+  private static final String BODY = "{\"email\":\"new@example.com\",\"name\":\"New User\"}";
+
+  @Autowired private MockMvc mvc;
+  @Autowired private CookieSecurityContextRepository contextRepository;
+
+  @MockitoBean private UserService userService;
+  @MockitoBean private UserImportService userImportService;
+  @MockitoBean private CustomUserDetailService userDetailService;
+  @MockitoBean private SendLinkOneTimeTokenGenerationSuccessHandler successHandler;
+  @MockitoBean private OneTimeTokenService oneTimeTokenService;
+  @MockitoBean private OttRateLimiter ottRateLimiter;
+
+  @BeforeEach
+  void setUp() {
+    when(userDetailService.loadUserByUsername(USERNAME))
+        .thenAnswer(
+            invocation ->
+                new UserAccountDetails(
+                    USERNAME,
+                    "",
+                    Set.of(new SimpleGrantedAuthority(UserAuthorities.DEFAULT_ROLE))));
+    when(userService.create(any(UserDTO.class))).thenReturn("new-id");
+  }
+
+  @Test
+  void acceptsTheCsrfTokenInTheHeader() throws Exception {
+    mvc.perform(
+            post("/api/users")
+                .cookie(loginCookie(), new Cookie("XSRF-TOKEN", CSRF_TOKEN))
+                .header(SecurityConfig.CSRF_HEADER_NAME, masked(CSRF_TOKEN))
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(BODY))
+        .andExpect(status().isCreated());
+
+    verify(userService).create(any(UserDTO.class));
+  }
+
+  @Test
+  void rejectsRequestsWithoutTheCsrfHeader() throws Exception {
+    mvc.perform(
+            post("/api/users")
+                .cookie(loginCookie(), new Cookie("XSRF-TOKEN", CSRF_TOKEN))
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(BODY))
+        .andExpect(status().isForbidden());
+
+    verify(userService, never()).create(any(UserDTO.class));
+  }
+
+  private Cookie loginCookie() {
+    MockHttpServletResponse response = new MockHttpServletResponse();
+    contextRepository.saveContext(
+        new SecurityContextImpl(
+            UsernamePasswordAuthenticationToken.authenticated(USERNAME, null, Set.of())),
+        new MockHttpServletRequest(),
+        response);
+    String header = response.getHeader(HttpHeaders.SET_COOKIE);
+    String prefix = CookieSecurityContextRepository.COOKIE_NAME + "=";
+    return new Cookie(
+        CookieSecurityContextRepository.COOKIE_NAME,
+        header.substring(prefix.length(), header.indexOf(';')));
+  }
+
+  /**
+   * The token as pages render it: Spring Security expects it XOR-masked with random bytes that
+   * precede it. Zero bytes leave the token itself.
+   */
+  private static String masked(String token) {
+    byte[] tokenBytes = token.getBytes(StandardCharsets.UTF_8);
+    byte[] combined = new byte[tokenBytes.length * 2];
+    System.arraycopy(tokenBytes, 0, combined, tokenBytes.length, tokenBytes.length);
+    return Base64.getUrlEncoder().encodeToString(combined);
+  }
+}
@@ -0,0 +1,132 @@
+package com.galapea.techblog.ott.security;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+
+import com.galapea.techblog.ott.security.OttEmailService.OttEmail;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+import org.springframework.mock.env.MockEnvironment;
+
+class OttEmailDispatcherTest {
+
+  private SmtpStandIn smtp;
+  private OttEmailService emailService;
+  private OttEmailDispatcher dispatcher;
+
+  @BeforeEach
+  void setUp() throws IOException {
+    smtp = new SmtpStandIn();
+    JavaMailSenderImpl mailSender = new JavaMailSenderImpl();
+    mailSender.setHost("127.0.0.1");
+    mailSender.setPort(smtp.port());
+    Properties properties = new Properties();
+    properties.setProperty("mail.smtp.connectiontimeout", "5000");
+    properties.setProperty("mail.smtp.timeout", "15000");
+    mailSender.setJavaMailProperties(properties);
+    emailService =
+        new OttEmailService(
+            new StaticListableBeanFactory(Map.of("mailSender", mailSender))
+                .getBeanProvider(JavaMailSender.class),
+            "no-reply@example.com",
+            "Your sign-in link");
+  }
+
+  @AfterEach
+  void tearDown() throws IOException {
+    if (dispatcher != null) {
+      dispatcher.shutdown();
+    }
+    smtp.close();
+  }
+
+  @Test
+  void sendsABatchOverOneConnection() {
+    List<OttEmail> failed =
+        emailService.send(
+            List.of(
+                new OttEmail("a@example.com", "http://localhost/login/ott?token=a"),
+                new OttEmail("b@example.com", "http://localhost/login/ott?token=b"),
+                new OttEmail("c@example.com", "http://localhost/login/ott?token=c")));
+
+    assertThat(failed).isEmpty();
+    assertThat(smtp.connections()).isEqualTo(1);
+    assertThat(smtp.received())
+        .extracting(SmtpStandIn.Received::recipients)
+        .containsExactlyInAnyOrder(
+            List.of("<a@example.com>"), List.of("<b@example.com>"), List.of("<c@example.com>"));
+    assertThat(smtp.received())
+        .filteredOn(received -> received.recipients().contains("<a@example.com>"))
+        .singleElement()
+        .extracting(SmtpStandIn.Received::data)
+        .asString()
+        .contains("http://localhost/login/ott?token=a");
+  }
+
+  @Test
+  void reportsRejectedEmails() {
+    smtp.rejectNextRecipients(1);
+
+    List<OttEmail> failed =
+        emailService.send(
+            List.of(
+                new OttEmail("a@example.com", "http://localhost/login/ott?token=a"),
+                new OttEmail("b@example.com", "http://localhost/login/ott?token=b")));
+
+    assertThat(failed).hasSize(1);
+    assertThat(smtp.received()).hasSize(1);
+    assertThat(smtp.received().get(0).recipients()).doesNotContain("<" + failed.get(0).to() + ">");
+  }
+
+  @Test
+  void retriesRejectedEmails() {
+    dispatcher = dispatcher(10, 1);
+    smtp.rejectNextRecipients(1);
+
+    assertThat(dispatcher.submit("a@example.com", "http://localhost/login/ott?token=a")).isTrue();
+
+    await().atMost(Duration.ofSeconds(10)).until(() -> dispatcher.sent() == 1);
+    assertThat(dispatcher.retried()).isEqualTo(1);
+    assertThat(dispatcher.failed()).isZero();
+    assertThat(smtp.received()).hasSize(1);
+  }
+
+  @Test
+  void dropsEmailsWhenTheQueueIsFull() {
+    dispatcher = dispatcher(1, 1);
+    smtp.pause();
+
+    for (int i = 0; i < 10; i++) {
+      dispatcher.submit(i + "@example.com", "http://localhost/login/ott?token=" + i);
+    }
+
+    assertThat(dispatcher.dropped()).isPositive();
+    assertThat(dispatcher.submitted() + dispatcher.dropped()).isEqualTo(10);
+
+    smtp.resume();
+
+    await().atMost(Duration.ofSeconds(10)).until(() -> dispatcher.sent() == dispatcher.submitted());
+    assertThat(smtp.received()).hasSize((int) dispatcher.submitted());
+  }
+
+  private OttEmailDispatcher dispatcher(int queueCapacity, int maxConcurrentBatches) {
+    return new OttEmailDispatcher(
+        emailService,
+        queueCapacity,
+        20,
+        maxConcurrentBatches,
+        4,
+        Duration.ofMillis(10),
+        Duration.ofMillis(50),
+        new MockEnvironment());
+  }
+}
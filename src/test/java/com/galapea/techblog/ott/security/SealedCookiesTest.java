@@ -0,0 +1,103 @@
+package com.galapea.techblog.ott.security;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+
+import jakarta.servlet.http.Cookie;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Base64;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+class SealedCookiesTest {
+
+  private static final String SECRET = Base64.getEncoder().encodeToString(new byte[32]);
+  private static final byte[] CONTENT = "user@example.com".getBytes(StandardCharsets.UTF_8);
+
+  private final SealedCookies cookies = new SealedCookies(SECRET);
+
+  @Test
+  void readsBackWhatItWrites() {
+    String value = write(cookies, "A");
+
+    assertThat(read(cookies, "A", value)).isEqualTo(CONTENT);
+  }
+
+  @Test
+  void hidesTheContent() {
+    String value = write(cookies, "A");
+
+    assertThat(value).doesNotContain("user");
+    assertThat(new String(Base64.getUrlDecoder().decode(value), StandardCharsets.ISO_8859_1))
+        .doesNotContain("user@example.com");
+  }
+
+  @Test
+  void rejectsTamperedValue() {
+    byte[] sealed = Base64.getUrlDecoder().decode(write(cookies, "A"));
+    sealed[sealed.length - 1] ^= 1;
+
+    assertThat(read(cookies, "A", Base64.getUrlEncoder().withoutPadding().encodeToString(sealed)))
+        .isNull();
+  }
+
+  @Test
+  void rejectsValueMovedToAnotherCookie() {
+    String value = write(cookies, "A");
+
+    assertThat(read(cookies, "B", value)).isNull();
+  }
+
+  @Test
+  void rejectsValueSealedWithAnotherKey() {
+    byte[] otherKey = new byte[32];
+    otherKey[0] = 1;
+    SealedCookies other = new SealedCookies(Base64.getEncoder().encodeToString(otherKey));
+
+    assertThat(read(cookies, "A", write(other, "A"))).isNull();
+  }
+
+  @Test
+  void rejectsMalformedValues() {
+    assertThat(read(cookies, "A", "not base64 !")).isNull();
+    assertThat(read(cookies, "A", "")).isNull();
+    assertThat(read(cookies, "A", "AAAA")).isNull();
+  }
+
+  @Test
+  void acceptsAesKeyLengths() {
+    for (int length : new int[] {16, 24, 32}) {
+      SealedCookies sized = new SealedCookies(Base64.getEncoder().encodeToString(new byte[length]));
+
+      assertThat(read(sized, "A", write(sized, "A"))).isEqualTo(CONTENT);
+    }
+  }
+
+  @Test
+  void rejectsOtherKeyLengths() {
+    for (int length : new int[] {8, 20, 64}) {
+      String secret = Base64.getEncoder().encodeToString(new byte[length]);
+
+      assertThatIllegalArgumentException().isThrownBy(() -> new SealedCookies(secret));
+    }
+  }
+
+  private static String write(SealedCookies cookies, String name) {
+    MockHttpServletResponse response = new MockHttpServletResponse();
+    assertThat(
+            cookies.write(
+                new MockHttpServletRequest(), response, name, CONTENT, Duration.ofMinutes(5)))
+        .isTrue();
+    String header = response.getHeader(HttpHeaders.SET_COOKIE);
+    return header.substring(name.length() + 1, header.indexOf(';'));
+  }
+
+  private static byte[] read(SealedCookies cookies, String name, String value) {
+    MockHttpServletRequest request = new MockHttpServletRequest();
+    request.setCookies(new Cookie(name, value));
+    return cookies.read(request, name);
+  }
+}
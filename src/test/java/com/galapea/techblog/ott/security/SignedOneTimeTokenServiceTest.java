@@ -0,0 +1,138 @@
+package com.galapea.techblog.ott.security;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.Base64;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.authentication.ott.GenerateOneTimeTokenRequest;
+import org.springframework.security.authentication.ott.OneTimeToken;
+import org.springframework.security.authentication.ott.OneTimeTokenAuthenticationToken;
+
+class SignedOneTimeTokenServiceTest {
+
+  private static final String SECRET = Base64.getEncoder().encodeToString(new byte[32]);
+  private static final Instant NOW = Instant.parse("2026-01-01T10:00:00Z");
+
+  private SignedOneTimeTokenService service;
+
+  @BeforeEach
+  void setUp() {
+    service = new SignedOneTimeTokenService(SECRET, 1000);
+    service.setClock(Clock.fixed(NOW, ZoneOffset.UTC));
+  }
+
+  @Test
+  void consumesAGeneratedToken() {
+    OneTimeToken generated = generate("user@example.com");
+
+    OneTimeToken consumed = consume(generated.getTokenValue());
+
+    assertThat(consumed).isNotNull();
+    assertThat(consumed.getUsername()).isEqualTo("user@example.com");
+    assertThat(consumed.getExpiresAt()).isEqualTo(generated.getExpiresAt());
+  }
+
+  @Test
+  void rejectsReplay() {
+    String token = generate("user@example.com").getTokenValue();
+
+    assertThat(consume(token)).isNotNull();
+    assertThat(consume(token)).isNull();
+  }
+
+  @Test
+  void rejectsTamperedMac() {
+    byte[] token = decode(generate("user@example.com").getTokenValue());
+    token[token.length - 1] ^= 1;
+
+    assertThat(consume(encode(token))).isNull();
+  }
+
+  @Test
+  void rejectsTamperedUsername() {
+    byte[] token = decode(generate("user@example.com").getTokenValue());
+    // first byte of the username, after the expiry and the nonce
+    token[16] = 'a';
+
+    assertThat(consume(encode(token))).isNull();
+  }
+
+  @Test
+  void rejectsTamperedExpiry() {
+    byte[] token = decode(generate("user@example.com").getTokenValue());
+    token[4] ^= 0x10;
+
+    assertThat(consume(encode(token))).isNull();
+  }
+
+  @Test
+  void rejectsExpiredToken() {
+    String token = generate("user@example.com").getTokenValue();
+
+    service.setClock(Clock.fixed(NOW.plus(Duration.ofMinutes(5)).plusMillis(1), ZoneOffset.UTC));
+
+    assertThat(consume(token)).isNull();
+  }
+
+  @Test
+  void rejectsTokenSignedWithAnotherSecret() {
+    byte[] otherKey = new byte[32];
+    otherKey[0] = 1;
+    SignedOneTimeTokenService other =
+        new SignedOneTimeTokenService(Base64.getEncoder().encodeToString(otherKey), 1000);
+    other.setClock(Clock.fixed(NOW, ZoneOffset.UTC));
+
+    String token =
+        other.generate(new GenerateOneTimeTokenRequest("user@example.com")).getTokenValue();
+
+    assertThat(consume(token)).isNull();
+  }
+
+  @Test
+  void rejectsMalformedTokens() {
+    assertThat(consume("not base64 !")).isNull();
+    assertThat(consume("")).isNull();
+    assertThat(consume(encode(new byte[20]))).isNull();
+  }
+
+  @Test
+  void rejectsLoginsWhenSpentNoncesAreFull() {
+    SignedOneTimeTokenService small = new SignedOneTimeTokenService(SECRET, 1);
+    small.setClock(Clock.fixed(NOW, ZoneOffset.UTC));
+    String first = small.generate(new GenerateOneTimeTokenRequest("a")).getTokenValue();
+    String second = small.generate(new GenerateOneTimeTokenRequest("b")).getTokenValue();
+
+    assertThat(small.consume(new OneTimeTokenAuthenticationToken(first))).isNotNull();
+    assertThat(small.consume(new OneTimeTokenAuthenticationToken(second))).isNull();
+  }
+
+  @Test
+  void rejectsShortSecret() {
+    String shortSecret = Base64.getEncoder().encodeToString(new byte[16]);
+
+    assertThatIllegalArgumentException()
+        .isThrownBy(() -> new SignedOneTimeTokenService(shortSecret, 1000));
+  }
+
+  private OneTimeToken generate(String username) {
+    return service.generate(new GenerateOneTimeTokenRequest(username));
+  }
+
+  private OneTimeToken consume(String token) {
+    return service.consume(new OneTimeTokenAuthenticationToken(token));
+  }
+
+  private static byte[] decode(String token) {
+    return Base64.getUrlDecoder().decode(token);
+  }
+
+  private static String encode(byte[] token) {
+    return Base64.getUrlEncoder().withoutPadding().encodeToString(token);
+  }
+}
@@ -0,0 +1,142 @@
+package com.galapea.techblog.ott.security;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * In-process SMTP server for tests. It accepts every message, records the recipients and the data,
+ * and can reject recipients with a temporary failure or hold new connections before the greeting.
+ */
+final class SmtpStandIn implements AutoCloseable {
+
+  record Received(List<String> recipients, String data) {}
+
+  private final ServerSocket server;
+  private final List<Received> received = new CopyOnWriteArrayList<>();
+  private final AtomicInteger connections = new AtomicInteger();
+  private final AtomicInteger recipientsToReject = new AtomicInteger();
+  private volatile CountDownLatch greeting = new CountDownLatch(0);
+
+  SmtpStandIn() throws IOException {
+    server = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+    Thread acceptor = new Thread(this::acceptLoop, "smtp-stand-in");
+    acceptor.setDaemon(true);
+    acceptor.start();
+  }
+
+  int port() {
+    return server.getLocalPort();
+  }
+
+  List<Received> received() {
+    return received;
+  }
+
+  int connections() {
+    return connections.get();
+  }
+
+  /** Answers the next {@code count} recipients with {@code 451}. */
+  void rejectNextRecipients(int count) {
+    recipientsToReject.set(count);
+  }
+
+  /** Holds new connections before the greeting until {@link #resume()}. */
+  void pause() {
+    greeting = new CountDownLatch(1);
+  }
+
+  void resume() {
+    greeting.countDown();
+  }
+
+  @Override
+  public void close() throws IOException {
+    resume();
+    server.close();
+  }
+
+  private void acceptLoop() {
+    while (!server.isClosed()) {
+      try {
+        Socket socket = server.accept();
+        connections.incrementAndGet();
+        Thread session = new Thread(() -> serve(socket), "smtp-stand-in-session");
+        session.setDaemon(true);
+        session.start();
+      } catch (IOException e) {
+        return;
+      }
+    }
+  }
+
+  private void serve(Socket socket) {
+    try (socket;
+        BufferedReader in =
+            new BufferedReader(
+                new InputStreamReader(socket.getInputStream(), StandardCharsets.US_ASCII));
+        Writer out = new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.US_ASCII)) {
+      if (!greeting.await(10, TimeUnit.SECONDS)) {
+        return;
+      }
+      reply(out, "220 localhost ESMTP");
+      List<String> recipients = new ArrayList<>();
+      String line;
+      while ((line = in.readLine()) != null) {
+        String command = line.length() < 4 ? line : line.substring(0, 4).toUpperCase(Locale.ROOT);
+        switch (command) {
+          case "EHLO", "HELO" -> reply(out, "250 localhost");
+          case "MAIL" -> {
+            recipients.clear();
+            reply(out, "250 OK");
+          }
+          case "RCPT" -> {
+            if (recipientsToReject.getAndUpdate(n -> Math.max(0, n - 1)) > 0) {
+              reply(out, "451 Try again later");
+            } else {
+              recipients.add(line.substring(line.indexOf(':') + 1).trim());
+              reply(out, "250 OK");
+            }
+          }
+          case "DATA" -> {
+            reply(out, "354 End data with <CR><LF>.<CR><LF>");
+            StringBuilder data = new StringBuilder();
+            while ((line = in.readLine()) != null && !line.equals(".")) {
+              data.append(line).append('\n');
+            }
+            received.add(new Received(List.copyOf(recipients), data.toString()));
+            reply(out, "250 OK");
+          }
+          case "QUIT" -> {
+            reply(out, "221 Bye");
+            return;
+          }
+          default -> reply(out, "250 OK");
+        }
+      }
+    } catch (IOException e) {
+      // the client went away
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private static void reply(Writer out, String line) throws IOException {
+    out.write(line + "\r\n");
+    out.flush();
+  }
+}
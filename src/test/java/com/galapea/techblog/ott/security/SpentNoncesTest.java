@@ -0,0 +1,47 @@
+package com.galapea.techblog.ott.security;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.galapea.techblog.ott.security.SpentNonces.Result;
+import java.time.Duration;
+import java.time.Instant;
+import org.junit.jupiter.api.Test;
+
+class SpentNoncesTest {
+
+  private static final Instant EXPIRY = Instant.parse("2026-01-01T10:05:00Z");
+
+  @Test
+  void reportsASecondUseAsSpent() {
+    SpentNonces nonces = new SpentNonces(Duration.ofSeconds(30), 10);
+
+    assertThat(nonces.add(1, EXPIRY)).isEqualTo(Result.ADDED);
+    assertThat(nonces.add(1, EXPIRY)).isEqualTo(Result.SPENT);
+    assertThat(nonces.add(2, EXPIRY)).isEqualTo(Result.ADDED);
+  }
+
+  @Test
+  void refusesNewNoncesWhenFull() {
+    SpentNonces nonces = new SpentNonces(Duration.ofSeconds(30), 2);
+    nonces.add(1, EXPIRY);
+    nonces.add(2, EXPIRY);
+
+    assertThat(nonces.add(3, EXPIRY)).isEqualTo(Result.FULL);
+    // a spent nonce is still recognized as such
+    assertThat(nonces.add(1, EXPIRY)).isEqualTo(Result.SPENT);
+  }
+
+  @Test
+  void keepsNoncesUntilTheirTokensExpire() {
+    SpentNonces nonces = new SpentNonces(Duration.ofSeconds(30), 10);
+    nonces.add(1, EXPIRY);
+    nonces.add(2, EXPIRY.plus(Duration.ofMinutes(1)));
+
+    assertThat(nonces.removeExpired(EXPIRY.minusMillis(1))).isZero();
+    assertThat(nonces.add(1, EXPIRY)).isEqualTo(Result.SPENT);
+
+    assertThat(nonces.removeExpired(EXPIRY.plus(Duration.ofSeconds(30)))).isEqualTo(1);
+    assertThat(nonces.size()).isEqualTo(1);
+    assertThat(nonces.add(2, EXPIRY.plus(Duration.ofMinutes(1)))).isEqualTo(Result.SPENT);
+  }
+}
@@ -0,0 +1,48 @@
+package com.galapea.techblog.ott.util;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class CsvTest {
+
+  @Test
+  void prefixesFieldsThatStartAFormula() {
+    assertThat(Csv.formulaSafe("=HYPERLINK(\"http://x\")")).isEqualTo("'=HYPERLINK(\"http://x\")");
+    assertThat(Csv.formulaSafe("+cmd|' /C calc'!A0")).isEqualTo("'+cmd|' /C calc'!A0");
+    assertThat(Csv.formulaSafe("-1+1")).isEqualTo("'-1+1");
+    assertThat(Csv.formulaSafe("@SUM(A1)")).isEqualTo("'@SUM(A1)");
+    assertThat(Csv.formulaSafe("\t=1")).isEqualTo("'\t=1");
+    assertThat(Csv.formulaSafe("\r=1")).isEqualTo("'\r=1");
+  }
+
+  @Test
+  void leavesOtherFieldsAlone() {
+    assertThat(Csv.formulaSafe("a@example.com")).isEqualTo("a@example.com");
+    assertThat(Csv.formulaSafe("Jane = Doe")).isEqualTo("Jane = Doe");
+    assertThat(Csv.formulaSafe("")).isEmpty();
+    assertThat(Csv.formulaSafe(null)).isNull();
+  }
+
+  @Test
+  void quotesPrefixedFieldsWhenNeeded() throws IOException {
+    StringBuilder out = new StringBuilder();
+    Csv.appendRecord(out, Arrays.asList("1", Csv.formulaSafe("=A1,\"B\""), null));
+
+    assertThat(out).hasToString("1,\"'=A1,\"\"B\"\"\",\r\n");
+  }
+
+  @Test
+  void readsBackWhatItWrites() throws IOException {
+    StringBuilder out = new StringBuilder();
+    Csv.appendRecord(out, List.of("id", "a,b", "say \"hi\"", "two\nlines"));
+
+    Csv.Reader reader = new Csv.Reader(new StringReader(out.toString()));
+    assertThat(reader.next()).containsExactly("id", "a,b", "say \"hi\"", "two\nlines");
+    assertThat(reader.next()).isNull();
+  }
+}
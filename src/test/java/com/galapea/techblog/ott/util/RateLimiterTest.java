@@ -0,0 +1,59 @@
+package com.galapea.techblog.ott.util;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Duration;
+import org.junit.jupiter.api.Test;
+
+class RateLimiterTest {
+
+  @Test
+  void allowsTheBurstThenRejects() {
+    RateLimiter limiter = new RateLimiter(3, Duration.ofHours(1), 1000);
+
+    assertThat(limiter.tryAcquire("a")).isTrue();
+    assertThat(limiter.tryAcquire("a")).isTrue();
+    assertThat(limiter.tryAcquire("a")).isTrue();
+    assertThat(limiter.tryAcquire("a")).isFalse();
+    assertThat(limiter.tryAcquire("b")).isTrue();
+  }
+
+  @Test
+  void refillsOverThePeriod() throws InterruptedException {
+    RateLimiter limiter = new RateLimiter(1, Duration.ofMillis(50), 1000);
+
+    assertThat(limiter.tryAcquire("a")).isTrue();
+    assertThat(limiter.tryAcquire("a")).isFalse();
+    Thread.sleep(80);
+    assertThat(limiter.tryAcquire("a")).isTrue();
+  }
+
+  @Test
+  void floodOfDistinctKeysSharesTheOverflowBuckets() {
+    // one bucket per stripe
+    RateLimiter limiter = new RateLimiter(2, Duration.ofHours(1), 64);
+
+    int allowed = 0;
+    for (int i = 0; i < 10_000; i++) {
+      if (limiter.tryAcquire("key-" + i)) {
+        allowed++;
+      }
+    }
+
+    assertThat(limiter.size()).isLessThanOrEqualTo(64);
+    // at most a full bucket per kept key and per overflow bucket
+    assertThat(allowed).isLessThanOrEqualTo(2 * 64 + 2 * 64);
+  }
+
+  @Test
+  void evictsBucketsThatAreFullAgain() throws InterruptedException {
+    RateLimiter limiter = new RateLimiter(1, Duration.ofMillis(20), 1000);
+    limiter.tryAcquire("a");
+    limiter.tryAcquire("b");
+
+    Thread.sleep(40);
+
+    assertThat(limiter.evictExpired()).isEqualTo(2);
+    assertThat(limiter.size()).isZero();
+  }
+}
@@ -0,0 +1,84 @@
+package com.galapea.techblog.ott.util;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+
+import org.junit.jupiter.api.Test;
+
+class SqlTemplateTest {
+
+  @Test
+  void bindsStringsAsQuotedLiterals() {
+    SqlTemplate template = SqlTemplate.compile("SELECT id FROM Users where email == ?");
+
+    assertThat(template.bind("a@example.com"))
+        .isEqualTo("SELECT id FROM Users where email == 'a@example.com'");
+  }
+
+  @Test
+  void doublesEmbeddedQuotes() {
+    assertThat(SqlTemplate.literal("O'Brien")).isEqualTo("'O''Brien'");
+    assertThat(SqlTemplate.literal("'")).isEqualTo("''''");
+    assertThat(SqlTemplate.literal("''x''")).isEqualTo("'''''x'''''");
+  }
+
+  @Test
+  void valueCannotEndItsLiteral() {
+    SqlTemplate template = SqlTemplate.compile("DELETE FROM Users where id == ?");
+
+    assertThat(template.bind("x' OR '1' == '1"))
+        .isEqualTo("DELETE FROM Users where id == 'x'' OR ''1'' == ''1'");
+  }
+
+  @Test
+  void writesNullNumbersAndBooleansUnquoted() {
+    SqlTemplate template = SqlTemplate.compile("VALUES (?, ?, ?, ?)");
+
+    assertThat(template.bind(null, 42, 1.5, true)).isEqualTo("VALUES (NULL, 42, 1.5, true)");
+  }
+
+  @Test
+  void ignoresPlaceholdersInsideTemplateLiterals() {
+    SqlTemplate template = SqlTemplate.compile("SELECT * FROM T where a == '?' and b == ?");
+
+    assertThat(template.parameterCount()).isEqualTo(1);
+    assertThat(template.bind("v")).isEqualTo("SELECT * FROM T where a == '?' and b == 'v'");
+  }
+
+  @Test
+  void ignoresPlaceholdersInsideQuotedIdentifiers() {
+    SqlTemplate template = SqlTemplate.compile("SELECT \"col?\" FROM T where id == ?");
+
+    assertThat(template.parameterCount()).isEqualTo(1);
+  }
+
+  @Test
+  void tracksDoubledQuotesInTemplateLiterals() {
+    SqlTemplate template = SqlTemplate.compile("SELECT * FROM T where a == 'it''s ?' and b == ?");
+
+    assertThat(template.parameterCount()).isEqualTo(1);
+    assertThat(template.bind("v")).endsWith("'it''s ?' and b == 'v'");
+  }
+
+  @Test
+  void keepsPlaceholderValuesLiteral() {
+    SqlTemplate template = SqlTemplate.compile("UPDATE Users set name = ? where id == ?");
+
+    assertThat(template.bind("?", "'?'"))
+        .isEqualTo("UPDATE Users set name = '?' where id == '''?'''");
+  }
+
+  @Test
+  void rejectsUnterminatedQuotes() {
+    assertThatIllegalArgumentException()
+        .isThrownBy(() -> SqlTemplate.compile("SELECT * FROM T where a == 'x and b == ?"));
+  }
+
+  @Test
+  void rejectsWrongValueCount() {
+    SqlTemplate template = SqlTemplate.compile("SELECT * FROM T where a == ? and b == ?");
+
+    assertThatIllegalArgumentException().isThrownBy(() -> template.bind("a"));
+    assertThatIllegalArgumentException().isThrownBy(() -> template.bind("a", "b", "c"));
+  }
+}